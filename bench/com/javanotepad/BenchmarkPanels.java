@@ -0,0 +1,37 @@
+package com.javanotepad;
+
+import javax.swing.SwingUtilities;
+import java.awt.image.BufferedImage;
+
+/**
+ * Monta um {@link AnimatedBackgroundPanel} fora de janela, com a simulação já
+ * inicializada no tamanho pedido e um quadro publicado.
+ */
+final class BenchmarkPanels {
+
+    private BenchmarkPanels() {
+    }
+
+    // pattern é o nome do padrão no menu; size no formato "larguraxaltura"
+    public static AnimatedBackgroundPanel create(String pattern, String size, int stars) throws Exception {
+        String[] dimensions = size.split("x");
+        AnimatedBackgroundPanel panel = new AnimatedBackgroundPanel();
+        BackgroundPattern found = panel.findPattern(pattern);
+        if (found == null) {
+            throw new IllegalArgumentException("Padrão não registrado: " + pattern);
+        }
+        panel.setPattern(found);
+        panel.setStarCount(stars);
+        panel.setSize(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+        SwingUtilities.invokeAndWait(() -> {
+            // espera o componentResized que informa o tamanho à simulação
+        });
+        panel.step();
+        panel.frame(0.5f);
+        return panel;
+    }
+
+    public static BufferedImage image(AnimatedBackgroundPanel panel) {
+        return new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+    }
+}
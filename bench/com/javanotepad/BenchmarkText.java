@@ -0,0 +1,62 @@
+package com.javanotepad;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Texto sintético para os benchmarks: palavras curtas, linhas de até 80
+ * caracteres, sempre o mesmo para a mesma semente.
+ */
+final class BenchmarkText {
+
+    private static final String[] WORDS = {
+        "editor", "arquivo", "linha", "texto", "fundo", "janela", "thread", "swing",
+        "quadro", "estrela", "caractere", "documento", "buffer", "cursor", "menu", "ação"
+    };
+
+    private BenchmarkText() {
+    }
+
+    public static String words(int length) {
+        StringBuilder text = new StringBuilder(length + 16);
+        append(text, length, "\n", new SplittableRandom(42));
+        text.setLength(length);
+        return text.toString();
+    }
+
+    // Grava cerca de bytes bytes no arquivo, em blocos, com a quebra de linha pedida
+    public static void write(Path file, long bytes, String lineEnding, boolean ascii) throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder block = new StringBuilder(1 << 20);
+        long written = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            while (written < bytes) {
+                block.setLength(0);
+                append(block, (int) Math.min(1 << 20, bytes - written), lineEnding, random);
+                String chunk = ascii ? block.toString().replace('ç', 'c').replace('ã', 'a') : block.toString();
+                out.write(chunk);
+                written += chunk.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+    }
+
+    private static void append(StringBuilder text, int length, String lineEnding, SplittableRandom random) {
+        int column = 0;
+        while (text.length() < length) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (column + word.length() > 80) {
+                text.append(lineEnding);
+                column = 0;
+            } else if (column > 0) {
+                text.append(' ');
+                column++;
+            }
+            text.append(word);
+            column += word.length();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.javanotepad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.text.Document;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminho de abertura do {@code openFile()}: o {@link FileLoader} lendo o
+ * arquivo e montando o documento. "ascii-lf" cai na leitura direta dos bytes
+ * ({@link AsciiText}); "utf8-crlf" passa pela decodificação e pela troca das
+ * quebras de linha. O arquivo de 1 GB só entra quando pedido, com
+ * {@code -p megabytes=1024}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class FileLoadBenchmark {
+
+    @Param({"1", "100"})
+    public int megabytes;
+
+    @Param({"ascii-lf", "utf8-crlf"})
+    public String format;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        file = Files.createTempFile("javanotepad-bench", ".txt");
+        boolean ascii = format.startsWith("ascii");
+        BenchmarkText.write(file, megabytes * 1024L * 1024, ascii ? "\n" : "\r\n", ascii);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Document load() throws Exception {
+        FileLoader loader = new FileLoader(file, new PieceTableDocument(), finished -> {
+        });
+        loader.execute();
+        return loader.get();
+    }
+}
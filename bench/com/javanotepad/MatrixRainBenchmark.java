@@ -0,0 +1,64 @@
+package com.javanotepad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Matrix Rain sem janela: o passo da simulação ({@code MatrixRainPattern.update}),
+ * o passo mais a publicação do quadro e o desenho ({@code render}) num
+ * {@link BufferedImage}. A tela 4K só entra quando pedida, com
+ * {@code -p size=3840x2160}.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MatrixRainBenchmark {
+
+    @Param({"800x600", "1920x1080"})
+    public String size;
+
+    private AnimatedBackgroundPanel panel;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        panel = BenchmarkPanels.create("Matrix Rain", size, AnimatedBackgroundPanel.DEFAULT_STAR_COUNT);
+        image = BenchmarkPanels.image(panel);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public void step() {
+        panel.step();
+    }
+
+    @Benchmark
+    public void stepAndPublish() {
+        panel.step();
+        panel.frame(0.5f);
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        panel.paint(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,116 @@
+package com.javanotepad;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ServiceLoader;
+
+/**
+ * Confere o contrato de {@link BackgroundPattern}: depois do aquecimento,
+ * {@code update}, {@code capture} e {@code render} não alocam nada.
+ * <p>
+ * Cada padrão registrado roda em alguns tamanhos e quantidades de partículas,
+ * com três quadros em rodízio como no painel, desenhando num
+ * {@link BufferedImage}. Os bytes alocados são somados em todas as threads
+ * (o Starfield grande usa o pool do fork/join). Sai com status 1 se algum
+ * padrão alocar. Roda com {@code ant patterncheck}.
+ */
+public final class PatternAllocationCheck {
+
+    private static final int WARMUP_FRAMES = 2_000;
+    private static final int MEASURED_FRAMES = 1_000;
+    private static final String[] SIZES = {"800x600", "1920x1080"};
+    private static final int[] PARTICLES = {AnimatedBackgroundPanel.DEFAULT_STAR_COUNT, 100_000};
+
+    private static final com.sun.management.ThreadMXBean THREADS
+            = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private PatternAllocationCheck() {
+    }
+
+    public static void main(String[] args) {
+        boolean failed = false;
+        int checked = 0;
+        for (ServiceLoader.Provider<BackgroundPattern> provider
+                : ServiceLoader.load(BackgroundPattern.class).stream().toList()) {
+            for (String size : SIZES) {
+                for (int particles : PARTICLES) {
+                    BackgroundPattern pattern = provider.get(); // uma instância nova por caso
+                    long bytes = allocatedPerFrame(pattern, size, particles);
+                    System.out.printf("%-12s %-10s %,8d partículas: %d bytes por quadro%n",
+                            pattern.getName(), size, particles, bytes);
+                    failed |= bytes > 0;
+                    checked++;
+                }
+            }
+        }
+        if (checked == 0) {
+            System.err.println("Nenhum padrão registrado em META-INF/services");
+            System.exit(1);
+        }
+        if (failed) {
+            System.err.println("Algum padrão aloca memória a cada quadro");
+            System.exit(1);
+        }
+    }
+
+    // Média de bytes alocados por passo + captura + desenho, descontado o custo da medição
+    private static long allocatedPerFrame(BackgroundPattern pattern, String size, int particles) {
+        String[] dimensions = size.split("x");
+        int width = Integer.parseInt(dimensions[0]);
+        int height = Integer.parseInt(dimensions[1]);
+        ParticlePool pool = new ParticlePool(ParticlePool.DEFAULT_CAPACITY);
+        BackgroundPattern.Context context = new BackgroundPattern.Context() {
+            @Override
+            public ParticlePool getPool() {
+                return pool;
+            }
+
+            @Override
+            public int getParticleCount() {
+                return particles;
+            }
+
+            @Override
+            public int getActivePercent() {
+                return 100;
+            }
+        };
+        BackgroundPattern.Frame[] frames = {pattern.createFrame(), pattern.createFrame(), pattern.createFrame()};
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        Color color = pattern.getDefaultColor();
+        try {
+            pattern.resize(context, width, height);
+            run(pattern, context, frames, g, color, WARMUP_FRAMES);
+            long before = allocatedBytes();
+            long overhead = allocatedBytes() - before; // a própria leitura aloca os arrays
+            before = allocatedBytes();
+            run(pattern, context, frames, g, color, MEASURED_FRAMES);
+            long allocated = allocatedBytes() - before - overhead;
+            return Math.max(0, allocated / MEASURED_FRAMES);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static void run(BackgroundPattern pattern, BackgroundPattern.Context context,
+                            BackgroundPattern.Frame[] frames, Graphics2D g, Color color, int count) {
+        for (int i = 0; i < count; i++) {
+            BackgroundPattern.Frame frame = frames[i % frames.length];
+            pattern.update(context);
+            pattern.capture(frame, 0.5f);
+            pattern.render(g, frame, color, true);
+        }
+    }
+
+    // Bytes já alocados por todas as threads vivas
+    private static long allocatedBytes() {
+        long total = 0;
+        for (long bytes : THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds())) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,58 @@
+package com.javanotepad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.swing.text.BadLocationException;
+
+/**
+ * Contagem de linhas e palavras usada por {@code updateFileStats()}: a contagem
+ * completa feita ao abrir um arquivo e o custo por tecla digitada.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TextStatisticsBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int chars;
+
+    private PieceTableDocument document;
+    private TextStatistics stats;
+    private int offset;
+
+    @Setup(Level.Trial)
+    public void setUp() throws BadLocationException {
+        document = new PieceTableDocument();
+        document.insertString(0, BenchmarkText.words(chars), null);
+        stats = new TextStatistics(() -> {
+        });
+        stats.install(document);
+        offset = document.getLength() / 2;
+    }
+
+    @Benchmark
+    public TextStatistics fullCount() {
+        return TextStatistics.countOf(document);
+    }
+
+    // Digita e apaga um caractere no meio do texto e lê as contagens, como a barra de status
+    @Benchmark
+    public void keystroke(Blackhole blackhole) throws BadLocationException {
+        document.insertString(offset, "x", null);
+        blackhole.consume(stats.getLineCount());
+        blackhole.consume(stats.getWordCount());
+        document.remove(offset, 1);
+        blackhole.consume(stats.getLineCount());
+        blackhole.consume(stats.getWordCount());
+    }
+}
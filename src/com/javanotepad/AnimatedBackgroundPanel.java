@@ -3,213 +3,368 @@ package com.javanotepad;
 import javax.swing.JPanel;
 import java.awt.Color;
 import java.awt.Dimension;
-import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.util.Random;
-
-public class AnimatedBackgroundPanel extends JPanel implements Runnable {
-
-    // Enum para os padrões de animação
-    public enum AnimationPattern {
-        STARFIELD,
-        MATRIX_RAIN
-    }
+import java.awt.GraphicsConfiguration;
+import java.awt.image.VolatileImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AnimatedBackgroundPanel extends JPanel implements FrameScheduler.Animation {
+
+    public static final int DEFAULT_STAR_COUNT = 800;
+    public static final int MAX_STAR_COUNT = 1_000_000;
+
+    private final FrameScheduler scheduler;
+    private final List<BackgroundPattern> patterns; // na ordem do menu
+    private volatile boolean frameStale = true; // o back buffer não mostra o último instantâneo
+    private volatile PerformanceMonitor monitor;
+
+    // Troca de instantâneos entre as threads (buffer triplo): o relógio preenche
+    // o seu e o troca pelo publicado; a EDT troca o dela pelo publicado quando
+    // ele é mais novo. Cada lado só escreve no instantâneo que tem nas mãos.
+    private final AtomicReference<Snapshot> published;
+    private Snapshot writing; // só na thread do relógio
+    private Snapshot reading; // só na EDT
+
+    // Usados só na EDT
+    private VolatileImage backBuffer;
+    private boolean painted; // a janela já foi pintada uma vez
+    private boolean startRequested; // startAnimation() chamado antes disso
+
+    // Configurações da animação, alteradas pela EDT e lidas pelo relógio
+    private volatile int currentPattern; // índice em patterns; -1 sem padrões
+    private volatile boolean userChangedColor = false; // flag para saber se o usuário alterou
+    private volatile Color animationColor = Color.WHITE; // branco para contrastar no fundo preto
+    private volatile int animationSpeed = 50; // duração de um passo em ms
+    private volatile long requestedSize; // largura << 32 | altura, publicada pelo redimensionamento
+    private volatile int starCount = DEFAULT_STAR_COUNT;
+    private volatile QualityGovernor.Level quality = QualityGovernor.Level.HIGH;
+
+    // Estado da simulação, só na thread do relógio
+    private final ParticlePool pool = new ParticlePool(ParticlePool.DEFAULT_CAPACITY);
+    private final long[] patternSizes; // tamanho em que cada padrão foi dimensionado; -1 nunca
+    private long sequence;
+    private int publishedPattern = -1;
+    private long stepNanos; // tempo de simulação acumulado desde o último quadro
+
+    // O que os padrões leem do painel na thread do relógio
+    private final BackgroundPattern.Context context = new BackgroundPattern.Context() {
+        @Override
+        public ParticlePool getPool() {
+            return pool;
+        }
 
-    private Thread animator;
-    private volatile boolean running = false;
-    private final Random random = new Random();
+        @Override
+        public int getParticleCount() {
+            return starCount;
+        }
 
-    // Configurações da animação
-    private AnimationPattern currentPattern = AnimationPattern.STARFIELD;
-    private boolean userChangedColor = false; // flag para saber se o usuário alterou
-    private Color animationColor = Color.WHITE; // branco para contrastar no fundo preto
-    private int animationSpeed = 50; // delay em ms
+        @Override
+        public int getActivePercent() {
+            return quality.getStarPercent();
+        }
+    };
 
-    // Atributos para Starfield
-    private int starCount = 800;
-    private int[] starX, starY, starZ;
+    // Cópia do estado no fim de um quadro; nunca é alterada enquanto a EDT a lê
+    private static final class Snapshot {
+        long sequence;
+        int pattern = -1;
+        final BackgroundPattern.Frame[] frames; // um por padrão, criado no primeiro quadro dele
 
-    // Atributos para Matrix Rain
-    private int matrixFontSize = 16;
-    private int[] drops;
-    private final String matrixChars
-            = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ1234567890@#$%^&*()";
+        Snapshot(int patterns) {
+            frames = new BackgroundPattern.Frame[patterns];
+        }
+    }
 
     public AnimatedBackgroundPanel() {
-        // Re-inicializa animações quando o painel tiver tamanho
+        patterns = loadPatterns();
+        currentPattern = patterns.isEmpty() ? -1 : 0;
+        if (!patterns.isEmpty()) {
+            animationColor = patterns.get(0).getDefaultColor();
+        }
+        patternSizes = new long[patterns.size()];
+        Arrays.fill(patternSizes, -1);
+        published = new AtomicReference<>(new Snapshot(patterns.size()));
+        writing = new Snapshot(patterns.size());
+        reading = new Snapshot(patterns.size());
+        scheduler = new FrameScheduler("AnimatedBackgroundPanel", animationSpeed, FrameScheduler.DEFAULT_FPS, this);
+
+        // O relógio redimensiona o padrão no próximo passo
         addComponentListener(new java.awt.event.ComponentAdapter() {
             @Override
             public void componentResized(java.awt.event.ComponentEvent e) {
-                initializeAnimations();
+                requestedSize = (long) getWidth() << 32 | getHeight();
             }
         });
     }
 
-    private void initializeAnimations() {
-        int w = Math.max(1, getWidth());
-        int h = Math.max(1, getHeight());
-
-        // Inicializa Starfield
-        starX = new int[starCount];
-        starY = new int[starCount];
-        starZ = new int[starCount];
-
-        for (int i = 0; i < starCount; i++) {
-            starX[i] = random.nextInt(w * 2) - w;
-            starY[i] = random.nextInt(h * 2) - h;
-            starZ[i] = random.nextInt(w) + 1; // evita divisão por zero
+    // Padrões registrados em META-INF/services; um provedor quebrado é ignorado
+    private static List<BackgroundPattern> loadPatterns() {
+        List<BackgroundPattern> found = new ArrayList<>();
+        Iterator<BackgroundPattern> providers = ServiceLoader.load(BackgroundPattern.class).iterator();
+        while (true) {
+            try {
+                if (!providers.hasNext()) {
+                    break;
+                }
+                found.add(providers.next());
+            } catch (ServiceConfigurationError e) {
+                System.err.println("Padrão de fundo ignorado: " + e.getMessage());
+            }
         }
-
-        // Inicializa Matrix Rain
-        int columns = Math.max(1, w / matrixFontSize);
-        drops = new int[columns];
-        for (int i = 0; i < drops.length; i++) {
-            drops[i] = random.nextInt(h / matrixFontSize);
+        if (found.isEmpty()) {
+            System.err.println("Nenhum padrão de fundo encontrado; o fundo fica preto");
         }
+        return Collections.unmodifiableList(found);
     }
 
-    // Inicia a thread de animação
+    // Inicia o relógio da animação; chamadas repetidas não criam outra thread.
+    // Antes da primeira pintura o início só fica pedido: a janela aparece sem
+    // esperar a simulação ser criada.
     public void startAnimation() {
-        if (animator == null || !running) {
-            animator = new Thread(this);
-            running = true;
-            animator.start();
+        if (painted) {
+            scheduler.start();
+        } else {
+            startRequested = true;
         }
     }
 
-    // Para a thread de animação
+    // Para o relógio e espera a thread terminar
     public void stopAnimation() {
-        running = false;
+        startRequested = false;
+        scheduler.stop();
     }
 
-    @Override
-    public void run() {
-        while (running) {
-            updateAnimation();
-            repaint();
-            try {
-                Thread.sleep(animationSpeed);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                running = false;
-            }
-        }
+    // Congela a animação sem encerrar a thread (janela minimizada, oculta ou sem foco)
+    public void setAnimationPaused(boolean paused) {
+        scheduler.setPaused(paused);
     }
 
-    private void updateAnimation() {
-        if (currentPattern == AnimationPattern.STARFIELD) {
-            updateStarfield();
-        } else if (currentPattern == AnimationPattern.MATRIX_RAIN) {
-            updateMatrixRain();
-        }
+    // Passa a registrar tempos de simulação e de pintura no monitor
+    public void setPerformanceMonitor(PerformanceMonitor monitor) {
+        this.monitor = monitor;
+        monitor.setScheduler(scheduler);
     }
 
     @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        // Se ainda não inicializou, inicia agora
-        if (starX == null || starY == null || starZ == null || drops == null) {
-            initializeAnimations();
+    public void step() {
+        int index = currentPattern;
+        if (index < 0) {
+            return;
         }
-
-        // Fundo preto (reaproveitado no Matrix Rain com transparência)
-        g2d.setColor(Color.BLACK);
-        g2d.fillRect(0, 0, getWidth(), getHeight());
-
-        switch (currentPattern) {
-            case STARFIELD:
-                drawStarfield(g2d);
-                break;
-            case MATRIX_RAIN:
-                // fundo translucido
-                g2d.setColor(new Color(0, 0, 0, 20));
-                g2d.fillRect(0, 0, getWidth(), getHeight());
-                drawMatrixRain(g2d);
-                break;
+        long start = System.nanoTime();
+        BackgroundPattern pattern = patterns.get(index);
+        long size = requestedSize;
+        if (size != patternSizes[index]) {
+            // Um padrão que volta à tela no mesmo tamanho continua de onde parou
+            patternSizes[index] = size;
+            pattern.resize(context, Math.max(1, (int) (size >>> 32)), Math.max(1, (int) size));
         }
+        pattern.update(context);
+        stepNanos += System.nanoTime() - start;
     }
 
-    // --- STARFIELD ---
-    private void updateStarfield() {
-        if (starZ == null) {
+    @Override
+    public void frame(float alpha) {
+        int index = currentPattern;
+        if (index < 0 || patternSizes[index] < 0) {
+            scheduler.framePainted(); // nenhum passo ainda
             return;
         }
-
-        for (int i = 0; i < starCount; i++) {
-            starZ[i] -= 5;
-            if (starZ[i] <= 0) {
-                starZ[i] = Math.max(1, getWidth());
-                starX[i] = random.nextInt(getWidth() * 2) - getWidth();
-                starY[i] = random.nextInt(getHeight() * 2) - getHeight();
-            }
+        BackgroundPattern pattern = patterns.get(index);
+        if (index == publishedPattern && !pattern.needsFrame()) {
+            scheduler.framePainted(); // nada mudou desde o último quadro
+            return;
+        }
+        long start = System.nanoTime();
+        publish(index, pattern, alpha);
+        PerformanceMonitor m = monitor;
+        if (m != null) {
+            m.recordUpdate(stepNanos + System.nanoTime() - start);
         }
+        stepNanos = 0;
+        frameStale = true;
+        repaint();
     }
 
-    private void drawStarfield(Graphics2D g2d) {
-        if (starX == null || starY == null || starZ == null) {
-            return;
+    // Copia o estado para o instantâneo livre e o troca pelo publicado
+    private void publish(int index, BackgroundPattern pattern, float alpha) {
+        Snapshot s = writing;
+        s.sequence = ++sequence;
+        s.pattern = index;
+        BackgroundPattern.Frame frame = s.frames[index];
+        if (frame == null) {
+            frame = s.frames[index] = pattern.createFrame();
         }
+        pattern.capture(frame, alpha);
+        publishedPattern = index;
+        writing = published.getAndSet(s);
+    }
 
-        g2d.setColor(animationColor);
-        g2d.translate(getWidth() / 2, getHeight() / 2);
-
-        for (int i = 0; i < starCount; i++) {
-            float sx = (float) starX[i] / starZ[i] * getWidth();
-            float sy = (float) starY[i] / starZ[i] * getHeight();
-            float r = Math.max(1, (float) (getWidth() - starZ[i]) / getWidth() * 6);
-            g2d.fillOval((int) sx, (int) sy, (int) r, (int) r);
+    // Instantâneo mais recente já completo, sem bloquear a EDT
+    private Snapshot latestSnapshot() {
+        if (published.get().sequence > reading.sequence) {
+            reading = published.getAndSet(reading);
         }
+        return reading;
+    }
 
-        g2d.translate(-getWidth() / 2, -getHeight() / 2);
+    // Pinta o painel e os componentes sobre ele; a primeira vez marca a janela como exibida
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!painted) {
+            painted = true;
+            PerformanceMonitor m = monitor;
+            if (m != null) {
+                m.recordFirstPaint();
+            }
+            if (startRequested) {
+                startRequested = false;
+                scheduler.start();
+            }
+        }
     }
 
-    // --- MATRIX RAIN ---
-    private void updateMatrixRain() {
-        if (drops == null) {
-            return;
+    @Override
+    protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
+        boolean newFrame = frameStale;
+        if (!paintBackBuffer(g)) {
+            renderFrame((Graphics2D) g); // sem buffer (painel ainda não exibido)
         }
+        scheduler.framePainted();
 
-        for (int i = 0; i < drops.length; i++) {
-            if (drops[i] * matrixFontSize > getHeight() && random.nextFloat() > 0.975) {
-                drops[i] = 0;
+        PerformanceMonitor m = monitor;
+        if (m != null) {
+            m.recordPaint(System.nanoTime() - start);
+            if (newFrame) {
+                m.framePainted();
             }
-            drops[i]++;
         }
     }
 
-    private void drawMatrixRain(Graphics2D g2d) {
-        if (drops == null) {
-            return;
+    // Monta o quadro num VolatileImage e copia para a tela; false se não há buffer
+    private boolean paintBackBuffer(Graphics g) {
+        int w = getWidth();
+        int h = getHeight();
+        if (w <= 0 || h <= 0) {
+            return false;
         }
+        do {
+            // Repinturas pedidas pelo texto por cima só copiam o último quadro
+            boolean render = frameStale;
+            GraphicsConfiguration gc = getGraphicsConfiguration();
+            int status = backBuffer == null ? VolatileImage.IMAGE_INCOMPATIBLE : backBuffer.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE
+                    || backBuffer.getWidth() != w || backBuffer.getHeight() != h) {
+                if (backBuffer != null) {
+                    backBuffer.flush();
+                }
+                backBuffer = createVolatileImage(w, h);
+                if (backBuffer == null) {
+                    return false;
+                }
+                render = true;
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                render = true;
+            }
+            if (render) {
+                frameStale = false;
+                Graphics2D buffer = backBuffer.createGraphics();
+                try {
+                    renderFrame(buffer);
+                } finally {
+                    buffer.dispose();
+                }
+            }
+            g.drawImage(backBuffer, 0, 0, null);
+        } while (backBuffer.contentsLost());
+        return true;
+    }
 
-        g2d.setColor(animationColor);
-        g2d.setFont(new Font("Monospaced", Font.PLAIN, matrixFontSize));
+    private void renderFrame(Graphics2D g2d) {
+        g2d.setColor(Color.BLACK);
+        g2d.fillRect(0, 0, getWidth(), getHeight());
 
-        for (int i = 0; i < drops.length; i++) {
-            char randomChar = matrixChars.charAt(random.nextInt(matrixChars.length()));
-            int x = i * matrixFontSize;
-            int y = drops[i] * matrixFontSize;
-            g2d.drawString(String.valueOf(randomChar), x, y);
+        Snapshot snapshot = latestSnapshot();
+        if (snapshot.pattern >= 0) {
+            patterns.get(snapshot.pattern).render(g2d, snapshot.frames[snapshot.pattern], animationColor,
+                    quality.isAntialiased());
         }
     }
 
     // --- CONTROLES ---
-    public void setPattern(AnimationPattern pattern) {
-        this.currentPattern = pattern;
+    // Padrões encontrados, na ordem do menu
+    public List<BackgroundPattern> getPatterns() {
+        return patterns;
+    }
+
+    public BackgroundPattern getPattern() {
+        int index = currentPattern;
+        return index < 0 ? null : patterns.get(index);
+    }
+
+    // Troca o padrão exibido; o anterior fica com as partículas para quando voltar
+    public void setPattern(BackgroundPattern pattern) {
+        int index = patterns.indexOf(pattern);
+        if (index < 0) {
+            throw new IllegalArgumentException("Padrão desconhecido: " + pattern.getName());
+        }
+        if (!userChangedColor) {
+            this.animationColor = pattern.getDefaultColor();
+        }
+        this.currentPattern = index;
+    }
 
-        if (pattern == AnimationPattern.MATRIX_RAIN && !userChangedColor) {
-            this.animationColor = Color.GREEN; // padrão matrix
+    // Padrão de nome name, ou null
+    public BackgroundPattern findPattern(String name) {
+        for (BackgroundPattern pattern : patterns) {
+            if (pattern.getName().equals(name)) {
+                return pattern;
+            }
         }
+        return null;
     }
 
     public void setAnimationColor(Color color) {
         this.animationColor = color;
         userChangedColor = true;
+        frameStale = true;
+        repaint();
+    }
+
+    // Cor escolhida pelo usuário, ou null enquanto vale a de cada padrão
+    public Color getChosenColor() {
+        return userChangedColor ? animationColor : null;
+    }
+
+    // Aplicado pelo relógio no próximo passo
+    public void setStarCount(int count) {
+        this.starCount = Math.max(1, Math.min(count, MAX_STAR_COUNT));
+    }
+
+    public int getStarCount() {
+        return starCount;
+    }
+
+    // Parte das estrelas, suavização e FPS máximo; chamado pelo QualityGovernor
+    public void setQuality(QualityGovernor.Level level) {
+        this.quality = level;
+        scheduler.setTargetFps(Math.min(FrameScheduler.DEFAULT_FPS, level.getMaxFps()));
+        frameStale = true;
+        repaint();
+    }
+
+    public QualityGovernor.Level getQuality() {
+        return quality;
     }
 
     public void setAnimationSpeed(int speed) {
@@ -222,6 +377,15 @@ public class AnimatedBackgroundPanel extends JPanel implements Runnable {
         if (speed == 2) {
             this.animationSpeed = 20;  // Rápida
         }
+        scheduler.setStepMillis(animationSpeed);
+    }
+
+    // O valor passado por último a setAnimationSpeed
+    public int getAnimationSpeed() {
+        if (animationSpeed == 100) {
+            return 0;
+        }
+        return animationSpeed == 20 ? 2 : 1;
     }
 
     @Override
@@ -0,0 +1,95 @@
+package com.javanotepad;
+
+/**
+ * Texto de um byte por caractere, lido de um arquivo ASCII puro.
+ * <p>
+ * Só é usado quando cada byte do arquivo é exatamente o caractere
+ * correspondente, e ocupa metade do que o mesmo texto ocuparia num
+ * {@code char[]}. O FileLoader lê o arquivo inteiro e o fecha em seguida,
+ * sem deixá-lo mapeado: assim ele pode ser substituído ao salvar (o Windows
+ * não deixa trocar um arquivo mapeado) e outro programa pode truncá-lo sem
+ * que a leitura do texto falhe.
+ */
+final class AsciiText implements CharSequence {
+
+    private final byte[] bytes;
+    private final int start;
+    private final int length;
+
+    private AsciiText(byte[] bytes, int start, int length) {
+        this.bytes = bytes;
+        this.start = start;
+        this.length = length;
+    }
+
+    // Usa os primeiros length bytes do array, sem copiar
+    public static AsciiText of(byte[] bytes, int length) {
+        return new AsciiText(bytes, 0, length);
+    }
+
+    // Verifica se o texto pode ser usado como está: só ASCII e nenhum '\r'
+    public boolean isPlainAscii() {
+        for (int i = start; i < start + length; i++) {
+            byte b = bytes[i];
+            if (b < 0 || b == '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Confere numa passada só que o texto é ASCII puro e tem estas contagens de TextStatistics
+    public boolean hasCounts(int separators, int wordStarts) {
+        int lines = 0;
+        int words = 0;
+        boolean space = true; // antes do começo conta como espaço
+        for (int i = start; i < start + length; i++) {
+            byte b = bytes[i];
+            if (b < 0 || b == '\r') {
+                return false;
+            }
+            boolean isSpace = b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f';
+            if (!isSpace && space) {
+                words++;
+            }
+            if (b == '\n') {
+                lines++;
+            }
+            space = isSpace;
+        }
+        return lines == separators && words == wordStarts;
+    }
+
+    // Bytes do heap ocupados pelo texto inteiro
+    public long heapBytes() {
+        return bytes.length;
+    }
+
+    public void getChars(int srcBegin, int count, char[] dst, int dstBegin) {
+        for (int i = 0; i < count; i++) {
+            dst[dstBegin + i] = (char) (bytes[start + srcBegin + i] & 0xFF);
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes[start + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return new AsciiText(bytes, start + from, to - from);
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[length];
+        getChars(0, length, chars, 0);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,65 @@
+package com.javanotepad;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+/**
+ * Um padrão do fundo animado, achado pelo {@link java.util.ServiceLoader} em
+ * {@code META-INF/services/com.javanotepad.BackgroundPattern}. A ordem do
+ * arquivo é a ordem do menu Padrões; o primeiro é o padrão inicial.
+ * <p>
+ * {@link #resize}, {@link #update}, {@link #needsFrame} e {@link #capture}
+ * rodam na thread do relógio; {@link #render} roda na EDT e só enxerga o
+ * {@link Frame} capturado. As partículas vêm de {@link Context#getPool()} e
+ * continuam reservadas enquanto outro padrão está na tela.
+ * <p>
+ * Contrato: depois do primeiro quadro num tamanho, {@code update},
+ * {@code capture} e {@code render} não alocam nada. Alocar só é permitido em
+ * {@code resize}, em {@code createFrame} e quando uma configuração muda
+ * (quantidade de partículas, cor, suavização). O {@code PatternAllocationCheck}
+ * de {@code bench/} confere isso para cada padrão encontrado.
+ */
+public interface BackgroundPattern {
+
+    // Nome exibido no menu
+    String getName();
+
+    // Cor usada enquanto o usuário não escolhe outra
+    default Color getDefaultColor() {
+        return Color.WHITE;
+    }
+
+    // O painel passou a ter este tamanho (ou o padrão vai ser exibido pela primeira vez nele)
+    void resize(Context context, int width, int height);
+
+    // Avança a simulação um passo
+    void update(Context context);
+
+    // false se o quadro seria igual ao último capturado e pode ser pulado
+    boolean needsFrame();
+
+    // Instantâneo vazio; o painel mantém três por padrão e os reaproveita
+    Frame createFrame();
+
+    // Copia o estado para frame; alpha (0 a 1) é quanto já passou do próximo passo
+    void capture(Frame frame, float alpha);
+
+    // Desenha frame sobre o fundo preto já pintado
+    void render(Graphics2D g, Frame frame, Color color, boolean antialias);
+
+    // Estado copiado para a EDT; cada padrão usa a sua própria classe
+    interface Frame {
+    }
+
+    // O que o painel oferece aos padrões, lido na thread do relógio
+    interface Context {
+
+        ParticlePool getPool();
+
+        // Quantidade de partículas escolhida pelo usuário (menu Estrelas)
+        int getParticleCount();
+
+        // Parte das partículas que deve continuar ativa, em porcentagem, conforme a qualidade
+        int getActivePercent();
+    }
+}
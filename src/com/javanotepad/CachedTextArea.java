@@ -0,0 +1,149 @@
+package com.javanotepad;
+
+import javax.swing.JTextArea;
+import javax.swing.plaf.TextUI;
+import javax.swing.plaf.basic.BasicTextAreaUI;
+import javax.swing.plaf.synth.SynthTextAreaUI;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.View;
+import java.awt.AlphaComposite;
+import java.awt.Composite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * {@link JTextArea} transparente que guarda o próprio desenho numa imagem.
+ * <p>
+ * O painel animado por trás redesenha a janela a cada quadro e, com ele, os
+ * componentes filhos. Aqui o texto só é desenhado de novo na parte que a
+ * própria área pediu com {@code repaint} (edição, cursor, seleção) ou quando a
+ * parte visível muda; nos outros quadros a imagem guardada é apenas copiada.
+ * <p>
+ * Com a UI do Nimbus ou a básica, o texto é desenhado pela {@link SyntaxView},
+ * que aplica o realce de sintaxe do documento.
+ */
+class CachedTextArea extends JTextArea {
+
+    private final Rectangle dirty = new Rectangle(); // região pedida desde o último desenho
+    private final Rectangle cachedView = new Rectangle();
+    private BufferedImage cache;
+    private double cachedScaleX;
+    private double cachedScaleY;
+    private Runnable paintListener;
+
+    public CachedTextArea(Document doc) {
+        super(doc);
+    }
+
+    // Avisado ao fim de cada pintura (usado para medir a latência de digitação)
+    public void setPaintListener(Runnable listener) {
+        this.paintListener = listener;
+    }
+
+    // Troca a UI padrão por uma igual que cria a SyntaxView; UIs de outros temas ficam como estão
+    @Override
+    public void setUI(TextUI ui) {
+        if (ui != null && ui.getClass() == SynthTextAreaUI.class) {
+            ui = new SynthTextAreaUI() {
+                @Override
+                public View create(Element elem) {
+                    View view = SyntaxView.create(getComponent(), elem);
+                    return view != null ? view : super.create(elem);
+                }
+            };
+        } else if (ui != null && ui.getClass() == BasicTextAreaUI.class) {
+            ui = new BasicTextAreaUI() {
+                @Override
+                public View create(Element elem) {
+                    View view = SyntaxView.create(getComponent(), elem);
+                    return view != null ? view : super.create(elem);
+                }
+            };
+        }
+        super.setUI(ui);
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        if (dirty != null && width > 0 && height > 0) { // null durante o construtor da superclasse
+            synchronized (dirty) {
+                if (dirty.isEmpty()) {
+                    dirty.setBounds(x, y, width, height);
+                } else {
+                    dirty.add(new Rectangle(x, y, width, height));
+                }
+            }
+        }
+        super.repaint(tm, x, y, width, height);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle view = getVisibleRect();
+        if (view.isEmpty() || !(g instanceof Graphics2D)) {
+            super.paintComponent(g);
+            return;
+        }
+        Graphics2D g2d = (Graphics2D) g;
+        AffineTransform transform = g2d.getTransform();
+        double scaleX = transform.getScaleX();
+        double scaleY = transform.getScaleY();
+
+        Rectangle region;
+        synchronized (dirty) {
+            region = dirty.intersection(view);
+            dirty.setBounds(0, 0, 0, 0);
+        }
+        if (cache == null || !view.equals(cachedView) || scaleX != cachedScaleX || scaleY != cachedScaleY) {
+            allocateCache(view, scaleX, scaleY);
+            region = view;
+        }
+        if (!region.isEmpty()) {
+            renderCache(region);
+        }
+        g2d.drawImage(cache, view.x, view.y, view.width, view.height, null);
+        if (paintListener != null) {
+            paintListener.run();
+        }
+    }
+
+    // Imagem na resolução do dispositivo, para o texto não ficar borrado em telas com escala
+    private void allocateCache(Rectangle view, double scaleX, double scaleY) {
+        int width = (int) Math.ceil(view.width * scaleX);
+        int height = (int) Math.ceil(view.height * scaleY);
+        if (cache == null || cache.getWidth() != width || cache.getHeight() != height) {
+            GraphicsConfiguration gc = getGraphicsConfiguration();
+            cache = gc != null
+                    ? gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+                    : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        cachedView.setBounds(view);
+        cachedScaleX = scaleX;
+        cachedScaleY = scaleY;
+    }
+
+    // Apaga e redesenha só a região pedida, em coordenadas do componente
+    private void renderCache(Rectangle region) {
+        Graphics2D g = cache.createGraphics();
+        try {
+            g.scale(cachedScaleX, cachedScaleY);
+            g.translate(-cachedView.x, -cachedView.y);
+            Composite composite = g.getComposite();
+            g.setComposite(AlphaComposite.Clear);
+            g.fill(region);
+            g.setComposite(composite);
+            g.clip(region);
+            g.setFont(getFont());
+            g.setColor(getForeground());
+            super.paintComponent(g);
+        } finally {
+            g.dispose();
+        }
+    }
+}
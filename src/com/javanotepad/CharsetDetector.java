@@ -0,0 +1,130 @@
+package com.javanotepad;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Descobre a codificação de um arquivo de texto pelo começo do conteúdo.
+ * <p>
+ * A ordem é: marca de ordem de bytes (BOM), validação estrita de UTF-8 e, se os
+ * bytes não forem UTF-8 válido, uma codificação de um byte por caractere.
+ */
+final class CharsetDetector {
+
+    public static final int SAMPLE_SIZE = 1024 * 1024;
+
+    // Codificação de um byte por caractere para texto que não é UTF-8
+    static final Charset FALLBACK = fallbackCharset();
+
+    // Codificação detectada e quantos bytes de BOM devem ser pulados
+    static final class Result {
+        final Charset charset;
+        final int bomLength;
+
+        Result(Charset charset, int bomLength) {
+            this.charset = charset;
+            this.bomLength = bomLength;
+        }
+    }
+
+    private CharsetDetector() {
+    }
+
+    // Lê até SAMPLE_SIZE bytes do começo do arquivo
+    public static Result detect(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer sample = ByteBuffer.allocate((int) Math.min(SAMPLE_SIZE, channel.size()));
+            while (sample.hasRemaining() && channel.read(sample) >= 0) {
+                // continua até encher a amostra ou chegar ao fim
+            }
+            sample.flip();
+            return detect(sample, sample.limit() == channel.size());
+        }
+    }
+
+    // Analisa os bytes entre position e limit sem consumi-los;
+    // complete indica que a amostra é o arquivo inteiro
+    public static Result detect(ByteBuffer sample, boolean complete) {
+        int p = sample.position();
+        int remaining = sample.remaining();
+        if (remaining >= 3 && (sample.get(p) & 0xFF) == 0xEF
+                && (sample.get(p + 1) & 0xFF) == 0xBB && (sample.get(p + 2) & 0xFF) == 0xBF) {
+            return new Result(StandardCharsets.UTF_8, 3);
+        }
+        if (remaining >= 2 && (sample.get(p) & 0xFF) == 0xFE && (sample.get(p + 1) & 0xFF) == 0xFF) {
+            return new Result(StandardCharsets.UTF_16BE, 2);
+        }
+        if (remaining >= 2 && (sample.get(p) & 0xFF) == 0xFF && (sample.get(p + 1) & 0xFF) == 0xFE) {
+            return new Result(StandardCharsets.UTF_16LE, 2);
+        }
+        return new Result(isValidUtf8(sample, complete) ? StandardCharsets.UTF_8 : FALLBACK, 0);
+    }
+
+    // Verifica a sintaxe UTF-8, rejeitando formas longas e surrogates;
+    // uma sequência cortada no fim de uma amostra parcial é aceita
+    static boolean isValidUtf8(ByteBuffer bytes, boolean complete) {
+        int limit = bytes.limit();
+        int i = bytes.position();
+        while (i < limit) {
+            int b = bytes.get(i) & 0xFF;
+            if (b < 0x80) {
+                i++;
+                continue;
+            }
+
+            int continuation;
+            int min = 0x80;
+            int max = 0xBF;
+            if (b >= 0xC2 && b <= 0xDF) {
+                continuation = 1;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                continuation = 2;
+                if (b == 0xE0) {
+                    min = 0xA0;
+                } else if (b == 0xED) {
+                    max = 0x9F;
+                }
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                continuation = 3;
+                if (b == 0xF0) {
+                    min = 0x90;
+                } else if (b == 0xF4) {
+                    max = 0x8F;
+                }
+            } else {
+                return false;
+            }
+
+            if (i + continuation >= limit) {
+                return !complete;
+            }
+            int second = bytes.get(i + 1) & 0xFF;
+            if (second < min || second > max) {
+                return false;
+            }
+            for (int k = 2; k <= continuation; k++) {
+                int next = bytes.get(i + k) & 0xFF;
+                if (next < 0x80 || next > 0xBF) {
+                    return false;
+                }
+            }
+            i += continuation + 1;
+        }
+        return true;
+    }
+
+    // Texto que não é UTF-8 quase sempre vem do Windows. US-ASCII (locale POSIX)
+    // também cai aqui: ele perderia os bytes acima de 127 ao salvar o arquivo de volta
+    private static Charset fallbackCharset() {
+        Charset platform = Charset.defaultCharset();
+        if (!StandardCharsets.UTF_8.equals(platform) && !StandardCharsets.US_ASCII.equals(platform)) {
+            return platform;
+        }
+        return Charset.isSupported("windows-1252") ? Charset.forName("windows-1252") : StandardCharsets.ISO_8859_1;
+    }
+}
@@ -0,0 +1,141 @@
+package com.javanotepad;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.CompoundEdit;
+import javax.swing.undo.UndoManager;
+import javax.swing.undo.UndoableEdit;
+
+/**
+ * Desfazer e refazer de um {@link PieceTableDocument}, limitado em bytes em
+ * vez de em número de edições.
+ * <p>
+ * Cada caractere digitado chega como uma edição; as que continuam a mesma
+ * palavra (ou a mesma sequência de Backspace/Delete) são agrupadas e desfeitas
+ * juntas. O limite é a estimativa de {@link PieceTableContent#undoBytes()}: ao
+ * passar dele, as edições mais antigas são descartadas, e a mais recente fica
+ * sempre, mesmo que sozinha passe do limite. Uma edição grande (colar, Substituir
+ * Tudo) é uma operação só na tabela de trechos, tanto ao fazer quanto ao desfazer.
+ */
+final class EditHistory extends UndoManager {
+
+    private final PieceTableContent content;
+    private final long budget;
+
+    public EditHistory(PieceTableDocument document, long budget) {
+        this.content = document.getPieceTable();
+        this.budget = budget;
+        setLimit(-1); // sem limite de quantidade; quem limita é o orçamento
+    }
+
+    // Bytes seguros pelas edições guardadas
+    public long heapBytes() {
+        return content.undoBytes();
+    }
+
+    @Override
+    public synchronized boolean addEdit(UndoableEdit anEdit) {
+        Typing typing = Typing.of(anEdit);
+        boolean added = super.addEdit(typing != null ? typing : anEdit); // o último grupo pode absorvê-lo
+        trimForBudget();
+        return added;
+    }
+
+    @Override
+    public synchronized void undo() throws CannotUndoException {
+        super.undo();
+        trimForBudget(); // desfazer uma inserção passa a guardar o texto dela
+    }
+
+    @Override
+    public synchronized void redo() throws CannotRedoException {
+        super.redo();
+        trimForBudget();
+    }
+
+    // Descarta primeiro o que seria desfeito por último, depois o que seria refeito por último
+    private void trimForBudget() {
+        while (edits.size() > 1 && content.undoBytes() > budget) {
+            int done = edits.lastIndexOf(editToBeUndone()) + 1; // edições que podem ser desfeitas
+            if (done > 1) {
+                trimEdits(0, 0);
+            } else if (edits.size() > done) {
+                trimEdits(edits.size() - 1, edits.size() - 1);
+            } else {
+                break;
+            }
+        }
+    }
+
+    // Caracteres digitados em sequência; absorve o próximo enquanto ele continuar a palavra
+    private static final class Typing extends CompoundEdit {
+        private final boolean insert;
+        private int start; // posição do grupo no texto
+        private int end;
+        private char last; // último caractere digitado
+        private boolean open = true;
+
+        private Typing(UndoableEdit edit, boolean insert, int offset, char typed) {
+            this.insert = insert;
+            this.start = offset;
+            this.end = insert ? offset + 1 : offset;
+            this.last = typed;
+            super.addEdit(edit);
+            end();
+        }
+
+        // Um caractere inserido ou apagado vira um grupo; outras edições ficam como estão
+        static Typing of(UndoableEdit edit) {
+            if (!(edit instanceof DocumentEvent) || ((DocumentEvent) edit).getLength() != 1) {
+                return null;
+            }
+            DocumentEvent event = (DocumentEvent) edit;
+            if (event.getType() == DocumentEvent.EventType.REMOVE) {
+                return new Typing(edit, false, event.getOffset(), '\0');
+            }
+            if (event.getType() != DocumentEvent.EventType.INSERT) {
+                return null;
+            }
+            try {
+                char typed = event.getDocument().getText(event.getOffset(), 1).charAt(0);
+                return new Typing(edit, true, event.getOffset(), typed);
+            } catch (BadLocationException ex) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean addEdit(UndoableEdit anEdit) {
+            if (!open || !(anEdit instanceof Typing)) {
+                open = false;
+                return false;
+            }
+            Typing next = (Typing) anEdit;
+            boolean follows;
+            if (insert) {
+                // Um espaço fecha a palavra; o próximo caractere que não é espaço começa outra
+                follows = next.insert && next.start == end
+                        && !(Character.isWhitespace(last) && !Character.isWhitespace(next.last));
+            } else {
+                follows = !next.insert && (next.start == start - 1 || next.start == start); // Backspace ou Delete
+            }
+            if (!follows) {
+                open = false;
+                return false;
+            }
+            edits.addAll(next.edits);
+            start = Math.min(start, next.start);
+            end = next.end;
+            last = next.last;
+            return true;
+        }
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            open = false; // refazer e digitar de novo começa outro grupo
+        }
+    }
+}
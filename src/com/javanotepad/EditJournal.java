@@ -0,0 +1,507 @@
+package com.javanotepad;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Diário das edições ainda não salvas, para recuperá-las se o programa morrer.
+ * <p>
+ * Cada inserção ou remoção do documento vira um registro binário curto que é
+ * acrescentado ao fim de um arquivo em {@code ~/.javanotepad/journal}. Na EDT
+ * os registros só são copiados para um buffer; uma thread de fundo os grava em
+ * lote a cada {@value #DEFAULT_COMMIT_MS} ms, com um único {@code force()} por
+ * lote, então a digitação nunca espera pelo disco. O cabeçalho identifica o
+ * arquivo de origem pelo caminho, tamanho e data de modificação. Depois de um
+ * salvamento o diário é compactado: passa a partir do arquivo salvo e guarda
+ * só as edições feitas desde o instantâneo gravado.
+ * <p>
+ * Diários que sobraram de uma execução anterior são achados por
+ * {@link #findOrphans()} e reaplicados com {@link Recovery}.
+ */
+final class EditJournal implements DocumentListener {
+
+    static final Path DIRECTORY = Paths.get(System.getProperty("user.home"), ".javanotepad", "journal");
+    private static final String PREFIX = "edit-";
+    private static final String SUFFIX = ".journal";
+    private static final int MAGIC = 0x4A4E4A31; // "JNJ1"
+    private static final byte INSERT = 1;
+    private static final byte REMOVE = 2;
+    private static final int DEFAULT_COMMIT_MS = 200;
+    // Intervalo do commit em grupo: é também o máximo de digitação que uma queda pode perder
+    private static final long COMMIT_MS = Long.getLong("javanotepad.journalCommitMs", DEFAULT_COMMIT_MS);
+    private static final int MAX_SPARE = 1024 * 1024; // buffers maiores que isto não são reaproveitados
+
+    // Uma thread para todos os diários: gravações, compactações e remoções ficam em ordem
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "EditJournal-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Document document; // null enquanto o texto da aba está fora da memória
+    private final Segment segment = new Segment(); // texto inserido, lido sem cópia
+    private final CRC32C crc = new CRC32C();
+
+    // Registros ainda não gravados; guardados por this
+    private byte[] pending = new byte[256];
+    private int pendingLength;
+    private byte[] spare = new byte[256];
+    private long recorded; // bytes de registro produzidos desde a criação
+    private boolean commitScheduled;
+    private boolean closed;
+    private volatile boolean failed; // depois de um erro de E/S o diário para de registrar
+
+    // Estado do arquivo, usado só na thread de gravação
+    private Path original;
+    private long baseSize;
+    private long baseModified;
+    private Path file; // criado na primeira gravação
+    private FileChannel channel;
+    private FileLock lock;
+    private long headerLength;
+    private long fileBase; // valor de recorded no primeiro registro do arquivo
+    private long written; // bytes de registro já entregues ao arquivo
+    private boolean finished;
+
+    // Passa a registrar as edições de document; original é o arquivo de onde
+    // ele foi lido, ou null para um documento novo
+    public EditJournal(Document document, Path original) {
+        this.document = document;
+        segment.setPartialReturn(false);
+        document.addDocumentListener(this);
+        WRITER.execute(() -> readBase(original));
+    }
+
+    // Para de acompanhar o documento sem mexer no diário, enquanto o texto está fora da memória
+    public void detach() {
+        if (document != null) {
+            document.removeDocumentListener(this);
+            document = null;
+        }
+    }
+
+    // Volta a acompanhar o documento recarregado, que tem o mesmo texto de quando foi desligado
+    public void attach(Document document) {
+        detach();
+        this.document = document;
+        document.addDocumentListener(this);
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        if (failed) {
+            return;
+        }
+        try {
+            e.getDocument().getText(e.getOffset(), e.getLength(), segment);
+        } catch (BadLocationException ex) {
+            throw new IllegalStateException(ex);
+        }
+        append(INSERT, e.getOffset(), e.getLength(), segment);
+        segment.array = null; // o texto colado pode sair do documento e só o desfazer segurar o array
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        if (!failed) {
+            append(REMOVE, e.getOffset(), e.getLength(), null);
+        }
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+    }
+
+    // Posição atual do diário; passada a compact() depois de salvar o texto deste instante
+    public synchronized long mark() {
+        return recorded;
+    }
+
+    // O texto até mark está gravado em saved: as edições anteriores saem do diário
+    public void compact(long mark, Path saved) {
+        WRITER.execute(() -> compactTo(mark, saved));
+    }
+
+    // Grava já o que estiver pendente, sem esperar o próximo lote
+    public void flush() {
+        WRITER.execute(this::commit);
+    }
+
+    // Para de registrar; o arquivo só fica no disco se keep for verdadeiro.
+    // O Future termina quando tudo estiver gravado (ou apagado).
+    public Future<?> close(boolean keep) {
+        detach();
+        synchronized (this) {
+            closed = true;
+        }
+        return WRITER.submit(() -> {
+            commit();
+            finished = true;
+            release(keep);
+        });
+    }
+
+    private synchronized void append(byte type, int offset, int length, Segment text) {
+        if (closed) {
+            return;
+        }
+        int size = 1 + 5 + 5 + (text != null ? text.count * 2 : 0) + 4;
+        if (pendingLength + size > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + size));
+        }
+        int start = pendingLength;
+        pending[pendingLength++] = type;
+        putVarint(offset);
+        putVarint(length);
+        if (text != null) {
+            char[] chars = text.array;
+            for (int i = text.offset, end = text.offset + text.count; i < end; i++) {
+                char c = chars[i];
+                pending[pendingLength++] = (byte) (c >>> 8);
+                pending[pendingLength++] = (byte) c;
+            }
+        }
+        crc.reset();
+        crc.update(pending, start, pendingLength - start);
+        int checksum = (int) crc.getValue();
+        pending[pendingLength++] = (byte) (checksum >>> 24);
+        pending[pendingLength++] = (byte) (checksum >>> 16);
+        pending[pendingLength++] = (byte) (checksum >>> 8);
+        pending[pendingLength++] = (byte) checksum;
+        recorded += pendingLength - start;
+
+        if (!commitScheduled) {
+            commitScheduled = true;
+            WRITER.schedule(this::commit, COMMIT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            pending[pendingLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        pending[pendingLength++] = (byte) value;
+    }
+
+    // --- Thread de gravação ---
+
+    private void readBase(Path path) {
+        original = path;
+        baseSize = -1;
+        baseModified = -1;
+        if (path != null) {
+            try {
+                baseSize = Files.size(path);
+                baseModified = Files.getLastModifiedTime(path).toMillis();
+            } catch (IOException e) {
+                // sem identidade a recuperação recusa o arquivo, mas o registro continua
+            }
+        }
+    }
+
+    // Grava o lote pendente com um único force()
+    private void commit() {
+        byte[] batch;
+        int length;
+        synchronized (this) {
+            commitScheduled = false;
+            batch = pending;
+            length = pendingLength;
+            pending = spare;
+            pendingLength = 0;
+        }
+        try {
+            if (length > 0 && !failed && !finished) {
+                if (channel == null) {
+                    create(written);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(batch, 0, length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                written += length;
+            }
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            synchronized (this) {
+                spare = batch.length <= MAX_SPARE ? batch : new byte[256];
+            }
+        }
+    }
+
+    private void compactTo(long mark, Path saved) {
+        commit();
+        if (failed || finished) {
+            return;
+        }
+        FileChannel old = channel;
+        Path oldFile = file;
+        long keepFrom = headerLength + (mark - fileBase);
+        try {
+            readBase(saved);
+            channel = null;
+            file = null;
+            lock = null;
+            // Um arquivo novo em vez de reescrever o antigo: se cair no meio,
+            // o antigo não bate mais com o arquivo salvo e é ignorado
+            if (written > mark && old != null) {
+                create(mark);
+                long end = old.size();
+                for (long position = keepFrom; position < end; ) {
+                    position += old.transferTo(position, end - position, channel);
+                }
+                channel.force(false);
+            } else {
+                fileBase = mark;
+            }
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            if (old != null) {
+                closeQuietly(old);
+                deleteQuietly(oldFile);
+            }
+        }
+    }
+
+    private void create(long base) throws IOException {
+        Files.createDirectories(DIRECTORY);
+        file = Files.createTempFile(DIRECTORY, PREFIX, SUFFIX);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lock = channel.tryLock(); // avisa outras instâncias de que este diário está em uso
+        ByteBuffer header = ByteBuffer.wrap(header());
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        headerLength = channel.position();
+        fileBase = base;
+    }
+
+    private byte[] header() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeUTF(original != null ? original.toAbsolutePath().toString() : "");
+        out.writeLong(baseSize);
+        out.writeLong(baseModified);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void release(boolean keep) {
+        if (channel != null) {
+            closeQuietly(channel);
+            if (!keep) {
+                deleteQuietly(file);
+            }
+            channel = null;
+            file = null;
+            lock = null;
+        }
+    }
+
+    private void fail(IOException e) {
+        failed = true;
+        System.err.println("Diário de edições desativado: " + e.getMessage());
+        release(false);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close(); // libera também a trava
+        } catch (IOException e) {
+            // nada a fazer
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Não foi possível apagar o diário " + path + ": " + e.getMessage());
+        }
+    }
+
+    // --- Recuperação ---
+
+    // Diários deixados por execuções que terminaram sem fechá-los, do mais novo ao mais antigo.
+    // Os que estão travados pertencem a outra instância aberta e ficam de fora.
+    static List<Path> findOrphans() {
+        List<Path> orphans = new ArrayList<>();
+        if (!Files.isDirectory(DIRECTORY)) {
+            return orphans;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DIRECTORY, PREFIX + "*" + SUFFIX)) {
+            for (Path path : files) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    if (channel.tryLock() != null) {
+                        orphans.add(path);
+                    }
+                } catch (IOException | OverlappingFileLockException e) {
+                    // em uso ou inacessível
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Não foi possível procurar diários de edição: " + e.getMessage());
+        }
+        orphans.sort(Comparator.comparingLong(EditJournal::lastModified).reversed());
+        return orphans;
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Conteúdo de um diário lido do disco. Só os registros íntegros são
+     * aproveitados: a leitura para no primeiro que estiver incompleto ou com a
+     * soma de verificação errada, que é o que sobra de uma gravação cortada.
+     */
+    static final class Recovery {
+
+        private final Path journal;
+        private final Path original; // null: documento novo
+        private final long baseSize;
+        private final long baseModified;
+        private final byte[] records;
+        private final int start;
+        private final int end; // fim do último registro íntegro
+        private int editCount;
+
+        private Recovery(Path journal) throws IOException {
+            this.journal = journal;
+            records = Files.readAllBytes(journal);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(records));
+            if (records.length < 4 || in.readInt() != MAGIC) {
+                throw new IOException("Diário de edições inválido: " + journal);
+            }
+            String path = in.readUTF();
+            original = path.isEmpty() ? null : Paths.get(path);
+            baseSize = in.readLong();
+            baseModified = in.readLong();
+            start = records.length - in.available();
+            CRC32C crc = new CRC32C();
+            int position = start;
+            for (int next; position < records.length && (next = recordEnd(position, crc)) > 0; position = next) {
+                editCount++;
+            }
+            end = position;
+        }
+
+        public static Recovery read(Path journal) throws IOException {
+            return new Recovery(journal);
+        }
+
+        public Path getOriginal() {
+            return original;
+        }
+
+        public int getEditCount() {
+            return editCount;
+        }
+
+        // O arquivo de origem ainda é o mesmo sobre o qual as edições foram feitas
+        public boolean matchesOriginal() {
+            try {
+                return original != null && baseSize >= 0
+                        && Files.size(original) == baseSize
+                        && Files.getLastModifiedTime(original).toMillis() == baseModified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        // Reaplica as edições, na ordem, sobre o texto de origem
+        public void replay(Document document) throws BadLocationException {
+            for (int position = start; position < end; ) {
+                byte type = records[position];
+                long offset = readVarint(position + 1);
+                long length = readVarint((int) (offset >>> 32));
+                position = (int) (length >>> 32);
+                int chars = (int) length;
+                if (type == INSERT) {
+                    char[] text = new char[chars];
+                    for (int i = 0; i < chars; i++, position += 2) {
+                        text[i] = (char) (((records[position] & 0xFF) << 8) | (records[position + 1] & 0xFF));
+                    }
+                    document.insertString((int) offset, new String(text), null);
+                } else {
+                    document.remove((int) offset, chars);
+                }
+                position += 4;
+            }
+        }
+
+        // Fim do registro que começa em position, ou -1 se ele estiver cortado ou corrompido
+        private int recordEnd(int position, CRC32C crc) {
+            byte type = records[position];
+            if (type != INSERT && type != REMOVE) {
+                return -1;
+            }
+            long offset = readVarint(position + 1);
+            long length = offset < 0 ? -1 : readVarint((int) (offset >>> 32));
+            if (length < 0 || (int) offset < 0 || (int) length < 0) {
+                return -1;
+            }
+            long textEnd = (length >>> 32) + (type == INSERT ? (int) length * 2L : 0);
+            if (textEnd + 4 > records.length) {
+                return -1;
+            }
+            crc.reset();
+            crc.update(records, position, (int) textEnd - position);
+            return (int) crc.getValue() == ByteBuffer.wrap(records, (int) textEnd, 4).getInt()
+                    ? (int) textEnd + 4 : -1;
+        }
+
+        // Valor nos 32 bits baixos e posição seguinte nos altos; -1 se o número estiver cortado
+        private long readVarint(int position) {
+            int value = 0;
+            for (int shift = 0; shift < 35 && position < records.length; shift += 7) {
+                byte b = records[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return ((long) position << 32) | (value & 0xFFFFFFFFL);
+                }
+            }
+            return -1;
+        }
+
+        // Apaga o diário; feito na thread de gravação, depois do que já estiver na fila
+        public void discard() {
+            WRITER.execute(() -> deleteQuietly(journal));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.javanotepad;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+import java.awt.Point;
+import java.nio.file.Path;
+
+/**
+ * Um documento aberto numa aba do {@link MainFrame}.
+ * <p>
+ * As abas ativas ou usadas há pouco mantêm o documento inteiro na memória.
+ * Quando o orçamento de memória das abas estoura, as usadas há mais tempo são
+ * despejadas e sobra só este objeto, com o caminho, o cursor e a rolagem. Uma
+ * aba sem alterações é relida do arquivo ao voltar; uma com alterações não
+ * salvas tem antes o texto gravado num arquivo temporário ({@link #spill}).
+ */
+final class EditorTab {
+
+    private static final int LINE_BYTES = 160; // elemento de linha, suas duas posições e a marca de cada uma (medido)
+    private static final long UNDO_BUDGET = Long.getLong("javanotepad.undoBudget", Runtime.getRuntime().maxMemory() / 16);
+
+    Path path;           // arquivo de origem; null para documentos novos
+    String name;         // nome exibido; null para documentos novos
+    TextStatistics stats;
+    EditJournal journal;
+    FileLoader loader;   // carregando (abertura ou volta de um despejo)
+    boolean loaded;      // já teve o texto na memória alguma vez
+    FileSaver saver;
+    Path pendingSave;    // salvamento pedido enquanto outro estava em andamento
+    boolean closeAfterSave; // Fechar Aba pediu para salvar antes
+    LargeFileViewer viewer;
+    LogFollower follower; // modo Seguir: o texto é o final do arquivo, acrescido do que for escrito nele
+    long lastUsed;
+    SessionSnapshot.FileInfo fileInfo; // como o arquivo ASCII foi lido, para relê-lo sem varrer; null se não foi
+    boolean restored;    // reaberta da sessão anterior e ainda não carregada
+
+    // Cursor e rolagem guardados quando a aba deixa de ser exibida
+    int caret;
+    Point viewPosition = new Point();
+
+    // Texto despejado com alterações: o arquivo temporário e as propriedades do documento
+    FileSaver spiller;
+    Path spill;
+    Object charset;
+    Object lineEnding;
+    Object bom;
+    Object lossy;
+    Object mixedLineEndings;
+
+    private Document document; // null enquanto despejada ou carregando
+    private EditHistory history; // desfazer do documento; some junto com ele num despejo
+    private final Runnable onModifiedChanged;
+
+    // Versão do documento: muda a cada edição; igual a savedVersion quando não há nada a salvar
+    private long version;
+    private long savedVersion;
+    private final DocumentListener versionTracker = new DocumentListener() {
+        @Override
+        public void insertUpdate(DocumentEvent e) {
+            edited();
+        }
+
+        @Override
+        public void removeUpdate(DocumentEvent e) {
+            edited();
+        }
+
+        @Override
+        public void changedUpdate(DocumentEvent e) {
+        }
+    };
+
+    // onModifiedChanged roda quando a aba passa a ter (ou deixa de ter) alterações não salvas
+    public EditorTab(Runnable onModifiedChanged) {
+        this.onModifiedChanged = onModifiedChanged;
+    }
+
+    public Document getDocument() {
+        return document;
+    }
+
+    // Desfazer e refazer do documento; null sem documento ou no modo Seguir
+    public EditHistory getHistory() {
+        return history;
+    }
+
+    public void setDocument(Document document) {
+        if (this.document != null) {
+            this.document.removeDocumentListener(versionTracker);
+        }
+        setUndoable(false);
+        this.document = document;
+        if (document != null) {
+            document.addDocumentListener(versionTracker);
+        }
+        setUndoable(follower == null);
+    }
+
+    // Liga ou desliga o desfazer; desligar solta as edições guardadas (o texto seguido não é editado)
+    public void setUndoable(boolean undoable) {
+        if (!undoable && history != null) {
+            document.removeUndoableEditListener(history);
+            history.discardAllEdits();
+            history = null;
+        } else if (undoable && history == null && document instanceof PieceTableDocument) {
+            history = new EditHistory((PieceTableDocument) document, UNDO_BUDGET);
+            document.addUndoableEditListener(history);
+        }
+    }
+
+    // Solta o texto; o que for preciso para reabri-lo já deve estar guardado
+    public void release() {
+        setDocument(null);
+        stats = null;
+    }
+
+    public String getDisplayName() {
+        return name != null ? name : "Novo Documento";
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isModified() {
+        return version != savedVersion;
+    }
+
+    // O documento passa a ser considerado igual ao do disco
+    public void markClean() {
+        savedVersion = ++version;
+        onModifiedChanged.run();
+    }
+
+    // A versão indicada foi gravada; edições feitas depois continuam pendentes
+    public void markSaved(long savedVersion) {
+        this.savedVersion = savedVersion;
+        onModifiedChanged.run();
+    }
+
+    // Aba nova, sem nome, que nunca recebeu texto: pode dar lugar a um arquivo aberto
+    public boolean isPristine() {
+        return path == null && name == null && viewer == null && loader == null
+                && document != null && document.getLength() == 0 && !isModified();
+    }
+
+    // Pode ser despejada agora: está na memória e nada em segundo plano depende do documento
+    public boolean isEvictable() {
+        return document != null && loader == null && saver == null && spiller == null && viewer == null
+                && follower == null;
+    }
+
+    // Estimativa do heap ocupado pelo documento
+    public long estimatedBytes() {
+        if (document == null) {
+            return 0;
+        }
+        long lines = document.getDefaultRootElement().getElementCount();
+        if (document instanceof PieceTableDocument) {
+            PieceTableDocument pieces = (PieceTableDocument) document;
+            return pieces.getPieceTable().heapBytes() + pieces.getPieceTable().undoBytes()
+                    + pieces.getLineIndex().heapBytes() + lines * LINE_BYTES;
+        }
+        return document.getLength() * 2L + lines * LINE_BYTES;
+    }
+
+    private void edited() {
+        boolean wasSaved = !isModified();
+        version++;
+        if (wasSaved) {
+            onModifiedChanged.run(); // só quando o asterisco aparece
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.javanotepad;
+
+import javax.swing.SwingWorker;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultEditorKit;
+import javax.swing.text.Document;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Lê um arquivo de texto fora da EDT em blocos grandes de um {@link FileChannel}
+ * e entrega o texto decodificado ao {@link Document} em lotes, na EDT.
+ * <p>
+ * A codificação é detectada pelo {@link CharsetDetector} e o texto é
+ * decodificado direto do buffer de bytes. Dentro do documento as quebras de
+ * linha são sempre {@code '\n'}, como no restante do Swing; o estilo original
+ * fica na propriedade {@link DefaultEditorKit#EndOfLineStringProperty}, a
+ * codificação em {@link #CHARSET_PROPERTY} e a presença de BOM em
+ * {@link #BOM_PROPERTY}, para o {@link FileSaver} gravar o arquivo igual.
+ * <p>
+ * A detecção só olha o começo do arquivo, então a decodificação é estrita: se
+ * um byte mais adiante não servir na codificação escolhida, a leitura recomeça
+ * do início com a codificação de um byte do detector e, por último, com
+ * ISO-8859-1, que aceita qualquer byte e o grava de volta igual. Com BOM a
+ * codificação é certa; os bytes inválidos viram U+FFFD e o documento recebe
+ * {@link #LOSSY_PROPERTY}, para o usuário ser avisado antes de salvar.
+ * <p>
+ * Um arquivo que mistura estilos de quebra de linha é gravado com o mais
+ * frequente; as contagens de cada um ficam em {@link #MIXED_LINE_ENDINGS_PROPERTY}
+ * para o usuário confirmar antes de o arquivo ser uniformizado.
+ * <p>
+ * Quando o arquivo já está exatamente no formato do documento (ASCII, quebras
+ * {@code '\n'}), os bytes lidos viram o buffer original de um
+ * {@link PieceTableDocument} novo ({@link AsciiText}), sem decodificação nem
+ * conversão para {@code char}. Se o arquivo tem o tamanho e a data guardados na
+ * {@link SessionSnapshot} e os bytes conferem com as contagens guardadas, as
+ * linhas e contagens são reaproveitadas em vez de recalculadas.
+ * <p>
+ * O progresso (0 a 100) é publicado pela propriedade {@code "progress"} e o
+ * carregamento pode ser interrompido com {@link #cancel(boolean)}.
+ */
+class FileLoader extends SwingWorker<Document, String> {
+
+    public static final String CHARSET_PROPERTY = "javanotepad.charset";
+    public static final String BOM_PROPERTY = "javanotepad.bom";
+    public static final String LOSSY_PROPERTY = "javanotepad.lossy";
+    public static final String MIXED_LINE_ENDINGS_PROPERTY = "javanotepad.mixedLineEndings";
+
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024; // bytes por leitura
+    private static final int MAX_PENDING_CHUNKS = 4; // limita o texto à espera da EDT
+    private static final Set<String> ASCII_COMPATIBLE
+            = Set.of("UTF-8", "US-ASCII", "ISO-8859-1", "windows-1252");
+    // Publicado para a EDT esvaziar o documento quando a leitura recomeça (comparado por referência)
+    private static final String RESTART = new String();
+
+    private final Path path;
+    private final Document document;
+    private final Consumer<FileLoader> onFinished;
+    private final Semaphore pending = new Semaphore(MAX_PENDING_CHUNKS);
+
+    private char[] out = new char[0];
+    private boolean pendingCarriageReturn; // bloco anterior terminou em '\r'
+    private long crlfCount;
+    private long lfCount;
+    private long crCount;
+    private volatile TextStatistics statistics; // contagens do documento lido como ASCII
+    private final SessionSnapshot.FileInfo known; // como o arquivo estava da última vez, ou null
+    private volatile SessionSnapshot.FileInfo info; // como o arquivo ASCII foi lido agora
+
+    public FileLoader(Path path, Document document, Consumer<FileLoader> onFinished) {
+        this(path, document, onFinished, null);
+    }
+
+    public FileLoader(Path path, Document document, Consumer<FileLoader> onFinished, SessionSnapshot.FileInfo known) {
+        this.path = path;
+        this.document = document;
+        this.onFinished = onFinished;
+        this.known = known;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Contagens já feitas fora da EDT, ou null se o documento recebido foi preenchido
+    public TextStatistics getStatistics() {
+        return statistics;
+    }
+
+    // Tamanho, data e contagens do arquivo lido como ASCII, ou null se o documento recebido foi preenchido
+    public SessionSnapshot.FileInfo getFileInfo() {
+        return info;
+    }
+
+    @Override
+    protected Document doInBackground() throws Exception {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long modified = Files.getLastModifiedTime(path).toMillis(); // antes de ler: uma mudança depois invalida
+            if (known != null && known.size == size && known.modified == modified && size < Integer.MAX_VALUE) {
+                Document plain = readKnown(channel, size);
+                if (plain != null) {
+                    setProgress(100);
+                    return plain;
+                }
+            }
+            ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            boolean eof = fill(channel, bytes);
+
+            CharsetDetector.Result detected = CharsetDetector.detect(bytes, eof);
+            Charset charset = detected.charset;
+            bytes.position(detected.bomLength);
+
+            Document plain = readIfPlain(channel, detected, bytes, size);
+            if (plain != null) {
+                statistics = TextStatistics.countOf(plain);
+                info = new SessionSnapshot.FileInfo(size, modified, charset.name(),
+                        statistics.getSeparatorCount(), statistics.getWordStartCount());
+                setProgress(100);
+                return plain;
+            }
+
+            CharsetDecoder decoder = charset.newDecoder(); // REPORT: nenhum byte é trocado sem aviso
+            boolean lossy = false;
+            CharBuffer chars = CharBuffer.allocate((int) (CHUNK_SIZE * decoder.maxCharsPerByte()) + 16);
+            out = new char[chars.capacity()];
+
+            while (!isCancelled()) {
+                if (decoder.decode(bytes, chars, eof).isError()) {
+                    if (detected.bomLength == 0) {
+                        // A amostra enganou: recomeça do início com uma codificação que aceite o arquivo
+                        charset = fallbackAfter(charset);
+                        decoder = charset.newDecoder();
+                        pending.acquire();
+                        publish(RESTART);
+                        pendingCarriageReturn = false;
+                        crlfCount = lfCount = crCount = 0;
+                        chars.clear();
+                        bytes.clear();
+                        channel.position(0);
+                        eof = fill(channel, bytes);
+                    } else {
+                        // Com BOM a codificação é certa: os bytes inválidos viram U+FFFD
+                        lossy = true;
+                        decoder.onMalformedInput(CodingErrorAction.REPLACE)
+                                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                    }
+                    continue;
+                }
+                if (eof) {
+                    decoder.flush(chars);
+                }
+                chars.flip();
+                String text = convertLineEndings(chars, eof);
+                chars.clear();
+
+                if (!text.isEmpty()) {
+                    pending.acquire(); // espera a EDT consumir os blocos anteriores
+                    publish(text);
+                }
+                setProgress(size == 0 ? 100 : (int) Math.min(100, channel.position() * 100 / size));
+                if (eof) {
+                    break;
+                }
+                bytes.compact();
+                eof = fill(channel, bytes);
+            }
+
+            document.putProperty(CHARSET_PROPERTY, charset);
+            document.putProperty(BOM_PROPERTY, detected.bomLength > 0);
+            if (lossy) {
+                document.putProperty(LOSSY_PROPERTY, Boolean.TRUE);
+            }
+            String lineEnding = dominantLineEnding();
+            if (lineEnding != null) {
+                document.putProperty(DefaultEditorKit.EndOfLineStringProperty, lineEnding);
+            }
+            document.putProperty(MIXED_LINE_ENDINGS_PROPERTY, mixedLineEndings());
+        }
+        // done() só deve rodar depois que a EDT inseriu todos os blocos
+        pending.acquire(MAX_PENDING_CHUNKS);
+        return document;
+    }
+
+    // Lê até encher o buffer ou chegar ao fim; devolve o buffer pronto para leitura
+    private static boolean fill(FileChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes) < 0) {
+                bytes.flip();
+                return true;
+            }
+        }
+        bytes.flip();
+        return false;
+    }
+
+    // Lê o arquivo inteiro em blocos de CHUNK_SIZE, publicando o progresso entre eles; null se
+    // cancelado. Lê por posição para não mexer na posição do canal, usada depois pela decodificação.
+    private AsciiText readAll(FileChannel channel, long size) throws IOException {
+        byte[] data = new byte[(int) size];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.position() < data.length) {
+            if (isCancelled()) {
+                return null;
+            }
+            buffer.limit((int) Math.min(data.length, buffer.position() + (long) CHUNK_SIZE));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, buffer.position()) < 0) {
+                    return AsciiText.of(data, buffer.position()); // truncado durante a leitura
+                }
+            }
+            setProgress((int) (buffer.position() * 100L / data.length));
+        }
+        return AsciiText.of(data, data.length);
+    }
+
+    // Próxima codificação a tentar depois de um byte inválido em charset; ISO-8859-1 nunca falha
+    private static Charset fallbackAfter(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) ? CharsetDetector.FALLBACK : StandardCharsets.ISO_8859_1;
+    }
+
+    // Usa os bytes do arquivo como estão se a decodificação não mudaria nenhum caractere
+    private Document readIfPlain(FileChannel channel, CharsetDetector.Result detected, ByteBuffer head, long size)
+            throws IOException {
+        if (detected.bomLength > 0 || !ASCII_COMPATIBLE.contains(detected.charset.name())
+                || size >= Integer.MAX_VALUE) {
+            return null;
+        }
+        // Descarta cedo pela amostra já lida, antes de percorrer o arquivo inteiro
+        for (int i = head.position(); i < head.limit(); i++) {
+            byte b = head.get(i);
+            if (b < 0 || b == '\r') {
+                return null;
+            }
+        }
+        AsciiText text = readAll(channel, size);
+        if (text == null || !text.isPlainAscii()) {
+            return null;
+        }
+        PieceTableDocument plain = new PieceTableDocument(new PieceTableContent(text));
+        plain.putProperty(CHARSET_PROPERTY, detected.charset);
+        if (plain.getDefaultRootElement().getElementCount() > 1) {
+            plain.putProperty(DefaultEditorKit.EndOfLineStringProperty, "\n");
+        }
+        return plain;
+    }
+
+    // Relê o arquivo como ele foi lido da última vez. Tamanho e data iguais não bastam (o
+    // arquivo pode ter sido reescrito no mesmo milissegundo, ou a data restaurada): uma passada
+    // pelos bytes confere que ele ainda é ASCII puro com as mesmas contagens, e a de quebras
+    // confirma os inícios de linha guardados. null se o arquivo mudou ou a leitura foi cancelada.
+    private Document readKnown(FileChannel channel, long size) throws IOException {
+        AsciiText text = readAll(channel, size);
+        if (text == null || !text.hasCounts(known.separators, known.wordStarts)) {
+            return null;
+        }
+        PieceTableDocument plain = known.lineStarts != null && known.lineStarts.length == known.separators + 1
+                ? new PieceTableDocument(text, known.lineStarts)
+                : new PieceTableDocument(new PieceTableContent(text));
+        plain.putProperty(CHARSET_PROPERTY, Charset.forName(known.charset));
+        if (plain.getDefaultRootElement().getElementCount() > 1) {
+            plain.putProperty(DefaultEditorKit.EndOfLineStringProperty, "\n");
+        }
+        statistics = TextStatistics.of(plain, known.separators, known.wordStarts);
+        // Sem os inícios de linha: a partir de agora eles estão no índice do documento
+        info = new SessionSnapshot.FileInfo(known.size, known.modified, known.charset,
+                known.separators, known.wordStarts);
+        return plain;
+    }
+
+    // Troca "\r\n" e "\r" por '\n', contando cada estilo encontrado
+    private String convertLineEndings(CharBuffer chars, boolean eof) {
+        char[] in = chars.array();
+        int end = chars.arrayOffset() + chars.limit();
+        int n = 0;
+        for (int i = chars.arrayOffset() + chars.position(); i < end; i++) {
+            char c = in[i];
+            if (pendingCarriageReturn) {
+                pendingCarriageReturn = false;
+                if (c == '\n') {
+                    crlfCount++;
+                    continue;
+                }
+                crCount++;
+            }
+            if (c == '\r') {
+                out[n++] = '\n';
+                pendingCarriageReturn = true;
+            } else {
+                if (c == '\n') {
+                    lfCount++;
+                }
+                out[n++] = c;
+            }
+        }
+        if (eof && pendingCarriageReturn) {
+            pendingCarriageReturn = false;
+            crCount++;
+        }
+        return new String(out, 0, n);
+    }
+
+    // Estilo de quebra mais frequente, ou null se o arquivo não tem quebras
+    private String dominantLineEnding() {
+        if (crlfCount == 0 && lfCount == 0 && crCount == 0) {
+            return null;
+        }
+        if (crlfCount >= lfCount && crlfCount >= crCount) {
+            return "\r\n";
+        }
+        return lfCount >= crCount ? "\n" : "\r";
+    }
+
+    // Quantas quebras de cada estilo, como "120 CRLF, 3 LF", se houver mais de um; senão null
+    private String mixedLineEndings() {
+        StringBuilder counts = new StringBuilder();
+        int styles = 0;
+        long[] count = {crlfCount, lfCount, crCount};
+        String[] name = {"CRLF", "LF", "CR"};
+        for (int i = 0; i < count.length; i++) {
+            if (count[i] > 0) {
+                counts.append(styles++ > 0 ? ", " : "").append(count[i]).append(' ').append(name[i]);
+            }
+        }
+        return styles > 1 ? counts.toString() : null;
+    }
+
+    @Override
+    protected void process(List<String> chunks) {
+        for (String chunk : chunks) {
+            try {
+                if (isCancelled()) {
+                    continue;
+                }
+                if (chunk == RESTART) {
+                    document.remove(0, document.getLength());
+                } else {
+                    document.insertString(document.getLength(), chunk, null);
+                }
+            } catch (BadLocationException e) {
+                // Não ocorre: o texto é sempre acrescentado no fim ou removido inteiro
+            } finally {
+                pending.release();
+            }
+        }
+    }
+
+    @Override
+    protected void done() {
+        onFinished.accept(this);
+    }
+}
@@ -0,0 +1,225 @@
+package com.javanotepad;
+
+import javax.swing.SwingWorker;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Grava um {@link TextSnapshot} em arquivo fora da EDT.
+ * <p>
+ * O texto é codificado em blocos direto em {@link ByteBuffer}s diretos
+ * reaproveitados entre gravações e escrito por um {@link FileChannel} num
+ * arquivo temporário na mesma pasta, que só no fim substitui o destino com uma
+ * renomeação atômica: se algo falhar no meio, o arquivo anterior continua
+ * intacto. As quebras de linha {@code '\n'} do documento voltam a ser as do
+ * arquivo original e a codificação é a mesma com que ele foi lido.
+ * <p>
+ * Um caractere que não existe nessa codificação (um "€" num arquivo
+ * ISO-8859-1, por exemplo) faz a gravação falhar com
+ * {@link UnmappableTextException} antes de o destino ser tocado, em vez de
+ * virar '?' no arquivo.
+ */
+class FileSaver extends SwingWorker<Path, Void> {
+
+    private static final int CHUNK_CHARS = 1024 * 1024; // caracteres lidos do instantâneo por vez
+    private static final int BUFFER_SIZE = 4 * 1024 * 1024; // bytes por escrita
+    private static final BlockingQueue<ByteBuffer> BUFFERS = new ArrayBlockingQueue<>(2);
+
+    // O texto tem caracteres que a codificação escolhida não representa
+    static final class UnmappableTextException extends CharacterCodingException {
+        private static final long serialVersionUID = 1L;
+
+        private final String characters;
+        private final Charset charset;
+
+        UnmappableTextException(String characters, Charset charset) {
+            this.characters = characters;
+            this.charset = charset;
+        }
+
+        @Override
+        public String getMessage() {
+            int codePoint = characters.codePointAt(0);
+            return String.format("o caractere \"%s\" (U+%04X) não existe em %s",
+                    characters.length() == 1 && Character.isSurrogate(characters.charAt(0)) ? "?" : characters, codePoint, charset.name());
+        }
+    }
+
+    private final TextSnapshot text;
+    private final Path target;
+    private final Charset charset;
+    private final String lineEnding;
+    private final boolean bom;
+    private final long version;
+    private final Consumer<FileSaver> onFinished;
+
+    // version identifica o estado do documento no instantâneo, para quem salvou saber o que já está no disco
+    public FileSaver(TextSnapshot text, Path target, Charset charset, String lineEnding, boolean bom,
+                     long version, Consumer<FileSaver> onFinished) {
+        this.text = text;
+        this.target = target;
+        this.charset = charset;
+        this.lineEnding = lineEnding;
+        this.bom = bom;
+        this.version = version;
+        this.onFinished = onFinished;
+    }
+
+    public Path getTarget() {
+        return target;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    protected Path doInBackground() throws Exception {
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, "." + target.getFileName(), ".tmp");
+        ByteBuffer bytes = acquireBuffer();
+        try {
+            copyPermissions(temp);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                write(channel, bytes);
+                channel.force(false);
+            }
+            if (isCancelled()) {
+                Files.deleteIfExists(temp);
+                return null;
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            releaseBuffer(bytes);
+        }
+        return target;
+    }
+
+    // O temporário nasce só com permissão do dono; o arquivo salvo mantém as do original
+    private void copyPermissions(Path temp) throws IOException {
+        if (Files.exists(target)
+                && Files.getFileStore(temp).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+        }
+    }
+
+    private void write(FileChannel channel, ByteBuffer bytes) throws IOException {
+        CharsetEncoder encoder = charset.newEncoder(); // REPORT: nada vira '?' sem aviso
+        boolean convert = !"\n".equals(lineEnding);
+        char[] chunk = new char[CHUNK_CHARS + 1]; // +1: surrogate alto que sobrou do bloco anterior
+        char[] converted = convert ? new char[(CHUNK_CHARS + 1) * lineEnding.length()] : null;
+        int carried = 0;
+
+        if (bom) {
+            encode(encoder, CharBuffer.wrap("\uFEFF"), bytes, channel, false);
+        }
+        int length = text.length();
+        for (int from = 0; from < length && !isCancelled(); from += CHUNK_CHARS) {
+            int to = Math.min(length, from + CHUNK_CHARS);
+            text.getChars(from, to, chunk, carried);
+            int count = carried + to - from;
+            CharBuffer chars = convert
+                    ? CharBuffer.wrap(converted, 0, convertLineEndings(chunk, count, converted))
+                    : CharBuffer.wrap(chunk, 0, count);
+            encode(encoder, chars, bytes, channel, false);
+            // O codificador não consome um surrogate alto sem o par: ele abre o próximo bloco
+            carried = chars.remaining();
+            if (carried > 0) {
+                chunk[0] = chars.get();
+            }
+            setProgress((int) ((long) to * 100 / length));
+        }
+        encode(encoder, CharBuffer.wrap(chunk, 0, carried), bytes, channel, true);
+        while (encoder.flush(bytes) == CoderResult.OVERFLOW) {
+            drain(bytes, channel);
+        }
+        drain(bytes, channel);
+    }
+
+    // Codifica tudo que há em chars, escrevendo o buffer sempre que ele enche
+    private void encode(CharsetEncoder encoder, CharBuffer chars, ByteBuffer bytes,
+                        FileChannel channel, boolean endOfInput) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isOverflow()) {
+                drain(bytes, channel);
+            } else if (result.isUnderflow()) {
+                return; // pode sobrar em chars um surrogate alto à espera do par
+            } else {
+                // Surrogate sem par ou caractere sem representação; o temporário é apagado e o destino fica como estava
+                throw new UnmappableTextException(chars.subSequence(0, result.length()).toString(), charset);
+            }
+        }
+    }
+
+    private static void drain(ByteBuffer bytes, FileChannel channel) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    // Troca cada '\n' pela quebra de linha original; devolve quantos caracteres gravou em out
+    private int convertLineEndings(char[] in, int count, char[] out) {
+        int n = 0;
+        if (lineEnding.length() == 1) {
+            char eol = lineEnding.charAt(0);
+            for (int i = 0; i < count; i++) {
+                char c = in[i];
+                out[n++] = c == '\n' ? eol : c;
+            }
+            return n;
+        }
+        char first = lineEnding.charAt(0);
+        char second = lineEnding.charAt(1);
+        for (int i = 0; i < count; i++) {
+            char c = in[i];
+            if (c == '\n') {
+                out[n++] = first;
+                out[n++] = second;
+            } else {
+                out[n++] = c;
+            }
+        }
+        return n;
+    }
+
+    private static ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = BUFFERS.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    private static void releaseBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        BUFFERS.offer(buffer); // se o pool estiver cheio o buffer é descartado
+    }
+
+    @Override
+    protected void done() {
+        onFinished.accept(this);
+    }
+}
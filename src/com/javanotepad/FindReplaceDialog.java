@@ -0,0 +1,444 @@
+package com.javanotepad;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Document;
+import javax.swing.text.Highlighter;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Localizar e substituir no editor, sem travar a EDT em documentos grandes.
+ * <p>
+ * A busca roda numa {@link SearchTask} sobre um instantâneo do documento e as
+ * ocorrências chegam aos poucos; a contagem é atualizada enquanto isso. Só as
+ * ocorrências na parte visível do editor recebem destaque, refeito a cada
+ * rolagem. Editar o documento descarta as ocorrências e refaz a busca.
+ */
+class FindReplaceDialog extends JDialog {
+
+    private static final int SEARCH_DELAY_MS = 250; // espera o usuário parar de digitar
+    private static final int MAX_HIGHLIGHTS = 2000; // por tela, para linhas muito densas
+    private static final Color HIGHLIGHT = new Color(255, 200, 0, 110);
+
+    private final JTextArea textArea;
+    private final JViewport viewport;
+    private final JTextField findField = new JTextField(24);
+    private final JTextField replaceField = new JTextField(24);
+    private final JCheckBox regexBox = new JCheckBox("Expressão regular");
+    private final JCheckBox caseBox = new JCheckBox("Diferenciar maiúsculas");
+    private final JLabel countLabel = new JLabel(" ");
+    private final JButton replaceAllButton = new JButton("Substituir Tudo");
+    private final Timer searchDelay;
+    private final Highlighter.HighlightPainter painter = new DefaultHighlighter.DefaultHighlightPainter(HIGHLIGHT);
+    private final List<Object> highlights = new ArrayList<>();
+
+    private final DocumentListener documentChanged = new DocumentListener() {
+        @Override
+        public void insertUpdate(DocumentEvent e) {
+            invalidateHits();
+        }
+
+        @Override
+        public void removeUpdate(DocumentEvent e) {
+            invalidateHits();
+        }
+
+        @Override
+        public void changedUpdate(DocumentEvent e) {
+        }
+    };
+
+    // Ocorrências da última busca, em ordem: a i-ésima vai de starts[i] a ends[i]
+    private int[] starts = new int[0];
+    private int[] ends = new int[0];
+    private int hitCount;
+    private SearchTask search;
+    private SearchTask replace;
+    private boolean searchComplete;
+    private boolean findNextPending; // Localizar Próxima pedido antes de haver ocorrência adiante
+    private Document document;
+    private long edits; // muda a cada edição ou troca de documento
+    private long replaceEdits; // valor de edits quando a substituição leu o documento
+
+    public FindReplaceDialog(Frame owner, JTextArea textArea, JViewport viewport) {
+        super(owner, "Localizar e Substituir", false);
+        this.textArea = textArea;
+        this.viewport = viewport;
+        this.searchDelay = new Timer(SEARCH_DELAY_MS, e -> startSearch());
+        searchDelay.setRepeats(false);
+        initUI();
+
+        viewport.addChangeListener(e -> updateHighlights());
+        textArea.addPropertyChangeListener("document", e -> attach(textArea.getDocument()));
+        attach(textArea.getDocument());
+    }
+
+    private void initUI() {
+        JPanel form = new JPanel(new GridBagLayout());
+        GridBagConstraints c = new GridBagConstraints();
+        c.insets = new Insets(4, 4, 4, 4);
+        c.anchor = GridBagConstraints.WEST;
+        c.gridx = 0;
+        c.gridy = 0;
+        form.add(new JLabel("Localizar:"), c);
+        c.gridy = 1;
+        form.add(new JLabel("Substituir por:"), c);
+        c.gridx = 1;
+        c.gridy = 0;
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.weightx = 1;
+        form.add(findField, c);
+        c.gridy = 1;
+        form.add(replaceField, c);
+        c.gridy = 2;
+        JPanel options = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        options.add(regexBox);
+        options.add(caseBox);
+        form.add(options, c);
+        c.gridy = 3;
+        form.add(countLabel, c);
+
+        JButton findNextButton = new JButton("Localizar Próxima");
+        findNextButton.addActionListener(e -> findNext());
+        replaceAllButton.addActionListener(e -> replaceAll());
+        JButton closeButton = new JButton("Fechar");
+        closeButton.addActionListener(e -> setVisible(false));
+
+        JPanel buttonPanel = new JPanel(new GridLayout(0, 1, 0, 6));
+        buttonPanel.add(findNextButton);
+        buttonPanel.add(replaceAllButton);
+        buttonPanel.add(closeButton);
+        JPanel east = new JPanel(new BorderLayout());
+        east.add(buttonPanel, BorderLayout.NORTH);
+
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+        mainPanel.add(form, BorderLayout.CENTER);
+        mainPanel.add(east, BorderLayout.EAST);
+        add(mainPanel);
+
+        // A busca acompanha o que é digitado no campo
+        findField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchDelay.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchDelay.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        regexBox.addActionListener(e -> startSearch());
+        caseBox.addActionListener(e -> startSearch());
+
+        getRootPane().setDefaultButton(findNextButton);
+        getRootPane().registerKeyboardAction(e -> setVisible(false),
+                KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), JComponent.WHEN_IN_FOCUSED_WINDOW);
+        pack();
+        setLocationRelativeTo(getParent());
+    }
+
+    // Abre o diálogo com o texto selecionado no editor, se houver
+    public void open() {
+        String selected = textArea.getSelectedText();
+        if (selected != null && !selected.isEmpty() && selected.indexOf('\n') < 0) {
+            findField.setText(selected);
+        }
+        setVisible(true);
+        findField.requestFocusInWindow();
+        findField.selectAll();
+        if (search == null && hitCount == 0) {
+            startSearch();
+        }
+    }
+
+    @Override
+    public void setVisible(boolean visible) {
+        super.setVisible(visible);
+        if (!visible) {
+            cancelSearch();
+            clearHits();
+        }
+    }
+
+    private void attach(Document doc) {
+        if (document != null) {
+            document.removeDocumentListener(documentChanged);
+        }
+        document = doc;
+        document.addDocumentListener(documentChanged);
+        invalidateHits();
+    }
+
+    // --- BUSCA ---
+
+    // Padrão com as opções atuais; null se o campo está vazio ou a expressão é inválida
+    private Pattern compilePattern() {
+        String query = findField.getText();
+        if (query.isEmpty()) {
+            countLabel.setText(" ");
+            return null;
+        }
+        int flags = caseBox.isSelected() ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        flags |= regexBox.isSelected() ? Pattern.MULTILINE : Pattern.LITERAL;
+        try {
+            return Pattern.compile(query, flags);
+        } catch (PatternSyntaxException e) {
+            countLabel.setText("Expressão inválida: " + e.getDescription());
+            return null;
+        }
+    }
+
+    private TextSnapshot snapshot() {
+        if (document instanceof PieceTableDocument) {
+            return ((PieceTableDocument) document).snapshot();
+        }
+        try {
+            return TextSnapshot.of(document.getText(0, document.getLength()).toCharArray());
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void startSearch() {
+        searchDelay.stop();
+        cancelSearch();
+        clearHits();
+        if (!isVisible()) {
+            return;
+        }
+        Pattern pattern = compilePattern();
+        if (pattern == null) {
+            return;
+        }
+        searchComplete = false;
+        countLabel.setText("Procurando...");
+        SearchTask task = new SearchTask(snapshot(), pattern, this::hitsFound, this::searchFinished);
+        search = task;
+        task.execute();
+    }
+
+    private void cancelSearch() {
+        if (search != null) {
+            search.cancel(true);
+            search = null;
+        }
+        findNextPending = false;
+    }
+
+    private void hitsFound(int[] hits) {
+        int n = hits.length / 2;
+        if (hitCount + n > starts.length) {
+            int capacity = Math.max(hitCount + n, starts.length * 2);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        for (int i = 0; i < n; i++) {
+            starts[hitCount + i] = hits[2 * i];
+            ends[hitCount + i] = hits[2 * i + 1];
+        }
+        int first = hitCount;
+        hitCount += n;
+        countLabel.setText(String.format("Procurando... %,d ocorrências", hitCount));
+
+        int[] visible = visibleRange();
+        if (starts[first] < visible[1] && ends[hitCount - 1] > visible[0]) {
+            updateHighlights();
+        }
+        if (findNextPending) {
+            findNext();
+        }
+    }
+
+    private void searchFinished(SearchTask finished) {
+        if (finished != search) {
+            return; // cancelada ou substituída por outra
+        }
+        search = null;
+        searchComplete = true;
+        countLabel.setText(hitCount == 1 ? "1 ocorrência" : String.format("%,d ocorrências", hitCount));
+        if (findNextPending) {
+            findNext();
+        }
+    }
+
+    // O documento mudou: as posições guardadas não valem mais
+    private void invalidateHits() {
+        edits++;
+        cancelSearch();
+        clearHits();
+        if (isVisible()) {
+            searchDelay.restart();
+        }
+    }
+
+    private void clearHits() {
+        hitCount = 0;
+        searchComplete = false;
+        removeHighlights();
+    }
+
+    // --- DESTAQUES ---
+
+    // Posições do início e do fim do trecho visível do editor
+    private int[] visibleRange() {
+        Rectangle view = viewport.getViewRect();
+        int from = textArea.viewToModel2D(new Point(view.x, view.y));
+        int to = textArea.viewToModel2D(new Point(view.x + view.width, view.y + view.height));
+        return new int[]{Math.max(0, from), Math.max(from, to) + 1};
+    }
+
+    private void updateHighlights() {
+        removeHighlights();
+        if (hitCount == 0) {
+            return;
+        }
+        int[] visible = visibleRange();
+        // Primeira ocorrência que termina depois do início visível
+        int i = lowerBound(ends, hitCount, visible[0] + 1);
+        Highlighter highlighter = textArea.getHighlighter();
+        try {
+            for (; i < hitCount && starts[i] < visible[1] && highlights.size() < MAX_HIGHLIGHTS; i++) {
+                highlights.add(highlighter.addHighlight(starts[i], ends[i], painter));
+            }
+        } catch (BadLocationException e) {
+            // posições de antes de uma edição; a busca será refeita
+        }
+    }
+
+    private void removeHighlights() {
+        Highlighter highlighter = textArea.getHighlighter();
+        for (Object tag : highlights) {
+            highlighter.removeHighlight(tag);
+        }
+        highlights.clear();
+    }
+
+    // Primeiro índice i em [0, count) com values[i] >= key
+    private static int lowerBound(int[] values, int count, int key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // --- AÇÕES ---
+
+    // Seleciona a próxima ocorrência depois do cursor; no fim volta ao início
+    public void findNext() {
+        if (!isVisible()) {
+            open();
+            return;
+        }
+        findNextPending = false;
+        if (search == null && !searchComplete) {
+            startSearch();
+        }
+        int i = lowerBound(starts, hitCount, textArea.getSelectionEnd());
+        if (i < hitCount) {
+            select(i);
+        } else if (!searchComplete) {
+            findNextPending = true; // espera a busca chegar adiante
+        } else if (hitCount > 0) {
+            select(0);
+            countLabel.setText(String.format("%,d ocorrências (recomeçou do início)", hitCount));
+        } else {
+            Toolkit.getDefaultToolkit().beep();
+        }
+    }
+
+    private void select(int i) {
+        textArea.select(starts[i], ends[i]);
+        textArea.getCaret().setSelectionVisible(true);
+        try {
+            Rectangle r = textArea.modelToView2D(starts[i]).getBounds();
+            textArea.scrollRectToVisible(r);
+        } catch (BadLocationException e) {
+            // fora do documento; a seleção já foi ignorada
+        }
+    }
+
+    private void replaceAll() {
+        if (replace != null) {
+            return;
+        }
+        Pattern pattern = compilePattern();
+        if (pattern == null) {
+            return;
+        }
+        String replacement = regexBox.isSelected()
+                ? replaceField.getText() : Matcher.quoteReplacement(replaceField.getText());
+        cancelSearch();
+        replaceEdits = edits;
+        replaceAllButton.setEnabled(false);
+        countLabel.setText("Substituindo...");
+        replace = new SearchTask(snapshot(), pattern, replacement, this::replaceFinished);
+        replace.execute();
+    }
+
+    private void replaceFinished(SearchTask finished) {
+        replace = null;
+        replaceAllButton.setEnabled(true);
+        int count;
+        try {
+            count = finished.get();
+        } catch (CancellationException | InterruptedException e) {
+            countLabel.setText("Substituição cancelada");
+            return;
+        } catch (Exception e) {
+            countLabel.setText("Substituição inválida: " + e.getCause().getMessage()); // por exemplo, $2 sem grupo
+            return;
+        }
+        if (count == 0) {
+            countLabel.setText("Nenhuma ocorrência");
+            return;
+        }
+        // O texto foi lido de um instantâneo; só vale se o documento não mudou desde então
+        if (edits != replaceEdits) {
+            countLabel.setText("O documento mudou durante a substituição; tente de novo");
+            return;
+        }
+        // Uma única troca do intervalo entre a primeira e a última ocorrência:
+        // os ouvintes do documento recebem uma remoção e uma inserção, não uma por ocorrência
+        try {
+            int start = finished.getReplaceStart();
+            int length = finished.getReplaceEnd() - start;
+            if (document instanceof PieceTableDocument) {
+                ((PieceTableDocument) document).replaceAsOneEdit(start, length, finished.getReplaced());
+            } else {
+                ((AbstractDocument) document).replace(start, length, finished.getReplaced(), null);
+            }
+        } catch (BadLocationException e) {
+            countLabel.setText("O documento mudou durante a substituição; tente de novo");
+            return;
+        }
+        // A próxima busca fica para o Localizar Próxima, para a contagem de substituições ficar visível
+        searchDelay.stop();
+        countLabel.setText(count == 1 ? "1 substituição" : String.format("%,d substituições", count));
+    }
+}
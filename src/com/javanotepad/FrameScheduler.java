@@ -0,0 +1,170 @@
+package com.javanotepad;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Relógio de uma animação: uma única thread que avança a simulação em passos
+ * de duração fixa e pede quadros no ritmo de um alvo de quadros por segundo.
+ * <p>
+ * O passo da simulação não depende do custo do desenho, então a velocidade é a
+ * mesma em qualquer máquina; entre dois passos o quadro recebe a fração já
+ * decorrida do passo seguinte para interpolar. Um quadro só é pedido depois que
+ * o anterior foi desenhado ({@link #framePainted()}), assim a EDT atrasada perde
+ * quadros em vez de acumular pedidos. Pausado, o relógio fica parado sem
+ * consumir CPU.
+ */
+final class FrameScheduler {
+
+    // O que o relógio movimenta; os dois métodos rodam na thread do relógio
+    interface Animation {
+
+        // Avança a simulação um passo
+        void step();
+
+        // Pede um quadro; alpha (0 a 1) é quanto já passou do próximo passo
+        void frame(float alpha);
+    }
+
+    public static final int DEFAULT_FPS = Integer.getInteger("javanotepad.fps", 60);
+
+    private static final int MAX_STEPS_PER_FRAME = 5; // além disso a simulação desacelera
+    private static final long STALE_FRAME_NANOS = 250_000_000L; // quadro pedido e nunca desenhado
+
+    private final String name;
+    private final Animation animation;
+    private final AtomicBoolean framePending = new AtomicBoolean();
+
+    private volatile long stepNanos;
+    private volatile long frameNanos;
+    private volatile int targetFps;
+    private volatile boolean paused;
+    private volatile boolean running;
+    private volatile long frameRequestedAt;
+    private volatile long skippedFrames;
+    private Thread thread;
+
+    public FrameScheduler(String name, long stepMillis, int fps, Animation animation) {
+        this.name = name;
+        this.animation = animation;
+        setStepMillis(stepMillis);
+        setTargetFps(fps);
+    }
+
+    // Duração de um passo da simulação
+    public void setStepMillis(long millis) {
+        stepNanos = Math.max(1, millis) * 1_000_000L;
+    }
+
+    public void setTargetFps(int fps) {
+        targetFps = Math.max(1, fps);
+        frameNanos = 1_000_000_000L / targetFps;
+    }
+
+    public int getTargetFps() {
+        return targetFps;
+    }
+
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Encerra a thread e espera ela terminar, para um start() seguinte não criar outra em paralelo
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        if (thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    public synchronized void setPaused(boolean paused) {
+        if (this.paused == paused) {
+            return;
+        }
+        this.paused = paused;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    // Chamado por quem desenha, ao terminar o quadro pedido
+    public void framePainted() {
+        framePending.set(false);
+    }
+
+    private void run() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        long nextFrame = previous;
+
+        while (running) {
+            if (paused) {
+                while (paused && running) {
+                    LockSupport.park(this);
+                }
+                // Recomeça do zero: o tempo parado não vira passos atrasados
+                previous = System.nanoTime();
+                nextFrame = previous;
+                accumulator = 0;
+                framePending.set(false);
+                continue;
+            }
+
+            long now = System.nanoTime();
+            long step = stepNanos;
+            accumulator += now - previous;
+            previous = now;
+
+            int steps = 0;
+            while (accumulator >= step && steps < MAX_STEPS_PER_FRAME) {
+                animation.step();
+                accumulator -= step;
+                steps++;
+            }
+            if (accumulator >= step) {
+                accumulator %= step;
+            }
+
+            if (framePending.compareAndSet(false, true)) {
+                frameRequestedAt = now;
+                animation.frame((float) accumulator / step);
+            } else if (now - frameRequestedAt > STALE_FRAME_NANOS) {
+                // O pedido se perdeu (painel escondido, repaint agrupado); pede de novo
+                frameRequestedAt = now;
+                animation.frame((float) accumulator / step);
+            } else {
+                skippedFrames++;
+            }
+
+            nextFrame += frameNanos;
+            now = System.nanoTime();
+            if (nextFrame < now) {
+                nextFrame = now; // atrasado demais para recuperar; não tenta compensar
+            }
+            LockSupport.parkNanos(this, nextFrame - now);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.javanotepad;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Conjunto fixo de caracteres desenhado uma única vez, numa cor, lado a lado
+ * numa imagem. Desenhar um caractere é copiar a célula dele, sem montar texto
+ * nem alocar objetos.
+ * <p>
+ * Cada linha da imagem repete os caracteres com opacidade menor, para desenhar
+ * rastros que se apagam sem escurecer a tela inteira a cada passo.
+ */
+final class GlyphAtlas {
+
+    private final String chars;
+    private final Font font;
+    private final Color color;
+    private final int levels;
+    private final boolean antialias;
+    private final BufferedImage image;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int ascent;
+
+    private GlyphAtlas(String chars, Font font, Color color, int levels, boolean antialias, BufferedImage image,
+                       int cellWidth, int cellHeight, int ascent) {
+        this.chars = chars;
+        this.font = font;
+        this.color = color;
+        this.levels = levels;
+        this.antialias = antialias;
+        this.image = image;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.ascent = ascent;
+    }
+
+    // levels é o número de opacidades, da cor cheia até quase transparente;
+    // gc pode ser null (componente ainda não exibido)
+    public static GlyphAtlas build(GraphicsConfiguration gc, String chars, Font font, Color color, int levels,
+                                   boolean antialias) {
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D measure = scratch.createGraphics();
+        FontMetrics metrics = measure.getFontMetrics(font);
+        measure.dispose();
+
+        int cellWidth = 1;
+        for (int i = 0; i < chars.length(); i++) {
+            cellWidth = Math.max(cellWidth, metrics.charWidth(chars.charAt(i)));
+        }
+        int cellHeight = Math.max(1, metrics.getAscent() + metrics.getDescent());
+        int width = cellWidth * chars.length();
+        int height = cellHeight * levels;
+        BufferedImage image = gc != null
+                ? gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, antialias
+                ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        g.setFont(font);
+        for (int level = 0; level < levels; level++) {
+            int alpha = color.getAlpha() * (levels - level) / levels;
+            g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), alpha));
+            int baseline = level * cellHeight + metrics.getAscent();
+            for (int i = 0; i < chars.length(); i++) {
+                g.drawString(String.valueOf(chars.charAt(i)), i * cellWidth, baseline);
+            }
+        }
+        g.dispose();
+        return new GlyphAtlas(chars, font, color, levels, antialias, image, cellWidth, cellHeight, metrics.getAscent());
+    }
+
+    public boolean matches(Font font, Color color, int levels, boolean antialias) {
+        return this.font.equals(font) && this.color.equals(color) && this.levels == levels
+                && this.antialias == antialias;
+    }
+
+    // Desenha o caractere de índice glyph com a linha de base em y, como drawString;
+    // level 0 é a cor cheia e levels - 1 a mais apagada
+    public void draw(Graphics g, int glyph, int level, int x, int y) {
+        int sx = glyph * cellWidth;
+        int sy = level * cellHeight;
+        int top = y - ascent;
+        g.drawImage(image, x, top, x + cellWidth, top + cellHeight, sx, sy, sx + cellWidth, sy + cellHeight, null);
+    }
+}
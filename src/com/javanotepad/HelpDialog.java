@@ -35,18 +35,37 @@ public class HelpDialog extends JDialog {
             + "<p>Esta aplicação é um editor de texto simples com um fundo dinâmico e animado.</p>"
             + "<h3>Menu Arquivo</h3>"
             + "<ul>"
-            + "<li><b>Abrir Arquivo:</b> Carrega um arquivo de texto (.txt) na área de edição.</li>"
-            + "<li><b>Fechar Arquivo:</b> Limpa a área de edição.</li>"
+            + "<li><b>Novo (Ctrl+N):</b> Abre um documento vazio numa aba nova.</li>"
+            + "<li><b>Abrir Arquivo:</b> Carrega um arquivo de texto (.txt) numa aba nova.</li>"
+            + "<li><b>Salvar / Salvar Como (Ctrl+S, Ctrl+Shift+S):</b> Grava o arquivo mantendo a codificação e as quebras de linha originais. Se algum byte do arquivo não pôde ser lido ao abrir, pede confirmação antes de gravar a troca; o mesmo vale para um arquivo que mistura quebras de linha (CRLF e LF), que seria gravado com um estilo só.</li>"
+            + "<li><b>Salvamento Automático:</b> Salva o arquivo periodicamente quando ele tiver mudado.</li>"
+            + "<li><b>Seguir Arquivo:</b> Acompanha um arquivo que cresce, como um log: o texto novo aparece sozinho e a aba fica somente leitura. Só as últimas 100.000 linhas são mantidas.</li>"
+            + "<li><b>Fechar Aba:</b> Fecha o documento da aba atual. Se houver alterações não salvas, pergunta antes se deve salvá-las.</li>"
             + "<li><b>Sair:</b> Encerra a aplicação.</li>"
             + "</ul>"
+            + "<p>Ctrl+PageDown e Ctrl+PageUp passam de uma aba para outra. As abas usadas há mais tempo "
+            + "podem ser tiradas da memória e são recarregadas, com o cursor no mesmo lugar, ao voltar a elas.</p>"
+            + "<p>As edições não salvas são registradas em ~/.javanotepad/journal; se o programa for "
+            + "fechado antes de salvar, elas são oferecidas para recuperação na próxima abertura.</p>"
+            + "<p>Ao sair, as abas abertas, a posição do cursor em cada uma e as configurações do fundo são "
+            + "guardadas em ~/.javanotepad/session e voltam na próxima abertura. Cada arquivo só é lido quando "
+            + "a aba dele é exibida; um arquivo que não mudou desde então abre sem ser percorrido de novo.</p>"
+            + "<p>Arquivos .java, .json, .xml (e .html, .svg...) e .log têm realce de sintaxe, escolhido pela extensão.</p>"
+            + "<h3>Menu Editar</h3>"
+            + "<ul>"
+            + "<li><b>Desfazer / Refazer (Ctrl+Z, Ctrl+Y):</b> Desfaz a última edição; a digitação é desfeita uma palavra por vez. As edições mais antigas são esquecidas quando o histórico passa do limite de memória.</li>"
+            + "<li><b>Localizar / Substituir (Ctrl+F, Ctrl+H):</b> Procura um texto ou expressão regular e pode substituir todas as ocorrências de uma vez.</li>"
+            + "<li><b>Localizar Próxima (F3):</b> Seleciona a próxima ocorrência depois do cursor.</li>"
+            + "<li><b>Ir para Linha (Ctrl+G):</b> Leva o cursor ao começo de uma linha pelo número.</li>"
+            + "</ul>"
             + "<h3>Menu Configuração</h3>"
             + "<ul>"
-            + "<li><b>Padrões:</b> Altera o tipo de animação do fundo (Starfield ou Matrix Rain).</li>"
+            + "<li><b>Padrões:</b> Altera o tipo de animação do fundo (Starfield, Matrix Rain ou outros padrões instalados).</li>"
             + "<li><b>Cores:</b> Abre um seletor para mudar a cor principal da animação.</li>"
             + "<li><b>Velocidade:</b> Ajusta a velocidade da animação (Lenta, Normal, Rápida).</li>"
             + "</ul>"
             + "<h3>Barra de Status</h3>"
-            + "<p>Após abrir um arquivo, a barra de status na parte inferior da janela exibirá o nome do arquivo, o número de linhas e o número de palavras.</p>"
+            + "<p>Após abrir um arquivo, a barra de status na parte inferior da janela exibirá o nome do arquivo, a linha e a coluna do cursor, o número de linhas e o número de palavras. Os números de linha aparecem à esquerda do texto.</p>"
             + "</html>";
         
         JEditorPane editorPane = new JEditorPane("text/html", helpText);
@@ -0,0 +1,85 @@
+package com.javanotepad;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ícones de {@code /resources/icons}, decodificados em paralelo já no tamanho
+ * em que são exibidos.
+ * <p>
+ * {@link #preload} começa a decodificação fora da EDT assim que o programa
+ * abre, enquanto o look and feel é instalado; {@link #get} só espera pelo que
+ * ainda não terminou. A redução é feita em etapas de metade com interpolação
+ * bilinear, que fica parecida com {@code SCALE_SMOOTH} sem o filtro de média
+ * de área, e o resultado já é uma imagem pronta para desenhar.
+ */
+final class IconCache {
+
+    private static final Map<String, CompletableFuture<ImageIcon>> ICONS = new ConcurrentHashMap<>();
+
+    private IconCache() {
+    }
+
+    // Começa a decodificar os ícones em segundo plano; size <= 0 mantém o tamanho original
+    static void preload(int size, String... fileNames) {
+        for (String fileName : fileNames) {
+            request(fileName, size);
+        }
+    }
+
+    // Ícone quadrado de size pixels, ou null se o arquivo não existir
+    static ImageIcon get(String fileName, int size) {
+        return request(fileName, size).join();
+    }
+
+    private static CompletableFuture<ImageIcon> request(String fileName, int size) {
+        return ICONS.computeIfAbsent(fileName + "@" + size,
+                key -> CompletableFuture.supplyAsync(() -> decode(fileName, size)));
+    }
+
+    private static ImageIcon decode(String fileName, int size) {
+        URL url = IconCache.class.getResource("/resources/icons/" + fileName);
+        try {
+            BufferedImage image = url != null ? ImageIO.read(url) : null;
+            if (image == null) {
+                System.err.println("Ícone não encontrado: " + fileName);
+                return null;
+            }
+            return new ImageIcon(size > 0 ? scale(image, size, size) : image);
+        } catch (IOException e) {
+            System.err.println("Ícone ilegível: " + fileName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Reduz à metade enquanto puder e faz o último passo direto para o tamanho final
+    static BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage current = image;
+        int w = image.getWidth();
+        int h = image.getHeight();
+        do {
+            w = Math.max(width, w / 2);
+            h = Math.max(height, h / 2);
+            if (w < width * 2 && h < height * 2) {
+                w = width;
+                h = height;
+            }
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+            current = next;
+        } while (w != width || h != height);
+        return current;
+    }
+}
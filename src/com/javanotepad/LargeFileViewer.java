@@ -0,0 +1,465 @@
+package com.javanotepad;
+
+import javax.swing.JComponent;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Visualizador somente leitura para arquivos grandes demais para o editor.
+ * <p>
+ * O arquivo é mapeado em memória e só as linhas visíveis são decodificadas e
+ * desenhadas. Um índice esparso, com o início de uma a cada
+ * {@value #LINES_PER_CHECKPOINT} linhas, é montado em segundo plano; para chegar
+ * a uma linha basta partir do ponto de controle anterior e avançar no máximo
+ * esse número de quebras. As linhas longas demais para serem lidas inteiras
+ * também têm o fim anotado, para o desenho pular o resto delas sem percorrê-lo.
+ * O uso de heap não depende do tamanho do arquivo, só do número de linhas
+ * longas.
+ * <p>
+ * O BOM é pulado e as quebras são procuradas como unidades inteiras da
+ * codificação (dois bytes alinhados em UTF-16, por exemplo). Uma codificação
+ * em que a quebra não é uma unidade fixa de 1, 2 ou 4 bytes é recusada.
+ */
+class LargeFileViewer extends JComponent implements Scrollable {
+
+    private static final int SEGMENT_SHIFT = 30; // cada mapeamento cobre 1 GB
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final int LINES_PER_CHECKPOINT = 1024;
+    private static final int MAX_LINE_BYTES = 16 * 1024; // o resto da linha não é desenhado
+    private static final int MAX_HEIGHT = 1 << 29; // acima disso a rolagem é proporcional
+    private static final int TAB_SIZE = 8;
+
+    private final Path path;
+    private final Charset charset;
+    private final int dataStart; // bytes do BOM
+    private final byte[] newline; // '\n' na codificação do arquivo
+    private final byte[] carriageReturn;
+    private final int unit; // bytes por unidade de código
+    private final int newlineKey; // byte de newline que não é zero, testado primeiro
+    private final long size;
+    private final MappedByteBuffer[] segments;
+    private final Runnable onIndexProgress;
+
+    // Índice esparso, preenchido pela thread de indexação
+    private volatile long[] checkpoints = new long[64];
+    private volatile int checkpointCount = 1; // a linha 0 começa depois do BOM
+    private volatile long[] longLines = new long[64]; // pares [início, quebra] das linhas com MAX_LINE_BYTES ou mais
+    private volatile int longLineCount;
+    private volatile long newlineCount;
+    private volatile long indexedBytes;
+    private volatile long longestLine;
+    private volatile boolean indexing = true;
+    private final Thread indexer;
+
+    // Buffers de decodificação, usados só na EDT
+    private final CharsetDecoder decoder;
+    private final byte[] lineBytes = new byte[MAX_LINE_BYTES];
+    private final ByteBuffer lineBuffer = ByteBuffer.wrap(lineBytes);
+    private final CharBuffer lineChars = CharBuffer.allocate(MAX_LINE_BYTES);
+    private char[] expanded = new char[MAX_LINE_BYTES];
+
+    public LargeFileViewer(Path path, CharsetDetector.Result detected, Runnable onIndexProgress) throws IOException {
+        this.path = path;
+        this.charset = detected.charset;
+        this.dataStart = detected.bomLength;
+        this.onIndexProgress = onIndexProgress;
+        newline = "\n".getBytes(charset);
+        carriageReturn = "\r".getBytes(charset);
+        unit = newline.length;
+        if (unit != 1 && unit != 2 && unit != 4 || carriageReturn.length != unit
+                || "\n\n".getBytes(charset).length != 2 * unit) { // "UTF-16" põe um BOM em cada texto
+            throw new IOException("A codificação " + charset.name() + " não é suportada no visualizador de arquivos grandes.");
+        }
+        int key = 0;
+        while (newline[key] == 0) {
+            key++;
+        }
+        newlineKey = key;
+        checkpoints[0] = dataStart;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            int count = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+            segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+        }
+
+        setOpaque(false);
+        setFocusable(true);
+        setAutoscrolls(true);
+
+        indexer = new Thread(this::buildIndex, "LargeFileViewer-index");
+        indexer.setDaemon(true);
+        indexer.setPriority(Thread.MIN_PRIORITY);
+        indexer.start();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public long getFileSize() {
+        return size;
+    }
+
+    public boolean isIndexing() {
+        return indexing;
+    }
+
+    // Percentual do arquivo já indexado
+    public int getIndexProgress() {
+        return size == 0 ? 100 : (int) (indexedBytes * 100 / size);
+    }
+
+    // Linhas com a mesma regra do editor: uma quebra final não abre linha nova
+    public long getLineCount() {
+        if (size <= dataStart) {
+            return 0;
+        }
+        return isAt(size - unit, newline) ? newlineCount : newlineCount + 1;
+    }
+
+    // Interrompe a indexação; os mapeamentos são liberados junto com o componente
+    public void close() {
+        indexer.interrupt();
+    }
+
+    // --- INDEXAÇÃO ---
+
+    private void buildIndex() {
+        long lines = 0;
+        long lineStart = dataStart;
+        long longest = 0;
+        long lastNotify = System.nanoTime();
+
+        for (int s = 0; s < segments.length; s++) {
+            MappedByteBuffer segment = segments[s];
+            long base = (long) s << SEGMENT_SHIFT;
+            int limit = segment.limit();
+            // Primeira unidade do segmento alinhada com o começo do texto
+            int first = (int) (s == 0 ? dataStart : Math.floorMod(dataStart - base, (long) unit));
+            for (int i = nextNewline(segment, base, first); i < limit; i = nextNewline(segment, base, i + unit)) {
+                long pos = base + i;
+                if (pos - lineStart >= MAX_LINE_BYTES) {
+                    addLongLine(lineStart, pos);
+                }
+                longest = Math.max(longest, pos - lineStart);
+                lineStart = pos + unit;
+                lines++;
+                if (lines % LINES_PER_CHECKPOINT == 0) {
+                    addCheckpoint(lineStart);
+                }
+
+                if ((lines & 0xFFF) == 0) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    long now = System.nanoTime();
+                    if (now - lastNotify > 200_000_000L) {
+                        lastNotify = now;
+                        newlineCount = lines;
+                        longestLine = longest;
+                        indexedBytes = pos;
+                        notifyProgress();
+                    }
+                }
+            }
+        }
+
+        newlineCount = lines;
+        longestLine = Math.max(longest, size - lineStart);
+        indexedBytes = size;
+        indexing = false;
+        notifyProgress();
+    }
+
+    // Próxima quebra no segmento a partir da unidade em i, ou o fim do segmento
+    private int nextNewline(MappedByteBuffer segment, long base, int i) {
+        int limit = segment.limit();
+        if (unit == 1) {
+            while (i < limit && segment.get(i) != '\n') {
+                i++;
+            }
+            return i;
+        }
+        for (; i < limit; i += unit) {
+            // Uma unidade que atravessa o fim do segmento é conferida byte a byte
+            if ((i + newlineKey >= limit || segment.get(i + newlineKey) == newline[newlineKey])
+                    && isAt(base + i, newline)) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private void addCheckpoint(long offset) {
+        long[] array = checkpoints;
+        int count = checkpointCount;
+        if (count == array.length) {
+            long[] grown = new long[count * 2];
+            System.arraycopy(array, 0, grown, 0, count);
+            array = grown;
+            checkpoints = grown; // publicado antes do novo total
+        }
+        array[count] = offset;
+        checkpointCount = count + 1;
+    }
+
+    private void addLongLine(long start, long newlinePos) {
+        long[] array = longLines;
+        int count = longLineCount;
+        if (count * 2 == array.length) {
+            long[] grown = new long[array.length * 2];
+            System.arraycopy(array, 0, grown, 0, count * 2);
+            array = grown;
+            longLines = grown; // publicado antes do novo total
+        }
+        array[count * 2] = start;
+        array[count * 2 + 1] = newlinePos;
+        longLineCount = count + 1;
+    }
+
+    // Quebra que termina a linha longa começando em start, ou -1 se ela ainda não foi indexada
+    private long longLineEnd(long start) {
+        int count = longLineCount;
+        long[] array = longLines;
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long value = array[middle * 2];
+            if (value < start) {
+                low = middle + 1;
+            } else if (value > start) {
+                high = middle - 1;
+            } else {
+                return array[middle * 2 + 1];
+            }
+        }
+        return -1;
+    }
+
+    private void notifyProgress() {
+        SwingUtilities.invokeLater(() -> {
+            revalidate();
+            repaint();
+            onIndexProgress.run();
+        });
+    }
+
+    // --- ACESSO AOS BYTES ---
+
+    private byte byteAt(long pos) {
+        return segments[(int) (pos >>> SEGMENT_SHIFT)].get((int) (pos & (SEGMENT_SIZE - 1)));
+    }
+
+    // Verifica se a unidade em pos é code (uma quebra de linha na codificação do arquivo)
+    private boolean isAt(long pos, byte[] code) {
+        if (pos < dataStart || pos + unit > size) {
+            return false;
+        }
+        for (int k = 0; k < unit; k++) {
+            if (byteAt(pos + k) != code[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Início da linha, partindo do ponto de controle mais próximo; -1 se ainda não indexada
+    private long lineStart(long line) {
+        int count = checkpointCount;
+        long[] array = checkpoints;
+        int checkpoint = (int) Math.min(line / LINES_PER_CHECKPOINT, count - 1);
+        long pos = array[checkpoint];
+        long remaining = line - (long) checkpoint * LINES_PER_CHECKPOINT;
+        while (remaining > 0 && pos >= 0 && pos < size) {
+            pos = nextLineStart(pos, lineEnd(pos));
+            remaining--;
+        }
+        return remaining == 0 ? pos : -1;
+    }
+
+    // Fim da linha que começa em start (a quebra), lendo no máximo MAX_LINE_BYTES
+    private long lineEnd(long start) {
+        long limit = Math.min(size, start + MAX_LINE_BYTES);
+        for (long pos = start; pos + unit <= limit; pos += unit) {
+            if (isAt(pos, newline)) {
+                return pos;
+            }
+        }
+        return limit;
+    }
+
+    // Início da linha seguinte à que começa em start e foi lida até end: size se ela é a
+    // última e -1 se ela é longa e o fim dela ainda não foi indexado. Uma linha longa é
+    // pulada pelo índice, sem percorrer o resto dela
+    private long nextLineStart(long start, long end) {
+        if (isAt(end, newline)) {
+            return end + unit;
+        }
+        if (end + unit > size) {
+            return size;
+        }
+        long newlinePos = longLineEnd(start);
+        return newlinePos < 0 ? -1 : newlinePos + unit;
+    }
+
+    // Decodifica [start, end) em expanded, trocando tabulações por espaços
+    private int decodeLine(long start, long end) {
+        int length = (int) Math.min(end - start, MAX_LINE_BYTES);
+        if (length >= unit && isAt(start + length - unit, carriageReturn)) {
+            length -= unit;
+        }
+        for (int i = 0; i < length; i++) {
+            lineBytes[i] = byteAt(start + i);
+        }
+        lineBuffer.clear().limit(length);
+        lineChars.clear();
+        decoder.reset();
+        decoder.decode(lineBuffer, lineChars, true);
+        decoder.flush(lineChars);
+        lineChars.flip();
+
+        int column = 0;
+        for (int i = 0; i < lineChars.limit(); i++) {
+            char c = lineChars.get(i);
+            int width = c == '\t' ? TAB_SIZE - column % TAB_SIZE : 1;
+            if (column + width > expanded.length) {
+                char[] grown = new char[expanded.length * 2];
+                System.arraycopy(expanded, 0, grown, 0, column);
+                expanded = grown;
+            }
+            if (c == '\t') {
+                for (int k = 0; k < width; k++) {
+                    expanded[column++] = ' ';
+                }
+            } else {
+                expanded[column++] = c;
+            }
+        }
+        return column;
+    }
+
+    // --- DESENHO ---
+
+    private int lineHeight() {
+        return getFontMetrics(getFont()).getHeight();
+    }
+
+    private long virtualHeight() {
+        return getLineCount() * lineHeight();
+    }
+
+    // Primeira linha visível e o y em que ela é desenhada
+    private long topLine(Rectangle visible) {
+        long lines = getLineCount();
+        int lineHeight = lineHeight();
+        if (virtualHeight() <= MAX_HEIGHT) {
+            return visible.y / lineHeight;
+        }
+        long rows = visible.height / lineHeight;
+        long scrollable = Math.max(1, MAX_HEIGHT - visible.height);
+        return Math.max(0, (long) ((double) visible.y / scrollable * Math.max(0, lines - rows)));
+    }
+
+    // Rola até deixar a linha (contada de 0) no topo; o inverso de topLine()
+    public void scrollToLine(long line) {
+        Rectangle visible = getVisibleRect();
+        int lineHeight = lineHeight();
+        long y;
+        if (virtualHeight() <= MAX_HEIGHT) {
+            y = line * lineHeight;
+        } else {
+            long rows = visible.height / lineHeight;
+            long scrollable = Math.max(1, MAX_HEIGHT - visible.height);
+            y = (long) Math.ceil((double) line / Math.max(1, getLineCount() - rows) * scrollable);
+        }
+        scrollRectToVisible(new Rectangle(visible.x, (int) Math.min(y, MAX_HEIGHT), visible.width, visible.height));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle visible = getVisibleRect();
+        if (visible.isEmpty()) {
+            return;
+        }
+        g.setColor(getForeground());
+        g.setFont(getFont());
+        FontMetrics metrics = g.getFontMetrics();
+        int lineHeight = metrics.getHeight();
+
+        long line = topLine(visible);
+        int y = virtualHeight() <= MAX_HEIGHT ? (int) (line * lineHeight) : visible.y;
+        long start = lineStart(line);
+        long lines = getLineCount();
+
+        while (start >= 0 && start < size && line < lines && y < visible.y + visible.height) {
+            long end = lineEnd(start);
+            int length = decodeLine(start, end);
+            g.drawChars(expanded, 0, length, 0, y + metrics.getAscent());
+
+            start = nextLineStart(start, end);
+            line++;
+            y += lineHeight;
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        FontMetrics metrics = getFontMetrics(getFont());
+        long width = Math.min(longestLine, MAX_LINE_BYTES) / unit * metrics.charWidth('m');
+        return new Dimension((int) width, (int) Math.min(virtualHeight(), MAX_HEIGHT));
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL
+                ? lineHeight() : getFontMetrics(getFont()).charWidth('m');
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
@@ -0,0 +1,169 @@
+package com.javanotepad;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.util.Arrays;
+
+/**
+ * Início de cada linha de um texto, num {@code int[]} com um buraco.
+ * <p>
+ * As linhas antes do buraco guardam a posição em que começam; as depois dele
+ * guardam a distância até o fim do texto, que não muda quando se digita antes
+ * delas. Cada edição põe o buraco logo depois da linha editada (custo
+ * proporcional à distância da edição anterior, quase nada ao digitar) e só
+ * insere ou retira as linhas que a edição criou ou apagou. Achar a linha de
+ * uma posição é uma busca binária.
+ * <p>
+ * Usado só na EDT, depois que o documento foi publicado.
+ */
+final class LineIndex {
+
+    private static final int CHUNK = 16 * 1024;
+
+    private int[] starts = new int[16];
+    private int gapStart = 1; // a linha 0 começa em 0
+    private int gapEnd = starts.length;
+    private int length; // tamanho do texto indexado
+    private final Segment segment = new Segment();
+
+    public LineIndex() {
+        segment.setPartialReturn(true);
+    }
+
+    // Linha (contada de 0) que contém a posição; usa o índice quando o documento tem um
+    public static int lineOfOffset(Document document, int offset) {
+        if (document instanceof PieceTableDocument) {
+            return ((PieceTableDocument) document).getLineIndex().getLineOfOffset(offset);
+        }
+        return document.getDefaultRootElement().getElementIndex(offset);
+    }
+
+    public static int lineStart(Document document, int line) {
+        if (document instanceof PieceTableDocument) {
+            return ((PieceTableDocument) document).getLineIndex().getLineStart(line);
+        }
+        return document.getDefaultRootElement().getElement(line).getStartOffset();
+    }
+
+    public static int lineCount(Document document) {
+        if (document instanceof PieceTableDocument) {
+            return ((PieceTableDocument) document).getLineIndex().getLineCount();
+        }
+        return document.getDefaultRootElement().getElementCount();
+    }
+
+    public int getLineCount() {
+        return gapStart + starts.length - gapEnd;
+    }
+
+    public int getLineStart(int line) {
+        return line < gapStart ? starts[line] : length - starts[line - gapStart + gapEnd];
+    }
+
+    // Linha que contém a posição (a última, para posições no fim do texto)
+    public int getLineOfOffset(int offset) {
+        int low = 0;
+        int high = getLineCount() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (getLineStart(mid) <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // Início de cada linha, em ordem, para ser guardado com a sessão
+    public int[] toArray() {
+        int[] result = new int[getLineCount()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getLineStart(i);
+        }
+        return result;
+    }
+
+    // Índice de um texto de tamanho length a partir de toArray(); false (e nada muda)
+    // se os inícios não forem crescentes ou não vierem logo depois de um '\n' do texto
+    public boolean load(int[] lineStarts, int length, CharSequence text) {
+        if (lineStarts.length == 0 || lineStarts[0] != 0) {
+            return false;
+        }
+        for (int i = 1; i < lineStarts.length; i++) {
+            int start = lineStarts[i];
+            if (start <= lineStarts[i - 1] || start > length || text.charAt(start - 1) != '\n') {
+                return false;
+            }
+        }
+        starts = Arrays.copyOf(lineStarts, lineStarts.length + 16);
+        gapStart = lineStarts.length;
+        gapEnd = starts.length;
+        this.length = length;
+        return true;
+    }
+
+    // Bytes ocupados no heap
+    public long heapBytes() {
+        return 16 + starts.length * 4L;
+    }
+
+    // count caracteres foram inseridos em offset; content já os contém
+    public void insert(int offset, int count, AbstractDocument.Content content) throws BadLocationException {
+        moveGap(getLineOfOffset(offset) + 1);
+        length += count;
+        int end = offset + count;
+        int pos = offset;
+        while (pos < end) {
+            content.getChars(pos, Math.min(CHUNK, end - pos), segment); // trechos do texto original são copiados
+            char[] array = segment.array;
+            int last = segment.offset + segment.count;
+            for (int i = segment.offset; i < last; i++) {
+                if (array[i] == '\n') {
+                    addLine(pos + i - segment.offset + 1);
+                }
+            }
+            pos += segment.count;
+        }
+        segment.array = null; // não segura um array que pode sair do texto
+    }
+
+    // [offset, offset + count) foi removido do texto
+    public void remove(int offset, int count) {
+        moveGap(getLineOfOffset(offset) + 1);
+        int end = offset + count;
+        while (gapEnd < starts.length && length - starts[gapEnd] <= end) {
+            gapEnd++; // a quebra antes desta linha foi removida
+        }
+        length -= count;
+    }
+
+    // Linha nova logo antes do buraco; as inserções vêm em ordem
+    private void addLine(int start) {
+        if (gapStart == gapEnd) {
+            grow();
+        }
+        starts[gapStart++] = start;
+    }
+
+    private void grow() {
+        int tail = starts.length - gapEnd;
+        int[] grown = new int[Math.max(16, starts.length + starts.length / 2)];
+        System.arraycopy(starts, 0, grown, 0, gapStart);
+        System.arraycopy(starts, gapEnd, grown, grown.length - tail, tail);
+        gapEnd = grown.length - tail;
+        starts = grown;
+    }
+
+    // Leva o buraco para antes da linha, convertendo as linhas que mudam de lado
+    private void moveGap(int line) {
+        while (gapStart > line) {
+            starts[--gapEnd] = length - starts[--gapStart];
+        }
+        while (gapStart < line) {
+            starts[gapStart++] = length - starts[gapEnd++];
+        }
+    }
+}
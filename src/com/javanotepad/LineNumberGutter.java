@@ -0,0 +1,154 @@
+package com.javanotepad;
+
+import javax.swing.JComponent;
+import javax.swing.JTextArea;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Insets;
+import java.awt.Rectangle;
+
+/**
+ * Números de linha da área de texto, para o cabeçalho de linhas do
+ * {@code JScrollPane}.
+ * <p>
+ * Supõe linhas de altura fixa, sem quebra automática, como a
+ * {@link SyntaxView}. O fundo animado faz o cabeçalho ser desenhado a cada
+ * quadro, então só os números visíveis são desenhados, escritos num
+ * {@code char[]} reaproveitado. A contagem de linhas e a linha do cursor vêm
+ * do {@link LineIndex} do documento.
+ */
+class LineNumberGutter extends JComponent {
+
+    private static final int PADDING = 8;
+    private static final int MIN_DIGITS = 3;
+    private static final Color NUMBER_COLOR = new Color(255, 255, 255, 110);
+    private static final Color SEPARATOR_COLOR = new Color(255, 255, 255, 40);
+
+    private final JTextArea textArea;
+    private final char[] digits = new char[10];
+    private Document document;
+    private int lineCount;
+    private int caretLine;
+
+    private final DocumentListener linesListener = new DocumentListener() {
+        @Override
+        public void insertUpdate(DocumentEvent e) {
+            linesChanged();
+        }
+
+        @Override
+        public void removeUpdate(DocumentEvent e) {
+            linesChanged();
+        }
+
+        @Override
+        public void changedUpdate(DocumentEvent e) {
+        }
+    };
+
+    public LineNumberGutter(JTextArea textArea) {
+        this.textArea = textArea;
+        setOpaque(false);
+        setForeground(NUMBER_COLOR);
+        textArea.addPropertyChangeListener("document", e -> attach((Document) e.getNewValue()));
+        textArea.addPropertyChangeListener("font", e -> revalidate());
+        textArea.addCaretListener(e -> caretMoved());
+        textArea.addComponentListener(new java.awt.event.ComponentAdapter() {
+            @Override
+            public void componentResized(java.awt.event.ComponentEvent e) {
+                revalidate(); // a altura acompanha a da área de texto
+            }
+        });
+        attach(textArea.getDocument());
+    }
+
+    private void attach(Document newDocument) {
+        if (document != null) {
+            document.removeDocumentListener(linesListener);
+        }
+        document = newDocument;
+        if (document != null) {
+            document.addDocumentListener(linesListener);
+            lineCount = LineIndex.lineCount(document);
+        }
+        caretLine = -1;
+        revalidate();
+        repaint();
+    }
+
+    private void linesChanged() {
+        int count = LineIndex.lineCount(document);
+        if (count == lineCount) {
+            return; // digitação dentro de uma linha não muda nenhum número
+        }
+        if (digitCount(count) != digitCount(lineCount)) {
+            revalidate();
+        }
+        lineCount = count;
+        repaint();
+    }
+
+    private void caretMoved() {
+        int line = LineIndex.lineOfOffset(document, textArea.getCaretPosition());
+        if (line != caretLine) {
+            caretLine = line;
+            repaint();
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        FontMetrics metrics = getFontMetrics(textArea.getFont());
+        int width = Math.max(MIN_DIGITS, digitCount(lineCount)) * metrics.charWidth('0') + 2 * PADDING;
+        return new Dimension(width, textArea.getHeight());
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setFont(textArea.getFont());
+        FontMetrics metrics = g.getFontMetrics();
+        int lineHeight = metrics.getHeight();
+        Insets insets = textArea.getInsets();
+        int first = Math.max(0, (clip.y - insets.top) / lineHeight);
+        int last = Math.min(lineCount - 1, (clip.y + clip.height - insets.top) / lineHeight);
+        int right = getWidth() - PADDING;
+
+        for (int line = first; line <= last; line++) {
+            int start = format(line + 1);
+            int count = digits.length - start;
+            int y = insets.top + line * lineHeight + metrics.getAscent();
+            g.setColor(line == caretLine ? textArea.getCaretColor() : getForeground());
+            g.drawChars(digits, start, count, right - metrics.charsWidth(digits, start, count), y);
+        }
+        g.setColor(SEPARATOR_COLOR);
+        g.drawLine(getWidth() - 1, clip.y, getWidth() - 1, clip.y + clip.height);
+    }
+
+    // Escreve o número no fim de digits; devolve onde ele começa
+    private int format(int number) {
+        int i = digits.length;
+        do {
+            digits[--i] = (char) ('0' + number % 10);
+            number /= 10;
+        } while (number > 0);
+        return i;
+    }
+
+    private static int digitCount(int number) {
+        int count = 1;
+        while (number >= 10) {
+            number /= 10;
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,403 @@
+package com.javanotepad;
+
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Segue um arquivo que cresce, como {@code tail -f} (modo Seguir).
+ * <p>
+ * Uma thread de fundo vigia a pasta do arquivo com um {@link WatchService} e,
+ * como nem todo sistema de arquivos avisa (pastas de rede), confere o tamanho
+ * também a cada {@value #POLL_MILLIS} ms. Só os bytes acrescentados desde a
+ * última leitura são lidos, por um {@link FileChannel}, e decodificados com as
+ * quebras de linha trocadas por {@code '\n'}, como no {@link FileLoader}.
+ * <p>
+ * O texto lido se acumula aqui e a EDT o recebe num lote só a cada
+ * {@value #FLUSH_MILLIS} ms, por um {@link Timer}. O acumulado nunca passa de
+ * cerca de maxLines linhas: se o arquivo cresce mais rápido do que a EDT
+ * consome, as linhas mais antigas são descartadas antes de chegar a ela e o
+ * lote substitui o texto inteiro.
+ * <p>
+ * Um lote que substitui o texto e passa de {@value #MAX_REPLACE_CHARS}
+ * caracteres (o final lido ao começar, um arquivo novo depois da rotação)
+ * não é inserido na EDT: esta thread monta e conta um documento novo com ele,
+ * e a EDT só o troca pelo da aba. Enquanto esse texto é lido nada é entregue.
+ * <p>
+ * Ao começar, só o final do arquivo (até {@value #MAX_INITIAL_BYTES} bytes) é
+ * lido. Se o arquivo encolher ou for trocado por outro (rotação de log), a
+ * leitura recomeça do início dele.
+ */
+final class LogFollower {
+
+    static final int POLL_MILLIS = 500;
+    static final int FLUSH_MILLIS = 100;
+    private static final int MAX_INITIAL_BYTES = 8 * 1024 * 1024;
+    private static final int READ_SIZE = 1024 * 1024;
+    private static final int MAX_REPLACE_CHARS = READ_SIZE;
+
+    // Texto lido desde o último lote, ou um documento pronto para substituir o da aba
+    static final class Batch {
+        final String text;
+        final boolean replace; // substitui todo o texto em vez de ser acrescentado
+        final PieceTableDocument document; // montado fora da EDT; text é null
+        final TextStatistics statistics; // contagens de document
+
+        Batch(String text, boolean replace) {
+            this.text = text;
+            this.replace = replace;
+            this.document = null;
+            this.statistics = null;
+        }
+
+        Batch(PieceTableDocument document, TextStatistics statistics) {
+            this.text = null;
+            this.replace = true;
+            this.document = document;
+            this.statistics = statistics;
+        }
+    }
+
+    private final Path path;
+    private final Charset charset;
+    private final int maxLines;
+    private final Consumer<Batch> onBatch;
+    private final Timer flusher;
+    private final Thread reader;
+    private volatile boolean running = true;
+
+    // Só na thread de leitura
+    private final ByteBuffer bytes = ByteBuffer.allocate(READ_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(READ_SIZE + 16);
+    private final CharsetDecoder decoder;
+    private long offset;  // bytes do arquivo já lidos
+    private Object fileKey; // identifica o arquivo, para perceber a rotação
+    private boolean pendingCarriageReturn;
+    private boolean atFileStart; // o próximo texto é o começo do arquivo (pode ter BOM)
+    private boolean skipPartialLine; // a leitura começou no meio de uma linha
+    private long linesSinceReset;
+
+    // Protegidos por this: lidos pela thread de leitura, entregues pela EDT
+    private StringBuilder pending = new StringBuilder();
+    private int pendingLines;
+    private boolean pendingReplace;
+    private boolean replacing; // o texto que substitui o da aba ainda está sendo lido
+    private Batch prepared; // documento montado para substituir o da aba, ainda não entregue
+    private volatile boolean partial; // o texto entregue não contém o arquivo inteiro
+
+    // onBatch é chamado na EDT com o texto novo
+    public LogFollower(Path path, Charset charset, int maxLines, Consumer<Batch> onBatch) {
+        this.path = path;
+        this.charset = charset;
+        this.maxLines = maxLines;
+        this.onBatch = onBatch;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        flusher = new Timer(FLUSH_MILLIS, e -> deliver());
+        reader = new Thread(this::run, "LogFollower-" + path.getFileName());
+        reader.setDaemon(true);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // O texto entregue é só o final do arquivo: a leitura começou no meio ou linhas foram descartadas
+    public boolean isPartial() {
+        return partial;
+    }
+
+    // Chamado na EDT
+    public void start() {
+        flusher.start();
+        reader.start();
+    }
+
+    // Chamado na EDT; nenhum lote é entregue depois disto
+    public void stop() {
+        running = false;
+        flusher.stop();
+        reader.interrupt();
+    }
+
+    private void run() {
+        WatchService watcher = openWatcher();
+        try {
+            readTail();
+            prepareReplacement();
+            while (running) {
+                if (watcher != null) {
+                    WatchKey key = watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        key.pollEvents(); // qualquer mudança na pasta só leva a conferir o tamanho
+                        key.reset();
+                    }
+                } else {
+                    Thread.sleep(POLL_MILLIS);
+                }
+                readAppended();
+                prepareReplacement();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // parado
+        } finally {
+            if (watcher != null) {
+                try {
+                    watcher.close();
+                } catch (IOException ex) {
+                    // nada a fazer; a thread já está saindo
+                }
+            }
+        }
+    }
+
+    // Sem WatchService (ou sem permissão na pasta) fica só a conferência periódica
+    private WatchService openWatcher() {
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory == null) {
+            return null;
+        }
+        try {
+            WatchService watcher = directory.getFileSystem().newWatchService();
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+            return watcher;
+        } catch (IOException | UnsupportedOperationException ex) {
+            System.err.println("Seguindo " + path + " só por consulta periódica: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    // Começa pelas últimas linhas, sem ler o arquivo inteiro
+    private void readTail() throws InterruptedException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            fileKey = attributes.fileKey();
+            long start = Math.max(0, attributes.size() - MAX_INITIAL_BYTES);
+            start -= start % codeUnit(); // UTF-16 e UTF-32 precisam começar num caractere inteiro
+            restartAt(start, true);
+        } catch (IOException ex) {
+            restartAt(0, true); // o arquivo pode aparecer depois
+        }
+        readAppended();
+    }
+
+    private void restartAt(long start, boolean replace) {
+        offset = start;
+        atFileStart = start == 0;
+        skipPartialLine = start > 0;
+        partial = start > 0;
+        linesSinceReset = 0;
+        pendingCarriageReturn = false;
+        bytes.clear();
+        decoder.reset();
+        if (replace) {
+            synchronized (this) {
+                pending.setLength(0);
+                pendingLines = 0;
+                pendingReplace = true;
+                replacing = true;
+                prepared = null;
+            }
+        }
+    }
+
+    private int codeUnit() {
+        String name = charset.name();
+        if (name.startsWith("UTF-32")) {
+            return 4;
+        }
+        return name.startsWith("UTF-16") ? 2 : 1;
+    }
+
+    // Lê o que foi acrescentado desde a última vez
+    private void readAppended() throws InterruptedException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            return; // rotação em andamento: o arquivo novo ainda não foi criado
+        } catch (IOException ex) {
+            System.err.println("Não foi possível consultar " + path + ": " + ex.getMessage());
+            return;
+        }
+        Object key = attributes.fileKey();
+        if ((key != null && !key.equals(fileKey)) || attributes.size() < offset) {
+            restartAt(0, true); // outro arquivo com o mesmo nome, ou o mesmo truncado
+        }
+        fileKey = key;
+        if (attributes.size() == offset) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (running && offset < channel.size()) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                int read = channel.read(bytes, offset);
+                if (read <= 0) {
+                    break;
+                }
+                offset += read;
+                bytes.flip();
+                decoder.decode(bytes, chars, false);
+                bytes.compact(); // guarda o pedaço de um caractere que ainda não chegou inteiro
+                chars.flip();
+                append(chars);
+                chars.clear();
+            }
+        } catch (IOException ex) {
+            if (running) { // parar interrompe a leitura em andamento
+                System.err.println("Não foi possível ler " + path + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    // Troca as quebras por '\n', descarta o que não deve aparecer e acumula para a EDT
+    private void append(CharBuffer decoded) {
+        char[] in = decoded.array();
+        int from = decoded.arrayOffset() + decoded.position();
+        int end = decoded.arrayOffset() + decoded.limit();
+        if (atFileStart && from < end) {
+            atFileStart = false;
+            if (in[from] == '\uFEFF') {
+                from++; // BOM
+            }
+        }
+        int n = from;
+        int lines = 0;
+        for (int i = from; i < end; i++) {
+            char c = in[i];
+            if (pendingCarriageReturn) {
+                pendingCarriageReturn = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            if (c == '\r') {
+                c = '\n';
+                pendingCarriageReturn = true;
+            }
+            if (skipPartialLine) {
+                skipPartialLine = c != '\n'; // até o fim da primeira linha, que começou antes da leitura
+                continue;
+            }
+            in[n++] = c; // no próprio buffer: n nunca passa de i
+            if (c == '\n') {
+                lines++;
+            }
+        }
+        if (n == from) {
+            return;
+        }
+        linesSinceReset += lines;
+        if (linesSinceReset > maxLines) {
+            partial = true;
+        }
+        synchronized (this) {
+            pending.append(in, from, n - from);
+            pendingLines += lines;
+            if (pendingLines > maxLines + maxLines / 4) {
+                dropOldest(pendingLines - maxLines);
+            }
+        }
+    }
+
+    // Descarta as primeiras linhas acumuladas; o texto na EDT fica todo mais velho que elas
+    private void dropOldest(int lines) {
+        int cut = 0;
+        for (int found = 0; found < lines; cut++) {
+            if (pending.charAt(cut) == '\n') {
+                found++;
+            }
+        }
+        pending.delete(0, cut);
+        pendingLines -= lines;
+        pendingReplace = true;
+        replacing = true;
+        prepared = null;
+    }
+
+    // Terminada a leitura de um texto que substitui o da aba: se ele é grande, monta aqui o
+    // documento novo, para que a EDT não precise inserir nem contar tudo de uma vez
+    private void prepareReplacement() {
+        String text;
+        synchronized (this) {
+            if (!replacing || !running) {
+                return;
+            }
+            replacing = false;
+            if (pending.length() <= MAX_REPLACE_CHARS) {
+                return; // pequeno: vai num lote comum
+            }
+            text = pending.toString();
+            pending = new StringBuilder();
+            pendingLines = 0;
+            pendingReplace = false;
+        }
+        PieceTableDocument document = new PieceTableDocument();
+        try {
+            document.insertString(0, text, null);
+            LineIndex lines = document.getLineIndex();
+            int excess = lines.getLineCount() - maxLines;
+            if (excess > 0) {
+                document.remove(0, lines.getLineStart(excess));
+            }
+        } catch (BadLocationException ex) {
+            throw new IllegalStateException(ex);
+        }
+        document.putProperty(FileLoader.CHARSET_PROPERTY, charset);
+        TextStatistics statistics = TextStatistics.countOf(document);
+        synchronized (this) {
+            prepared = new Batch(document, statistics);
+        }
+    }
+
+    // Na EDT, pelo timer: entrega o que se acumulou desde o último lote
+    private void deliver() {
+        Batch replacement;
+        Batch batch;
+        synchronized (this) {
+            if (!running || replacing) {
+                return;
+            }
+            replacement = prepared;
+            prepared = null;
+            if (pending.length() == 0 && !pendingReplace) {
+                batch = null;
+            } else {
+                batch = new Batch(pending.toString(), pendingReplace);
+                if (pending.capacity() > 4 * READ_SIZE) {
+                    pending = new StringBuilder(); // não segura a memória de uma rajada
+                } else {
+                    pending.setLength(0);
+                }
+                pendingLines = 0;
+                pendingReplace = false;
+            }
+        }
+        if (replacement != null) {
+            onBatch.accept(replacement); // o texto em pending veio depois dele
+        }
+        if (batch != null) {
+            onBatch.accept(batch);
+        }
+    }
+}
@@ -1,11 +1,19 @@
 package com.javanotepad;
 
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.UIManager;
+import java.awt.event.WindowEvent;
+import java.nio.file.Path;
+import java.util.List;
 
 public class MainApp {
 
     public static void main(String[] args) {
+        // Os ícones são decodificados em paralelo enquanto o Nimbus é instalado
+        MainFrame.preloadIcons();
+        SessionSnapshot.preload(); // abas e fundo da última execução
+
         // Definir o Look and Feel Nimbus
         try {
             for (UIManager.LookAndFeelInfo info : UIManager.getInstalledLookAndFeels()) {
@@ -27,6 +35,21 @@ public class MainApp {
         SwingUtilities.invokeLater(() -> {
             MainFrame frame = new MainFrame();
             frame.setVisible(true);
+
+            // Execução de treino do arquivo AppCDS (ant appcds): fecha sozinha depois da partida
+            Long exitAfter = Long.getLong("javanotepad.exitAfterMillis");
+            if (exitAfter != null) {
+                Timer exit = new Timer(exitAfter.intValue(), e -> frame.dispatchEvent(
+                        new WindowEvent(frame, WindowEvent.WINDOW_CLOSING)));
+                exit.setRepeats(false);
+                exit.start();
+            }
+
+            // Edições que uma execução anterior não chegou a salvar
+            List<Path> journals = EditJournal.findOrphans();
+            if (!journals.isEmpty()) {
+                frame.recover(journals);
+            }
         });
     }
 }
\ No newline at end of file
@@ -4,103 +4,250 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.KeyEvent;
-import java.io.BufferedReader;
 import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultEditorKit;
+import javax.swing.text.Document;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class MainFrame extends JFrame {
 
     private AnimatedBackgroundPanel animatedPanel;
-    private JTextArea textArea;
+    private CachedTextArea textArea; // uma só área de texto, que exibe o documento da aba ativa
+    private JScrollPane scrollPane;
+    private LineNumberGutter gutter;
+    private JTabbedPane tabBar; // só os títulos das abas; o conteúdo é sempre scrollPane
     private JLabel statusBar;
-    private String currentFileName = null;
+    private final List<EditorTab> tabs = new ArrayList<>(); // na ordem de tabBar
+    private EditorTab active;
+    private boolean restoring; // abas da sessão anterior sendo criadas: trocar de aba não carrega nada
+    private final Document placeholder = new PieceTableDocument(); // exibido enquanto a aba ativa carrega
+    private final PerformanceMonitor monitor = new PerformanceMonitor();
+    private QualityGovernor governor;
+    private FindReplaceDialog findDialog; // criado na primeira busca
+    private Timer autosave;
+    private JCheckBoxMenuItem autosaveItem;
+    private JCheckBoxMenuItem followItem;
+    private HelpDialog helpDialog; // criado na primeira vez que é aberto
+    private JColorChooser colorChooser;
+    private JDialog colorDialog;
+
+    private static final String TITLE = "Editor com Fundo Dinâmico";
+    private static final int AUTOSAVE_SECONDS = Integer.getInteger("javanotepad.autosaveSeconds", 30);
+
+    // Linhas mantidas de um arquivo seguido; as mais antigas são descartadas
+    private static final int FOLLOW_MAX_LINES = Integer.getInteger("javanotepad.followMaxLines", 100_000);
+
+    // Arquivos maiores que isto abrem no visualizador somente leitura
+    private static final long LARGE_FILE_THRESHOLD
+            = Long.getLong("javanotepad.largeFileThreshold", 128L * 1024 * 1024);
+
+    // Heap que os documentos das abas podem ocupar antes de as menos usadas serem despejadas
+    private static final long TAB_MEMORY_BUDGET
+            = Long.getLong("javanotepad.tabMemoryBudget", Runtime.getRuntime().maxMemory() / 4);
+
+    private static final int MENU_ICON_SIZE = 13;
+    private static final String[] MENU_ICONS = {
+        "open.png", "close.png", "exit.png", "settings.png", "pattern.png",
+        "color.png", "speed.png", "help.png", "about.png"
+    };
 
     public MainFrame() {
         initUI();
     }
 
+    // Começa a decodificar os ícones antes de a janela existir
+    static void preloadIcons() {
+        IconCache.preload(0, "app_icon.png");
+        IconCache.preload(MENU_ICON_SIZE, MENU_ICONS);
+    }
+
     private void initUI() {
         // Configuração da janela principal
-        setTitle("Editor com Fundo Dinâmico");
+        setTitle(TITLE);
         setSize(800, 600);
         setLocationRelativeTo(null);
         setDefaultCloseOperation(EXIT_ON_CLOSE);
 
         // Define o ícone da aplicação
-        try {
-            ImageIcon appIcon = new ImageIcon(getClass().getResource("/resources/icons/app_icon.png"));
+        ImageIcon appIcon = IconCache.get("app_icon.png", 0);
+        if (appIcon != null) {
             setIconImage(appIcon.getImage());
-        } catch (Exception e) {
-            System.err.println("o icone da aplicacao nao encontrado.");
         }
 
         // Painel de fundo animado
         animatedPanel = new AnimatedBackgroundPanel();
         animatedPanel.setLayout(new BorderLayout());
+        animatedPanel.setPerformanceMonitor(monitor);
         setContentPane(animatedPanel);
+        setGlassPane(new PerformanceHud(monitor));
+        monitor.start();
+
+        // Qualidade do fundo ajustada para a digitação continuar rápida
+        governor = new QualityGovernor(animatedPanel, () -> textArea.getDocument().getLength());
+        monitor.setGovernor(governor);
+
+        // O fundo volta como estava na última execução, antes de os menus lerem o estado dele
+        SessionSnapshot session = SessionSnapshot.get();
+        if (session != null) {
+            restoreAnimation(session);
+        }
 
         // Barra de menus
         setJMenuBar(createMenuBar());
 
         // Criação da área de texto
-        textArea = new JTextArea();
+        textArea = new CachedTextArea(placeholder);
         textArea.setFont(new Font("Consolas", Font.PLAIN, 14));
         textArea.setForeground(Color.WHITE); // Cor do texto
         textArea.setBackground(new Color(0, 0, 0, 128)); // Fundo semitransparente
         textArea.setCaretColor(Color.CYAN); // Cor do cursor
         textArea.setOpaque(false); // Permite ver o fundo
-        textArea.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            @Override
-            public void insertUpdate(javax.swing.event.DocumentEvent e) {
-                updateFileStats();
-            }
-
+        textArea.setPaintListener(monitor::textPainted);
+        textArea.addKeyListener(new java.awt.event.KeyAdapter() {
             @Override
-            public void removeUpdate(javax.swing.event.DocumentEvent e) {
-                updateFileStats();
+            public void keyTyped(KeyEvent e) {
+                monitor.keyTyped();
             }
+        });
+        textArea.addCaretListener(e -> updateFileStats()); // linha e coluna do cursor
+        governor.start();
 
-            @Override
-            public void changedUpdate(javax.swing.event.DocumentEvent e) {
-                updateFileStats();
+        // Salva em segundo plano as abas que mudaram desde o último salvamento
+        autosave = new Timer(AUTOSAVE_SECONDS * 1000, e -> {
+            if (autosaveItem.isSelected()) {
+                for (EditorTab tab : tabs) {
+                    if (tab.path != null && tab.getDocument() != null && tab.isModified() && tab.follower == null) {
+                        startSave(tab, tab.path, true);
+                    }
+                }
             }
         });
+        autosave.start();
 
-        JScrollPane scrollPane = new JScrollPane(textArea);
+        scrollPane = new JScrollPane(textArea);
         scrollPane.setOpaque(false);
         scrollPane.getViewport().setOpaque(false);
         scrollPane.setBorder(new EmptyBorder(10, 10, 10, 10)); // Margem interna
+        gutter = new LineNumberGutter(textArea);
+        scrollPane.setRowHeaderView(gutter);
+        scrollPane.getRowHeader().setOpaque(false);
 
         animatedPanel.add(scrollPane, BorderLayout.CENTER);
 
+        // Abas sobre o mesmo fundo animado; trocar de aba troca o documento da área de texto
+        tabBar = new JTabbedPane(JTabbedPane.TOP, JTabbedPane.SCROLL_TAB_LAYOUT);
+        tabBar.setOpaque(false);
+        tabBar.setFocusable(false);
+        tabBar.addChangeListener(e -> {
+            int index = tabBar.getSelectedIndex();
+            if (index >= 0 && !restoring) {
+                activate(tabs.get(index));
+            }
+        });
+        animatedPanel.add(tabBar, BorderLayout.NORTH);
+
         // Criação da barra de status
         statusBar = new JLabel("Pronto");
         statusBar.setForeground(Color.WHITE);
         statusBar.setBorder(new EmptyBorder(4, 8, 4, 8));
         animatedPanel.add(statusBar, BorderLayout.SOUTH);
 
-        // Inicia a animação somente depois que a janela estiver pronta
-        addWindowStateListener(e -> {
-            if (e.getNewState() == Frame.NORMAL) {
-                animatedPanel.startAnimation();
+        if (session == null || !restoreTabs(session)) {
+            newTab();
+        }
+
+        // Esc cancela um carregamento em andamento
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "cancelLoading");
+        getRootPane().getActionMap().put("cancelLoading", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                cancelLoading();
+            }
+        });
+
+        // Ctrl+PageDown e Ctrl+PageUp passam para a aba seguinte ou anterior
+        int menuMask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_PAGE_DOWN, menuMask), "nextTab");
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_PAGE_UP, menuMask), "previousTab");
+        getRootPane().getActionMap().put("nextTab", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                tabBar.setSelectedIndex((tabBar.getSelectedIndex() + 1) % tabs.size());
+            }
+        });
+        getRootPane().getActionMap().put("previousTab", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                tabBar.setSelectedIndex((tabBar.getSelectedIndex() + tabs.size() - 1) % tabs.size());
             }
         });
 
-        addWindowListener(new java.awt.event.WindowAdapter() {
+        // Inicia a animação somente depois que a janela estiver pronta e a
+        // congela enquanto ela estiver minimizada, oculta ou sem foco
+        java.awt.event.WindowAdapter animationControl = new java.awt.event.WindowAdapter() {
             @Override
             public void windowOpened(java.awt.event.WindowEvent e) {
+                updateAnimationState();
                 animatedPanel.startAnimation();
             }
 
+            @Override
+            public void windowStateChanged(java.awt.event.WindowEvent e) {
+                updateAnimationState();
+            }
+
+            @Override
+            public void windowActivated(java.awt.event.WindowEvent e) {
+                updateAnimationState();
+            }
+
+            @Override
+            public void windowDeactivated(java.awt.event.WindowEvent e) {
+                updateAnimationState();
+            }
+
             @Override
             public void windowClosing(java.awt.event.WindowEvent e) {
+                saveSession();
                 animatedPanel.stopAnimation(); // Garante que a animação pare ao fechar
+                governor.stop();
+                monitor.stop();
+                closeAllTabs();
+            }
+        };
+        addWindowListener(animationControl);
+        addWindowStateListener(animationControl);
+        addComponentListener(new java.awt.event.ComponentAdapter() {
+            @Override
+            public void componentShown(java.awt.event.ComponentEvent e) {
+                updateAnimationState();
+            }
+
+            @Override
+            public void componentHidden(java.awt.event.ComponentEvent e) {
+                updateAnimationState();
             }
         });
     }
 
+    private void updateAnimationState() {
+        boolean iconified = (getExtendedState() & Frame.ICONIFIED) != 0;
+        animatedPanel.setAnimationPaused(iconified || !isShowing() || !isActive());
+    }
+
     private JMenuBar createMenuBar() {
         JMenuBar menuBar = new JMenuBar();
 
@@ -108,57 +255,123 @@ public class MainFrame extends JFrame {
         JMenu fileMenu = new JMenu("Arquivo");
         fileMenu.setMnemonic(KeyEvent.VK_A);
 
-        JMenuItem openItem = new JMenuItem("Abrir Arquivo", loadIcon("open.png", 13, 13));
+        JMenuItem newItem = new JMenuItem("Novo");
+        newItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_N, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        newItem.addActionListener(e -> newTab());
+
+        JMenuItem openItem = new JMenuItem("Abrir Arquivo", IconCache.get("open.png", MENU_ICON_SIZE));
         openItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_O, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
         openItem.addActionListener(e -> openFile());
 
-        JMenuItem closeItem = new JMenuItem("Fechar Arquivo", loadIcon("close.png", 13, 13));
+        JMenuItem saveItem = new JMenuItem("Salvar");
+        saveItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        saveItem.addActionListener(e -> saveFile());
+
+        JMenuItem saveAsItem = new JMenuItem("Salvar Como...");
+        saveAsItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S,
+                Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx() | java.awt.event.InputEvent.SHIFT_DOWN_MASK));
+        saveAsItem.addActionListener(e -> saveFileAs());
+
+        autosaveItem = new JCheckBoxMenuItem("Salvamento Automático");
+        autosaveItem.setToolTipText("Salva o arquivo a cada " + AUTOSAVE_SECONDS + " segundos se ele tiver mudado");
+
+        followItem = new JCheckBoxMenuItem("Seguir Arquivo");
+        followItem.setToolTipText("Mostra as linhas acrescentadas ao arquivo, como tail -f");
+        followItem.addActionListener(e -> toggleFollow());
+
+        JMenuItem closeItem = new JMenuItem("Fechar Aba", IconCache.get("close.png", MENU_ICON_SIZE));
         closeItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_W, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
         closeItem.addActionListener(e -> closeFile());
 
-        JMenuItem exitItem = new JMenuItem("Sair", loadIcon("exit.png", 13, 13));
+        JMenuItem exitItem = new JMenuItem("Sair", IconCache.get("exit.png", MENU_ICON_SIZE));
         exitItem.setMnemonic(KeyEvent.VK_S);
         exitItem.setToolTipText("Encerrar a aplicação");
-        exitItem.addActionListener((event) -> System.exit(0));
+        // Passa pelo fechamento da janela, que grava os diários das abas antes de sair
+        exitItem.addActionListener((event) -> dispatchEvent(
+                new java.awt.event.WindowEvent(this, java.awt.event.WindowEvent.WINDOW_CLOSING)));
 
+        fileMenu.add(newItem);
         fileMenu.add(openItem);
+        fileMenu.add(saveItem);
+        fileMenu.add(saveAsItem);
+        fileMenu.add(autosaveItem);
+        fileMenu.add(followItem);
         fileMenu.add(closeItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
 
+        // Menu Editar
+        JMenu editMenu = new JMenu("Editar");
+        editMenu.setMnemonic(KeyEvent.VK_E);
+
+        JMenuItem findItem = new JMenuItem("Localizar...");
+        findItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        findItem.addActionListener(e -> showFindDialog());
+
+        JMenuItem findNextItem = new JMenuItem("Localizar Próxima");
+        findNextItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0));
+        findNextItem.addActionListener(e -> {
+            if (findDialog() != null) {
+                findDialog.findNext();
+            }
+        });
+
+        JMenuItem replaceItem = new JMenuItem("Substituir...");
+        replaceItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_H, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        replaceItem.addActionListener(e -> showFindDialog());
+
+        JMenuItem goToLineItem = new JMenuItem("Ir para Linha...");
+        goToLineItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_G, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        goToLineItem.addActionListener(e -> goToLine());
+
+        JMenuItem undoItem = new JMenuItem("Desfazer");
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        undoItem.addActionListener(e -> undo());
+
+        JMenuItem redoItem = new JMenuItem("Refazer");
+        redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        redoItem.addActionListener(e -> redo());
+
+        editMenu.add(undoItem);
+        editMenu.add(redoItem);
+        editMenu.addSeparator();
+        editMenu.add(findItem);
+        editMenu.add(findNextItem);
+        editMenu.add(replaceItem);
+        editMenu.addSeparator();
+        editMenu.add(goToLineItem);
+
         // Menu Configuração
         JMenu configMenu = new JMenu("Configuração");
-        configMenu.setIcon(loadIcon("settings.png", 13, 13));
+        configMenu.setIcon(IconCache.get("settings.png", MENU_ICON_SIZE));
 
         JMenu patternsMenu = new JMenu("Padrões");
-        patternsMenu.setIcon(loadIcon("pattern.png", 13, 13));
+        patternsMenu.setIcon(IconCache.get("pattern.png", MENU_ICON_SIZE));
         ButtonGroup patternGroup = new ButtonGroup();
 
-        JRadioButtonMenuItem starfieldItem = new JRadioButtonMenuItem("Starfield", true);
-        starfieldItem.addActionListener(e -> animatedPanel.setPattern(AnimatedBackgroundPanel.AnimationPattern.STARFIELD));
-
-        JRadioButtonMenuItem matrixItem = new JRadioButtonMenuItem("Matrix Rain");
-        matrixItem.addActionListener(e -> animatedPanel.setPattern(AnimatedBackgroundPanel.AnimationPattern.MATRIX_RAIN));
-
-        patternGroup.add(starfieldItem);
-        patternGroup.add(matrixItem);
-        patternsMenu.add(starfieldItem);
-        patternsMenu.add(matrixItem);
+        // Um item por padrão encontrado pelo ServiceLoader
+        for (BackgroundPattern pattern : animatedPanel.getPatterns()) {
+            JRadioButtonMenuItem patternItem = new JRadioButtonMenuItem(pattern.getName(),
+                    pattern == animatedPanel.getPattern());
+            patternItem.addActionListener(e -> animatedPanel.setPattern(pattern));
+            patternGroup.add(patternItem);
+            patternsMenu.add(patternItem);
+        }
 
-        JMenuItem colorItem = new JMenuItem("Cores", loadIcon("color.png", 13, 13));
+        JMenuItem colorItem = new JMenuItem("Cores", IconCache.get("color.png", MENU_ICON_SIZE));
         colorItem.addActionListener(e -> chooseColor());
 
         JMenu speedMenu = new JMenu("Velocidade");
-        speedMenu.setIcon(loadIcon("speed.png", 13, 13));
+        speedMenu.setIcon(IconCache.get("speed.png", MENU_ICON_SIZE));
         ButtonGroup speedGroup = new ButtonGroup();
 
-        JRadioButtonMenuItem slowItem = new JRadioButtonMenuItem("Lenta");
+        JRadioButtonMenuItem slowItem = new JRadioButtonMenuItem("Lenta", animatedPanel.getAnimationSpeed() == 0);
         slowItem.addActionListener(e -> animatedPanel.setAnimationSpeed(0));
 
-        JRadioButtonMenuItem normalItem = new JRadioButtonMenuItem("Normal", true);
+        JRadioButtonMenuItem normalItem = new JRadioButtonMenuItem("Normal", animatedPanel.getAnimationSpeed() == 1);
         normalItem.addActionListener(e -> animatedPanel.setAnimationSpeed(1));
 
-        JRadioButtonMenuItem fastItem = new JRadioButtonMenuItem("Rápida");
+        JRadioButtonMenuItem fastItem = new JRadioButtonMenuItem("Rápida", animatedPanel.getAnimationSpeed() == 2);
         fastItem.addActionListener(e -> animatedPanel.setAnimationSpeed(2));
 
         speedGroup.add(slowItem);
@@ -168,23 +381,67 @@ public class MainFrame extends JFrame {
         speedMenu.add(normalItem);
         speedMenu.add(fastItem);
 
+        // Quantidade de estrelas do Starfield
+        JMenu starsMenu = new JMenu("Estrelas");
+        ButtonGroup starsGroup = new ButtonGroup();
+        for (int count : new int[]{800, 5_000, 20_000, 100_000, 250_000}) {
+            JRadioButtonMenuItem starsItem = new JRadioButtonMenuItem(String.format("%,d", count),
+                    count == animatedPanel.getStarCount());
+            starsItem.addActionListener(e -> animatedPanel.setStarCount(count));
+            starsGroup.add(starsItem);
+            starsMenu.add(starsItem);
+        }
+
+        // Qualidade automática ou fixa, e o orçamento de latência que a automática protege
+        JMenu qualityMenu = new JMenu("Qualidade");
+        ButtonGroup qualityGroup = new ButtonGroup();
+        JRadioButtonMenuItem autoQualityItem = new JRadioButtonMenuItem("Automática", governor.isAutomatic());
+        autoQualityItem.addActionListener(e -> governor.setFixedLevel(null));
+        qualityGroup.add(autoQualityItem);
+        qualityMenu.add(autoQualityItem);
+        for (QualityGovernor.Level level : QualityGovernor.Level.values()) {
+            JRadioButtonMenuItem levelItem = new JRadioButtonMenuItem(level.getLabel());
+            levelItem.addActionListener(e -> governor.setFixedLevel(level));
+            qualityGroup.add(levelItem);
+            qualityMenu.add(levelItem);
+        }
+        qualityMenu.addSeparator();
+        ButtonGroup budgetGroup = new ButtonGroup();
+        for (int budget : new int[]{8, 16, 33, 50}) {
+            JRadioButtonMenuItem budgetItem = new JRadioButtonMenuItem("Orçamento de " + budget + " ms",
+                    budget == governor.getBudgetMillis());
+            budgetItem.addActionListener(e -> governor.setBudgetMillis(budget));
+            budgetGroup.add(budgetItem);
+            qualityMenu.add(budgetItem);
+        }
+
+        // Medições de desempenho sobre a janela
+        JCheckBoxMenuItem hudItem = new JCheckBoxMenuItem("Painel de Desempenho");
+        hudItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F12, 0));
+        hudItem.addActionListener(e -> getGlassPane().setVisible(hudItem.isSelected()));
+
         configMenu.add(patternsMenu);
         configMenu.add(colorItem);
         configMenu.add(speedMenu);
+        configMenu.add(starsMenu);
+        configMenu.add(qualityMenu);
+        configMenu.addSeparator();
+        configMenu.add(hudItem);
 
         // Menu Ajuda
         JMenu helpMenu = new JMenu("Ajuda");
 
-        JMenuItem helpItem = new JMenuItem("Ajuda", loadIcon("help.png", 13, 13));
+        JMenuItem helpItem = new JMenuItem("Ajuda", IconCache.get("help.png", MENU_ICON_SIZE));
         helpItem.addActionListener(e -> showHelpDialog());
 
-        JMenuItem aboutItem = new JMenuItem("Sobre", loadIcon("about.png", 13, 13));
+        JMenuItem aboutItem = new JMenuItem("Sobre", IconCache.get("about.png", MENU_ICON_SIZE));
         aboutItem.addActionListener(e -> showAboutDialog());
 
         helpMenu.add(helpItem);
         helpMenu.add(aboutItem);
 
         menuBar.add(fileMenu);
+        menuBar.add(editMenu);
         menuBar.add(configMenu);
         menuBar.add(helpMenu);
 
@@ -200,52 +457,1005 @@ public class MainFrame extends JFrame {
         int result = fileChooser.showOpenDialog(this);
 
         if (result == JFileChooser.APPROVE_OPTION) {
-            File selectedFile = fileChooser.getSelectedFile();
+            open(fileChooser.getSelectedFile(), null);
+        }
+    }
+
+    // Abre o arquivo numa aba nova (ou mostra a aba em que ele já está aberto).
+    // recovery, se houver, é reaplicado sobre o arquivo assim que ele terminar de carregar.
+    private void open(File selectedFile, EditJournal.Recovery recovery) {
+        Path path = selectedFile.toPath().toAbsolutePath();
+        for (EditorTab tab : tabs) {
+            if (recovery == null && path.equals(tab.path)) {
+                tabBar.setSelectedIndex(tabs.indexOf(tab));
+                return;
+            }
+        }
+        EditorTab pristine = active != null && active.isPristine() ? active : null;
+        EditorTab tab = createTab();
+        tab.path = path;
+        tab.name = selectedFile.getName();
+        addTab(tab);
+        if (pristine != null) {
+            closeTab(pristine); // a aba vazia inicial dá lugar ao arquivo
+        }
+
+        if (recovery == null && selectedFile.length() > LARGE_FILE_THRESHOLD) {
+            openLargeFile(tab, selectedFile);
+            return;
+        }
+        load(tab, path, recovery);
+    }
 
-            StringBuilder sb = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new FileReader(selectedFile))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    sb.append(line).append(System.lineSeparator()); // Adiciona a linha e a quebra de linha do sistema
+    // Lê source num documento novo, que só passa a ser o da aba no fim
+    private void load(EditorTab tab, Path source, EditJournal.Recovery recovery) {
+        long startedAt = System.nanoTime();
+        PieceTableDocument document = new PieceTableDocument();
+        tab.stats = new TextStatistics(() -> statisticsChanged(tab));
+        tab.stats.install(document);
+
+        // Relendo o próprio arquivo: o que se sabe dele evita varrê-lo de novo, se não mudou
+        SessionSnapshot.FileInfo known = recovery == null && source.equals(tab.path) ? tab.fileInfo : null;
+        FileLoader fileLoader = new FileLoader(source, document,
+                finished -> loadFinished(tab, finished, recovery, startedAt), known);
+        fileLoader.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName()) && fileLoader == tab.loader && tab == active) {
+                statusBar.setText(String.format("Carregando %s... %d%% (Esc para cancelar)",
+                        tab.getDisplayName(), (Integer) e.getNewValue()));
+            }
+        });
+        tab.loader = fileLoader;
+        if (tab == active) {
+            showDocument(tab);
+            statusBar.setText("Carregando " + tab.getDisplayName() + "... (Esc para cancelar)");
+        }
+        fileLoader.execute();
+    }
+
+    private void loadFinished(EditorTab tab, FileLoader finished, EditJournal.Recovery recovery, long startedAt) {
+        if (finished != tab.loader) {
+            return; // carregamento cancelado ou aba fechada
+        }
+        tab.loader = null;
+
+        try {
+            Document document = finished.get();
+            if (finished.getStatistics() != null) {
+                tab.stats.install(document, finished.getStatistics());
+            }
+            if (tab.spill != null) {
+                // Volta de um despejo: o texto é o da aba, com as alterações ainda não salvas
+                document.putProperty(FileLoader.CHARSET_PROPERTY, tab.charset);
+                document.putProperty(DefaultEditorKit.EndOfLineStringProperty, tab.lineEnding);
+                document.putProperty(FileLoader.BOM_PROPERTY, tab.bom);
+                document.putProperty(FileLoader.LOSSY_PROPERTY, tab.lossy);
+                document.putProperty(FileLoader.MIXED_LINE_ENDINGS_PROPERTY, tab.mixedLineEndings);
+                deleteSpill(tab);
+                tab.setDocument(document);
+                updateSyntax(tab);
+                tab.journal.attach(document);
+            } else {
+                tab.setDocument(document);
+                updateSyntax(tab);
+                tab.markClean();
+                resetJournal(tab);
+                tab.fileInfo = finished.getFileInfo();
+            }
+            tab.loaded = true;
+            tab.restored = false;
+            if (tab == active) {
+                showDocument(tab);
+                updateFileStats();
+            }
+            monitor.recordLoad(System.nanoTime() - startedAt);
+            if (recovery != null) {
+                replay(tab, recovery);
+            }
+            enforceMemoryBudget();
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this,
+                    "Não foi possível abrir o arquivo.\nEle pode ser um arquivo binário ou estar corrompido.",
+                    "Erro de Leitura",
+                    JOptionPane.ERROR_MESSAGE);
+            tab.stats = null;
+            if (!tab.loaded) {
+                closeTab(tab);
+            } else if (tab == active) {
+                updateFileStats(); // continua despejada; tenta de novo na próxima vez que for exibida
+            }
+        }
+    }
+
+    private void openLargeFile(EditorTab tab, File file) {
+        long startedAt = System.nanoTime();
+        try {
+            tab.viewer = new LargeFileViewer(file.toPath(), CharsetDetector.detect(file.toPath()),
+                    () -> statisticsChanged(tab));
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this,
+                    "Não foi possível abrir o arquivo.\n" + ex.getMessage(),
+                    "Erro de Leitura",
+                    JOptionPane.ERROR_MESSAGE);
+            closeTab(tab);
+            return;
+        }
+        tab.viewer.setFont(textArea.getFont());
+        tab.viewer.setForeground(textArea.getForeground());
+        tab.loaded = true;
+        tab.restored = false;
+        if (tab == active) {
+            showDocument(tab);
+            updateFileStats();
+        }
+        monitor.recordLoad(System.nanoTime() - startedAt);
+    }
+
+    private void cancelLoading() {
+        EditorTab tab = active;
+        if (tab != null && tab.loader != null) {
+            tab.loader.cancel(true);
+            tab.loader = null;
+            tab.stats = null;
+            if (!tab.loaded) {
+                closeTab(tab);
+            }
+            statusBar.setText("Carregamento cancelado");
+        }
+    }
+
+    // --- Abas ---
+
+    private EditorTab createTab() {
+        EditorTab[] tab = new EditorTab[1];
+        tab[0] = new EditorTab(() -> modifiedChanged(tab[0]));
+        return tab[0];
+    }
+
+    private void newTab() {
+        EditorTab tab = createTab();
+        PieceTableDocument document = new PieceTableDocument();
+        tab.stats = new TextStatistics(() -> statisticsChanged(tab));
+        tab.stats.install(document);
+        tab.setDocument(document);
+        updateSyntax(tab);
+        tab.markClean();
+        tab.loaded = true;
+        resetJournal(tab);
+        addTab(tab);
+    }
+
+    private void addTab(EditorTab tab) {
+        tabs.add(tab);
+        tabBar.addTab(tab.getDisplayName(), null);
+        updateTabTitle(tab);
+        tabBar.setSelectedIndex(tabs.size() - 1); // chama activate()
+    }
+
+    // Exibe a aba na área de texto, trazendo o texto de volta se ela tiver sido despejada
+    private void activate(EditorTab tab) {
+        if (tab == active) {
+            return;
+        }
+        if (active != null) {
+            rememberView(active);
+        }
+        active = tab;
+        tab.lastUsed = System.nanoTime();
+        followItem.setSelected(tab.follower != null);
+        if ((tab.loaded || tab.restored) && tab.getDocument() == null && tab.loader == null && tab.viewer == null) {
+            if (tab.restored && tab.path.toFile().length() > LARGE_FILE_THRESHOLD) {
+                openLargeFile(tab, tab.path.toFile());
+            } else {
+                load(tab, tab.spill != null ? tab.spill : tab.path, null);
+            }
+        }
+        showDocument(tab);
+        updateTitle();
+        if (tab.loader != null) {
+            statusBar.setText("Carregando " + tab.getDisplayName() + "... (Esc para cancelar)");
+        }
+        updateFileStats();
+        enforceMemoryBudget();
+    }
+
+    private void showDocument(EditorTab tab) {
+        if (tab.viewer != null) {
+            scrollPane.setViewportView(tab.viewer);
+            scrollPane.setRowHeaderView(null);
+            tab.viewer.requestFocusInWindow();
+            return;
+        }
+        scrollPane.setViewportView(textArea);
+        scrollPane.setRowHeaderView(gutter);
+        Document document = tab.getDocument();
+        if (document == null) {
+            textArea.setDocument(placeholder);
+            textArea.setEditable(false);
+            return;
+        }
+        textArea.setDocument(document);
+        textArea.setEditable(tab.follower == null);
+        if (tab.follower != null) {
+            textArea.setCaretPosition(document.getLength()); // volta acompanhando o fim
+            textArea.requestFocusInWindow();
+            return;
+        }
+        textArea.setCaretPosition(Math.min(tab.caret, document.getLength()));
+        Point view = tab.viewPosition;
+        SwingUtilities.invokeLater(() -> {
+            if (tab == active && tab.getDocument() == document) {
+                scrollPane.getViewport().setViewPosition(view); // depois de a área de texto ter o novo tamanho
+            }
+        });
+        textArea.requestFocusInWindow();
+    }
+
+    // Realce de sintaxe pela extensão do nome da aba
+    private void updateSyntax(EditorTab tab) {
+        if (tab.getDocument() instanceof PieceTableDocument) {
+            SyntaxHighlighter.install((PieceTableDocument) tab.getDocument(), SyntaxLexer.forFileName(tab.name));
+        }
+    }
+
+    private void rememberView(EditorTab tab) {
+        if (tab.getDocument() != null && textArea.getDocument() == tab.getDocument()) {
+            tab.caret = textArea.getCaretPosition();
+            tab.viewPosition = scrollPane.getViewport().getViewPosition();
+        }
+    }
+
+    // Pergunta antes de fechar uma aba com alterações; Sim salva e fecha quando a gravação terminar
+    private void closeFile() {
+        EditorTab tab = active;
+        if (!tab.isModified()) {
+            closeTab(tab);
+            return;
+        }
+        int answer = JOptionPane.showConfirmDialog(this,
+                "Deseja salvar as alterações em " + tab.getDisplayName() + "?",
+                "Fechar Aba", JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE);
+        if (answer == JOptionPane.NO_OPTION) {
+            closeTab(tab, false); // descartadas pelo usuário: o diário não precisa ficar
+        } else if (answer == JOptionPane.YES_OPTION) {
+            saveFile();
+            tab.closeAfterSave = tab.saver != null; // Salvar Como cancelado deixa a aba aberta
+        }
+    }
+
+    private void closeTab(EditorTab tab) {
+        closeTab(tab, tab.isModified());
+    }
+
+    // Fecha a aba sem perguntar; sempre sobra ao menos uma. O diário de edições só fica
+    // no disco com keepJournal, para o que não foi salvo ser oferecido na próxima abertura
+    private void closeTab(EditorTab tab, boolean keepJournal) {
+        if (tab.loader != null) {
+            tab.loader.cancel(true);
+            tab.loader = null;
+        }
+        if (tab.follower != null) {
+            tab.follower.stop();
+            tab.follower = null;
+        }
+        if (tab.viewer != null) {
+            tab.viewer.close();
+            tab.viewer = null;
+        }
+        if (tab.journal != null) {
+            tab.journal.close(keepJournal);
+            tab.journal = null;
+        }
+        deleteSpill(tab);
+        tab.release();
+
+        int index = tabs.indexOf(tab);
+        tabs.remove(index);
+        if (tab == active) {
+            active = null;
+        }
+        tabBar.removeTabAt(index); // seleciona outra aba, se houver
+        if (tabs.isEmpty()) {
+            newTab();
+        }
+        if (active == null) {
+            activate(tabs.get(tabBar.getSelectedIndex()));
+        }
+        statusBar.setText("Pronto");
+    }
+
+    // Ao sair: o diário de cada aba só fica no disco se ela tiver alterações não salvas
+    private void closeAllTabs() {
+        for (EditorTab tab : tabs) {
+            deleteSpill(tab);
+            if (tab.journal != null) {
+                try {
+                    tab.journal.close(tab.isModified()).get(2, TimeUnit.SECONDS);
+                } catch (Exception ex) {
+                    System.err.println("Diário de edições não foi fechado: " + ex);
                 }
+            }
+        }
+    }
 
-                currentFileName = selectedFile.getName(); // Guarda o nome do arquivo
-                textArea.setText(sb.toString()); // Usa setText() para modificar o documento existente
+    // --- Sessão ---
 
-                // Move o cursor para o início do documento
-                textArea.setCaretPosition(0);
+    private void restoreAnimation(SessionSnapshot session) {
+        BackgroundPattern pattern = session.pattern != null ? animatedPanel.findPattern(session.pattern) : null;
+        if (pattern != null) {
+            animatedPanel.setPattern(pattern);
+        }
+        if (session.color != null) {
+            animatedPanel.setAnimationColor(session.color);
+        }
+        animatedPanel.setAnimationSpeed(session.speed);
+        animatedPanel.setStarCount(session.starCount);
+    }
+
+    // Reabre as abas da última execução sem ler os arquivos: só a aba exibida carrega agora,
+    // as outras quando forem escolhidas. false se nenhum dos arquivos existe mais.
+    private boolean restoreTabs(SessionSnapshot session) {
+        int selected = 0;
+        restoring = true;
+        try {
+            for (int i = 0; i < session.tabs.size(); i++) {
+                SessionSnapshot.Tab saved = session.tabs.get(i);
+                if (!Files.isRegularFile(saved.path)) {
+                    continue; // apagado ou movido desde então
+                }
+                if (i == session.activeTab) {
+                    selected = tabs.size();
+                }
+                EditorTab tab = createTab();
+                tab.path = saved.path;
+                tab.name = saved.path.getFileName().toString();
+                tab.caret = saved.caret;
+                tab.viewPosition = new Point(saved.viewX, saved.viewY);
+                tab.fileInfo = saved.info;
+                tab.restored = true;
+                addTab(tab);
+            }
+        } finally {
+            restoring = false;
+        }
+        if (tabs.isEmpty()) {
+            return false;
+        }
+        tabBar.setSelectedIndex(selected);
+        activate(tabs.get(selected)); // se o índice não mudou, a troca de aba não chamou activate()
+        return true;
+    }
 
-            } catch (Exception ex) {
+    // Ao sair: grava as abas e o fundo para a próxima execução começar daqui.
+    // Abas com alterações não salvas ficam de fora; elas voltam pelo diário de edições.
+    private void saveSession() {
+        if (active != null) {
+            rememberView(active);
+        }
+        SessionSnapshot session = new SessionSnapshot();
+        BackgroundPattern pattern = animatedPanel.getPattern();
+        session.pattern = pattern != null ? pattern.getName() : null;
+        session.color = animatedPanel.getChosenColor();
+        session.speed = animatedPanel.getAnimationSpeed();
+        session.starCount = animatedPanel.getStarCount();
+        for (EditorTab tab : tabs) {
+            if (tab.path == null || tab.isModified()) {
+                continue;
+            }
+            if (tab == active) {
+                session.activeTab = session.tabs.size();
+            }
+            session.tabs.add(new SessionSnapshot.Tab(tab.path, tab.caret,
+                    tab.viewPosition.x, tab.viewPosition.y, sessionInfo(tab)));
+        }
+        try {
+            session.save();
+        } catch (IOException ex) {
+            System.err.println("Sessão não foi gravada: " + ex.getMessage());
+        }
+    }
+
+    // O que se sabe do arquivo da aba, com os inícios de linha dos arquivos grandes que estão na memória
+    private static SessionSnapshot.FileInfo sessionInfo(EditorTab tab) {
+        SessionSnapshot.FileInfo info = tab.fileInfo;
+        if (info != null && !tab.restored && info.size >= SessionSnapshot.MIN_INDEXED_SIZE
+                && tab.getDocument() instanceof PieceTableDocument) {
+            info.lineStarts = ((PieceTableDocument) tab.getDocument()).getLineIndex().toArray();
+        }
+        return info; // ainda não carregada: como veio da sessão anterior
+    }
+
+    private void modifiedChanged(EditorTab tab) {
+        updateTabTitle(tab);
+        if (tab == active) {
+            updateTitle();
+        }
+    }
+
+    private void statisticsChanged(EditorTab tab) {
+        if (tab == active) {
+            updateFileStats();
+        }
+    }
+
+    private void updateTabTitle(EditorTab tab) {
+        int index = tabs.indexOf(tab);
+        if (index >= 0) {
+            tabBar.setTitleAt(index, (tab.isModified() ? "*" : "") + tab.getDisplayName());
+            tabBar.setToolTipTextAt(index, tab.path != null ? tab.path.toString() : null);
+        }
+    }
+
+    // --- Orçamento de memória ---
+
+    // Despeja as abas usadas há mais tempo até os documentos caberem no orçamento
+    private void enforceMemoryBudget() {
+        long total = 0;
+        List<EditorTab> candidates = new ArrayList<>();
+        for (EditorTab tab : tabs) {
+            total += tab.estimatedBytes();
+            if (tab != active && tab.isEvictable()) {
+                candidates.add(tab);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(tab -> tab.lastUsed));
+        for (EditorTab tab : candidates) {
+            if (total <= TAB_MEMORY_BUDGET) {
+                break;
+            }
+            total -= tab.estimatedBytes();
+            evict(tab);
+        }
+    }
+
+    private void evict(EditorTab tab) {
+        if (!tab.isModified() && tab.path != null) {
+            // Igual ao disco: basta reler o arquivo quando a aba voltar
+            tab.journal.close(false);
+            tab.journal = null;
+            tab.release();
+            return;
+        }
+        // Com alterações: o texto vai para um temporário em UTF-8, com BOM para a codificação ser reconhecida ao voltar
+        Path spill;
+        try {
+            spill = Files.createTempFile("javanotepad-", ".spill");
+        } catch (IOException ex) {
+            System.err.println("Não foi possível despejar a aba " + tab.getDisplayName() + ": " + ex.getMessage());
+            return;
+        }
+        FileSaver spiller = new FileSaver(snapshot(tab.getDocument()), spill, StandardCharsets.UTF_8, "\n", true,
+                tab.getVersion(), finished -> spilled(tab, finished));
+        tab.spiller = spiller;
+        spiller.execute();
+    }
+
+    private void spilled(EditorTab tab, FileSaver finished) {
+        tab.spiller = null;
+        try {
+            finished.get();
+        } catch (Exception ex) {
+            deleteQuietly(finished.getTarget());
+            return; // continua na memória
+        }
+        if (tab == active || !tabs.contains(tab) || tab.getVersion() != finished.getVersion()) {
+            deleteQuietly(finished.getTarget()); // voltou a ser usada enquanto era gravada
+            return;
+        }
+        Document document = tab.getDocument();
+        tab.spill = finished.getTarget();
+        tab.charset = document.getProperty(FileLoader.CHARSET_PROPERTY);
+        tab.lineEnding = document.getProperty(DefaultEditorKit.EndOfLineStringProperty);
+        tab.bom = document.getProperty(FileLoader.BOM_PROPERTY);
+        tab.lossy = document.getProperty(FileLoader.LOSSY_PROPERTY);
+        tab.mixedLineEndings = document.getProperty(FileLoader.MIXED_LINE_ENDINGS_PROPERTY);
+        tab.journal.detach(); // o diário continua valendo para a recuperação
+        tab.release();
+    }
+
+    private void deleteSpill(EditorTab tab) {
+        if (tab.spill != null) {
+            deleteQuietly(tab.spill);
+            tab.spill = null;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            System.err.println("Não foi possível apagar " + path + ": " + ex.getMessage());
+        }
+    }
+
+    private void showFindDialog() {
+        if (findDialog() != null) {
+            findDialog.open();
+        }
+    }
+
+    // O diálogo procura no editor; o visualizador somente leitura não tem busca
+    private FindReplaceDialog findDialog() {
+        if (active.viewer != null) {
+            statusBar.setText("A busca não está disponível no visualizador de arquivos grandes");
+            return null;
+        }
+        if (findDialog == null) {
+            findDialog = new FindReplaceDialog(this, textArea, scrollPane.getViewport());
+        }
+        return findDialog;
+    }
+
+    private void undo() {
+        EditHistory history = active.getHistory();
+        if (history == null || textArea.getDocument() != active.getDocument() || !history.canUndo()) {
+            statusBar.setText("Nada para desfazer");
+            return;
+        }
+        history.undo();
+    }
+
+    private void redo() {
+        EditHistory history = active.getHistory();
+        if (history == null || textArea.getDocument() != active.getDocument() || !history.canRedo()) {
+            statusBar.setText("Nada para refazer");
+            return;
+        }
+        history.redo();
+    }
+
+    // Leva o cursor ao começo da linha pedida, centralizando-a na tela
+    private void goToLine() {
+        EditorTab tab = active;
+        if (tab == null || (tab.viewer == null && tab.getDocument() == null)) {
+            return;
+        }
+        long lines;
+        long current;
+        if (tab.viewer != null) {
+            lines = tab.viewer.getLineCount();
+            current = 1;
+        } else {
+            Document document = tab.getDocument();
+            lines = LineIndex.lineCount(document);
+            current = LineIndex.lineOfOffset(document, textArea.getCaretPosition()) + 1;
+        }
+        Object answer = JOptionPane.showInputDialog(this, String.format("Linha (1 a %d):", lines),
+                "Ir para Linha", JOptionPane.PLAIN_MESSAGE, null, null, current);
+        if (answer == null) {
+            return;
+        }
+        long line;
+        try {
+            line = Long.parseLong(answer.toString().trim());
+        } catch (NumberFormatException ex) {
+            line = -1;
+        }
+        if (line < 1 || line > lines) {
+            JOptionPane.showMessageDialog(this,
+                    String.format("Digite um número de linha entre 1 e %d.", lines),
+                    "Ir para Linha",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (tab != active) {
+            return; // a aba mudou enquanto o diálogo estava aberto
+        }
+        if (tab.viewer != null) {
+            tab.viewer.scrollToLine(line - 1);
+            return;
+        }
+        Document document = tab.getDocument();
+        int offset = LineIndex.lineStart(document, (int) line - 1);
+        textArea.setCaretPosition(offset);
+        try {
+            Rectangle r = textArea.modelToView2D(offset).getBounds();
+            Rectangle view = scrollPane.getViewport().getViewRect();
+            textArea.scrollRectToVisible(new Rectangle(0, r.y - (view.height - r.height) / 2, 1, view.height));
+        } catch (BadLocationException ex) {
+            // a posição veio do próprio documento
+        }
+        textArea.requestFocusInWindow();
+    }
+
+    // --- Modo Seguir ---
+
+    private void toggleFollow() {
+        EditorTab tab = active;
+        if (tab.follower != null) {
+            stopFollowing(tab);
+        } else {
+            startFollowing(tab);
+        }
+        followItem.setSelected(tab.follower != null);
+    }
+
+    // Troca o texto da aba pelo final do arquivo e passa a acrescentar o que for escrito nele
+    private void startFollowing(EditorTab tab) {
+        if (tab.path == null) {
+            statusBar.setText("Salve o documento num arquivo antes de segui-lo");
+            return;
+        }
+        if (tab.loader != null || tab.saver != null || tab.spiller != null) {
+            statusBar.setText("Espere o arquivo terminar de carregar ou de ser salvo");
+            return;
+        }
+        if (tab.isModified()) {
+            statusBar.setText("Salve ou desfaça as alterações antes de seguir o arquivo");
+            return;
+        }
+        Charset charset;
+        try {
+            charset = CharsetDetector.detect(tab.path).charset;
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this,
+                    "Não foi possível abrir o arquivo.\n" + ex.getMessage(),
+                    "Erro de Leitura",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (tab.viewer != null) {
+            tab.viewer.close();
+            tab.viewer = null;
+        }
+        if (tab.journal != null) {
+            tab.journal.close(false); // o texto seguido não é editado
+            tab.journal = null;
+        }
+        deleteSpill(tab);
+        PieceTableDocument document = new PieceTableDocument();
+        document.putProperty(FileLoader.CHARSET_PROPERTY, charset);
+        tab.stats = new TextStatistics(() -> statisticsChanged(tab));
+        tab.stats.install(document);
+        tab.setDocument(document);
+        tab.setUndoable(false);
+        updateSyntax(tab);
+        tab.markClean();
+        tab.loaded = true;
+        tab.restored = false;
+        tab.fileInfo = null; // o texto passa a ser o do final do arquivo
+
+        LogFollower[] follower = new LogFollower[1];
+        follower[0] = new LogFollower(tab.path, charset, FOLLOW_MAX_LINES, batch -> followed(tab, follower[0], batch));
+        tab.follower = follower[0];
+        follower[0].start();
+        if (tab == active) {
+            showDocument(tab);
+            updateFileStats();
+        }
+    }
+
+    // Um lote de texto novo: acrescenta, corta as linhas mais antigas e acompanha o fim
+    private void followed(EditorTab tab, LogFollower follower, LogFollower.Batch batch) {
+        if (tab.follower != follower || !(tab.getDocument() instanceof PieceTableDocument)) {
+            return;
+        }
+        if (batch.document != null) {
+            // Montado e contado fora da EDT: só passa a ser o documento da aba
+            tab.stats.install(batch.document, batch.statistics);
+            tab.setDocument(batch.document);
+            updateSyntax(tab);
+            tab.markClean();
+            if (tab == active) {
+                showDocument(tab); // acompanha o fim do texto novo
+                updateFileStats();
+            }
+            return;
+        }
+        PieceTableDocument document = (PieceTableDocument) tab.getDocument();
+        boolean shown = tab == active && textArea.getDocument() == document;
+        // Só acompanha o fim se o cursor estava nele: quem subiu para ler não é puxado de volta
+        boolean atEnd = shown && textArea.getCaretPosition() == document.getLength();
+        try {
+            if (batch.replace) {
+                document.replace(0, document.getLength(), batch.text, null);
+            } else {
+                document.insertString(document.getLength(), batch.text, null);
+            }
+            LineIndex lines = document.getLineIndex();
+            int excess = lines.getLineCount() - FOLLOW_MAX_LINES;
+            if (excess > 0) {
+                document.remove(0, lines.getLineStart(excess));
+            }
+        } catch (BadLocationException ex) {
+            throw new IllegalStateException(ex);
+        }
+        tab.markClean(); // igual ao final do arquivo; não há o que salvar
+        if (atEnd) {
+            textArea.setCaretPosition(document.getLength());
+        }
+    }
+
+    // Volta a ser um documento comum; se só o final do arquivo está na aba, ela perde o vínculo com ele
+    private void stopFollowing(EditorTab tab) {
+        boolean partial = tab.follower.isPartial();
+        tab.follower.stop();
+        tab.follower = null;
+        tab.setUndoable(true);
+        if (partial) {
+            tab.path = null; // salvar por cima apagaria o começo do arquivo
+            updateTabTitle(tab);
+            updateTitle();
+        }
+        resetJournal(tab);
+        if (tab == active) {
+            showDocument(tab);
+            statusBar.setText(partial
+                    ? "Arquivo não é mais seguido; a aba tem só o final dele (use Salvar Como para gravá-lo)"
+                    : "Arquivo não é mais seguido");
+        }
+    }
+
+    // --- Salvamento ---
+
+    private void saveFile() {
+        if (active.follower != null) {
+            statusBar.setText("Pare de seguir o arquivo antes de salvar");
+            return;
+        }
+        if (active.path == null || active.viewer != null) {
+            saveFileAs();
+        } else {
+            startSave(active, active.path, false);
+        }
+    }
+
+    private void saveFileAs() {
+        EditorTab tab = active;
+        if (tab.follower != null) {
+            statusBar.setText("Pare de seguir o arquivo antes de salvar");
+            return;
+        }
+        if (tab.viewer != null || tab.getDocument() == null) {
+            statusBar.setText("Não há documento editável para salvar");
+            return;
+        }
+        JFileChooser fileChooser = new JFileChooser();
+        if (tab.path != null) {
+            fileChooser.setSelectedFile(tab.path.toFile());
+        }
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path target = fileChooser.getSelectedFile().toPath().toAbsolutePath();
+        if (Files.exists(target) && !target.equals(tab.path)
+                && JOptionPane.showConfirmDialog(this,
+                        "O arquivo " + target.getFileName() + " já existe. Deseja substituí-lo?",
+                        "Salvar Como", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+        startSave(tab, target, false);
+    }
+
+    // Grava um instantâneo do documento em segundo plano; a edição continua durante a gravação
+    private void startSave(EditorTab tab, Path target, boolean automatic) {
+        Document document = tab.getDocument();
+        if (tab.viewer != null || document == null || tab.loader != null) {
+            if (!automatic) {
+                statusBar.setText("Não há documento editável para salvar");
+            }
+            return;
+        }
+        if (tab.saver != null) {
+            if (!automatic) {
+                tab.pendingSave = target; // grava de novo quando o atual terminar
+            }
+            return;
+        }
+        if (Boolean.TRUE.equals(document.getProperty(FileLoader.LOSSY_PROPERTY))) {
+            // Bytes que não puderam ser lidos viraram U+FFFD: só grava isso com a concordância do usuário
+            if (automatic || JOptionPane.showConfirmDialog(this,
+                    tab.name + " tinha bytes inválidos em " + documentCharset(document).name()
+                            + ", que foram trocados por \uFFFD ao abrir.\n"
+                            + "Salvar grava essa troca no arquivo. Deseja salvar mesmo assim?",
+                    "Salvar", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+        Object mixed = document.getProperty(FileLoader.MIXED_LINE_ENDINGS_PROPERTY);
+        if (mixed != null) {
+            // Cada linha volta com a quebra mais frequente: só uniformiza com a concordância do usuário
+            if (automatic || JOptionPane.showConfirmDialog(this,
+                    tab.name + " mistura quebras de linha (" + mixed + ").\n"
+                            + "Salvar grava todas como " + describeLineEnding(documentLineEnding(document))
+                            + ". Deseja salvar mesmo assim?",
+                    "Salvar", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+        boolean bom = Boolean.TRUE.equals(document.getProperty(FileLoader.BOM_PROPERTY));
+        long journalMark = tab.journal.mark();
+        FileSaver fileSaver = new FileSaver(snapshot(document), target, documentCharset(document),
+                documentLineEnding(document), bom, tab.getVersion(),
+                finished -> saveFinished(tab, finished, document, automatic, journalMark));
+        if (!automatic) {
+            fileSaver.addPropertyChangeListener(e -> {
+                if ("progress".equals(e.getPropertyName()) && tab == active) {
+                    statusBar.setText(String.format("Salvando %s... %d%%", target.getFileName(), (Integer) e.getNewValue()));
+                }
+            });
+            statusBar.setText("Salvando " + target.getFileName() + "...");
+        }
+        tab.saver = fileSaver;
+        fileSaver.execute();
+    }
+
+    private void saveFinished(EditorTab tab, FileSaver finished, Document document, boolean automatic,
+                              long journalMark) {
+        tab.saver = null;
+        try {
+            finished.get();
+            if (document == tab.getDocument()) { // a aba não foi fechada nem recarregada no meio
+                tab.path = finished.getTarget();
+                tab.name = tab.path.getFileName().toString();
+                updateSyntax(tab); // Salvar Como pode mudar a extensão
+                tab.journal.compact(journalMark, tab.path); // fica só o que mudou depois do instantâneo
+                tab.markSaved(finished.getVersion());
+                tab.fileInfo = null; // o arquivo no disco mudou
+                document.putProperty(FileLoader.LOSSY_PROPERTY, null); // agora o arquivo é o que está na tela
+                document.putProperty(FileLoader.MIXED_LINE_ENDINGS_PROPERTY, null);
+                if (tab == active) {
+                    if (automatic) {
+                        updateFileStats();
+                    } else {
+                        statusBar.setText("Arquivo salvo: " + tab.name);
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            if (automatic) {
+                statusBar.setText("Falha no salvamento automático: " + cause.getMessage());
+            } else if (cause instanceof FileSaver.UnmappableTextException && document == tab.getDocument()) {
+                // Nada foi gravado; o usuário escolhe entre trocar a codificação e continuar sem salvar
+                if (JOptionPane.showConfirmDialog(this,
+                        "Não foi possível salvar o arquivo: " + cause.getMessage() + ".\n"
+                                + "Deseja salvá-lo em UTF-8?",
+                        "Erro de Gravação", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE)
+                        == JOptionPane.YES_OPTION) {
+                    document.putProperty(FileLoader.CHARSET_PROPERTY, StandardCharsets.UTF_8);
+                    document.putProperty(FileLoader.BOM_PROPERTY, false);
+                    if (tab.pendingSave == null) {
+                        tab.pendingSave = finished.getTarget();
+                    }
+                } else {
+                    updateFileStats();
+                }
+            } else {
                 JOptionPane.showMessageDialog(this,
-                        "Não foi possível abrir o arquivo.\nEle pode ser um arquivo binário ou estar corrompido.",
-                        "Erro de Leitura",
+                        "Não foi possível salvar o arquivo.\n" + cause.getMessage(),
+                        "Erro de Gravação",
                         JOptionPane.ERROR_MESSAGE);
-                // Limpa a área de texto em caso de falha na leitura
-                closeFile();
+                updateFileStats();
+            }
+        }
+        if (tab.pendingSave != null && tabs.contains(tab)) {
+            Path target = tab.pendingSave;
+            tab.pendingSave = null;
+            startSave(tab, target, false);
+        }
+        if (tab.closeAfterSave && tab.saver == null) {
+            tab.closeAfterSave = false;
+            if (tabs.contains(tab) && !tab.isModified()) { // falhou ou foi editada de novo: continua aberta
+                closeTab(tab);
             }
         }
     }
 
-    private void closeFile() {
-        this.currentFileName = null;
-        textArea.setText("");
-        statusBar.setText("Pronto");
+    private static TextSnapshot snapshot(Document document) {
+        if (document instanceof PieceTableDocument) {
+            return ((PieceTableDocument) document).snapshot();
+        }
+        try {
+            return TextSnapshot.of(document.getText(0, document.getLength()).toCharArray());
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Começa um diário novo para a aba; as edições do anterior foram salvas ou descartadas
+    private void resetJournal(EditorTab tab) {
+        if (tab.journal != null) {
+            tab.journal.close(false);
+        }
+        tab.journal = new EditJournal(tab.getDocument(), tab.path);
+    }
+
+    private void updateTitle() {
+        if (active == null || active.name == null) {
+            setTitle(TITLE);
+        } else {
+            setTitle((active.isModified() ? "*" : "") + active.name + " - " + TITLE);
+        }
     }
 
+    // --- Recuperação ---
+
+    // Oferece reaplicar as edições de diários deixados por execuções que
+    // terminaram sem salvar; cada documento recuperado abre numa aba
+    void recover(List<Path> journalFiles) {
+        List<EditJournal.Recovery> recoveries = new ArrayList<>();
+        StringBuilder names = new StringBuilder();
+        for (Path journalFile : journalFiles) {
+            try {
+                EditJournal.Recovery recovery = EditJournal.Recovery.read(journalFile);
+                if (recovery.getEditCount() == 0) {
+                    recovery.discard();
+                    continue;
+                }
+                recoveries.add(recovery);
+                names.append(String.format("\n%s (%d edições)", recoveryName(recovery), recovery.getEditCount()));
+            } catch (IOException ex) {
+                System.err.println("Diário de edições ilegível: " + ex.getMessage());
+            }
+        }
+        if (recoveries.isEmpty()) {
+            return;
+        }
+        int answer = JOptionPane.showConfirmDialog(this,
+                "Há edições não salvas de uma sessão anterior:" + names + "\nDeseja recuperá-las?",
+                "Recuperar Alterações", JOptionPane.YES_NO_OPTION);
+        for (EditJournal.Recovery recovery : recoveries) {
+            if (answer != JOptionPane.YES_OPTION) {
+                recovery.discard();
+            } else if (recovery.getOriginal() == null) {
+                if (!active.isPristine()) {
+                    newTab();
+                }
+                replay(active, recovery);
+            } else if (recovery.matchesOriginal()) {
+                open(recovery.getOriginal().toFile(), recovery);
+            } else {
+                JOptionPane.showMessageDialog(this,
+                        "O arquivo " + recoveryName(recovery) + " foi alterado ou removido depois da sessão anterior.\n"
+                        + "As edições não podem ser reaplicadas.",
+                        "Recuperar Alterações",
+                        JOptionPane.WARNING_MESSAGE);
+                recovery.discard();
+            }
+        }
+    }
+
+    private static String recoveryName(EditJournal.Recovery recovery) {
+        return recovery.getOriginal() != null ? recovery.getOriginal().getFileName().toString() : "Novo Documento";
+    }
+
+    // As edições reaplicadas entram no diário da aba antes de o antigo ser apagado
+    private void replay(EditorTab tab, EditJournal.Recovery recovery) {
+        try {
+            recovery.replay(tab.getDocument());
+            if (tab == active) {
+                textArea.setCaretPosition(0);
+                statusBar.setText(recovery.getEditCount() + " edições recuperadas");
+            }
+        } catch (BadLocationException ex) {
+            JOptionPane.showMessageDialog(this,
+                    "As edições recuperadas não correspondem ao arquivo; parte delas foi aplicada.",
+                    "Recuperar Alterações",
+                    JOptionPane.WARNING_MESSAGE);
+        }
+        tab.journal.flush();
+        recovery.discard();
+    }
+
+    // O seletor é criado na primeira vez e guarda a última cor escolhida
     private void chooseColor() {
-        Color newColor = JColorChooser.showDialog(this, "Escolha uma Cor para a Animação", Color.GREEN);
-        if (newColor != null) {
-            animatedPanel.setAnimationColor(newColor);
+        if (colorDialog == null) {
+            colorChooser = new JColorChooser(Color.GREEN);
+            colorDialog = JColorChooser.createDialog(this, "Escolha uma Cor para a Animação", true, colorChooser,
+                    e -> animatedPanel.setAnimationColor(colorChooser.getColor()), null);
         }
+        colorDialog.setVisible(true);
     }
 
     private void showHelpDialog() {
-        HelpDialog helpDialog = new HelpDialog(this);
+        if (helpDialog == null) {
+            helpDialog = new HelpDialog(this);
+        }
         helpDialog.setVisible(true);
     }
 
     private void showAboutDialog() {
-        ImageIcon icon = loadIcon("app_icon.png", 25, 25);
+        ImageIcon icon = IconCache.get("app_icon.png", 25);
         JOptionPane.showMessageDialog(this,
                 "Aplicação: Notepad com Fundo Dinâmico\nVersão: 1.0\nAutores: Augusto Toledo Caires de Oliveira - 199793\n"
                 + "Davi Paiva Souza - 222481\n"
@@ -258,29 +1468,70 @@ public class MainFrame extends JFrame {
     }
 
     private void updateFileStats() {
-        String fileName = (this.currentFileName == null) ? "Novo Documento" : this.currentFileName;
-        String content = textArea.getText();
-        if (content.isEmpty()) {
+        if (active == null || active.loader != null) {
+            return; // a barra de status mostra o progresso do carregamento
+        }
+        long start = System.nanoTime();
+        showFileStats();
+        monitor.recordStatusUpdate(System.nanoTime() - start);
+    }
+
+    private void showFileStats() {
+        String fileName = active.getDisplayName();
+        LargeFileViewer viewer = active.viewer;
+        if (viewer != null) {
+            String lines = viewer.isIndexing()
+                    ? String.format("%d (indexando... %d%%)", viewer.getLineCount(), viewer.getIndexProgress())
+                    : String.valueOf(viewer.getLineCount());
+            statusBar.setText(String.format("Arquivo: %s | Somente leitura | Linhas: %s | %s",
+                    fileName, lines, viewer.getCharset().name()));
+            return;
+        }
+        Document document = active.getDocument();
+        if (document == null) {
             statusBar.setText("Arquivo: " + fileName);
             return;
         }
+        // Busca binária no índice de linhas; roda a cada movimento do cursor
+        int caret = textArea.getDocument() == document ? textArea.getCaretPosition() : 0;
+        int caretLine = LineIndex.lineOfOffset(document, caret);
+        int caretColumn = caret - LineIndex.lineStart(document, caretLine);
+        String position = String.format("Lin %d, Col %d", caretLine + 1, caretColumn + 1);
+        if (document.getLength() == 0) {
+            statusBar.setText("Arquivo: " + fileName + " | " + position);
+            return;
+        }
 
-        // Calcula as estatísticas
-        int lineCount = content.isEmpty() ? 0 : content.split("\r\n|\r|\n").length;
-        int wordCount = content.trim().isEmpty() ? 0 : content.trim().split("\\s+").length;
+        // Estatísticas mantidas incrementalmente a cada edição
+        int lineCount = active.stats.getLineCount();
+        int wordCount = active.stats.getWordCount();
 
-        statusBar.setText(String.format("Arquivo: %s | Linhas: %d | Palavras: %d", fileName, lineCount, wordCount));
+        statusBar.setText(String.format("Arquivo: %s | %s | Linhas: %d | Palavras: %d | %s | %s",
+                fileName, position, lineCount, wordCount, documentCharset(document).name(),
+                describeLineEnding(documentLineEnding(document))
+                        + (document.getProperty(FileLoader.MIXED_LINE_ENDINGS_PROPERTY) != null ? " (misto)" : "")));
     }
 
-    private ImageIcon loadIcon(String fileName, int width, int height) {
-        try {
-            ImageIcon icon = new ImageIcon(getClass().getResource("/resources/icons/" + fileName));
-            Image img = icon.getImage();
-            Image resized = img.getScaledInstance(width, height, Image.SCALE_SMOOTH);
-            return new ImageIcon(resized);
-        } catch (Exception e) {
-            System.err.println("Ícone não encontrado: " + fileName);
-            return null;
+    // Codificação com que o documento foi lido (UTF-8 para documentos novos)
+    private static Charset documentCharset(Document document) {
+        Object charset = document.getProperty(FileLoader.CHARSET_PROPERTY);
+        return charset instanceof Charset ? (Charset) charset : StandardCharsets.UTF_8;
+    }
+
+    // Quebra de linha original do arquivo (a do sistema para documentos novos)
+    private static String documentLineEnding(Document document) {
+        Object lineEnding = document.getProperty(DefaultEditorKit.EndOfLineStringProperty);
+        return lineEnding instanceof String ? (String) lineEnding : System.lineSeparator();
+    }
+
+    private static String describeLineEnding(String lineEnding) {
+        switch (lineEnding) {
+            case "\r\n":
+                return "CRLF";
+            case "\r":
+                return "CR";
+            default:
+                return "LF";
         }
     }
 }
@@ -0,0 +1,151 @@
+package com.javanotepad;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Colunas de caracteres caindo, cada uma com um rastro que se apaga.
+ * <p>
+ * Cada célula do rastro é uma partícula do bloco: y guarda a linha (-1 se a
+ * célula ainda está vazia) e o valor guarda o caractere.
+ */
+public final class MatrixRainPattern implements BackgroundPattern {
+
+    private static final int TRAIL_LENGTH = 20; // células do rastro de cada coluna, incluindo a cabeça
+    private static final int FONT_SIZE = 16;
+    private static final String CHARS
+            = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ1234567890@#$%^&*()";
+
+    // Só na thread do relógio
+    private final Random random = new Random();
+    private ParticlePool.Block trail;
+    private int height;
+    private int[] drops;
+    // Últimas TRAIL_LENGTH posições de cada coluna, em anel: a célula com idade a
+    // da coluna i é a partícula i * TRAIL_LENGTH + (trailHead - a) mod TRAIL_LENGTH
+    private int trailHead;
+    private long steps; // muda a cada passo; sem passo novo o quadro não muda
+    private long capturedSteps = -1;
+
+    // Só na EDT
+    private final Font font = new Font("Monospaced", Font.PLAIN, FONT_SIZE);
+    private GlyphAtlas glyphAtlas;
+
+    private static final class RainFrame implements Frame {
+        int columns;
+        int trailHead;
+        int[] rows = new int[0];
+        int[] glyphs = new int[0];
+    }
+
+    public MatrixRainPattern() {
+    }
+
+    @Override
+    public String getName() {
+        return "Matrix Rain";
+    }
+
+    @Override
+    public Color getDefaultColor() {
+        return Color.GREEN;
+    }
+
+    @Override
+    public void resize(Context context, int width, int height) {
+        this.height = height;
+        int columns = Math.max(1, width / FONT_SIZE);
+        ParticlePool pool = context.getPool();
+        if (trail == null || trail.getCount() != columns * TRAIL_LENGTH) {
+            if (trail != null) {
+                pool.release(trail);
+            }
+            trail = pool.acquire(columns * TRAIL_LENGTH);
+            drops = new int[columns];
+        }
+        int start = trail.getStart();
+        Arrays.fill(pool.getY(), start, start + trail.getCount(), -1); // rastro ainda vazio
+        for (int i = 0; i < columns; i++) {
+            drops[i] = random.nextInt(Math.max(1, height / FONT_SIZE));
+        }
+        steps++;
+    }
+
+    @Override
+    public void update(Context context) {
+        ParticlePool pool = trail.getPool();
+        float[] rows = pool.getY();
+        int[] glyphs = pool.getValues();
+        int base = trail.getStart();
+        int head = (trailHead + 1) % TRAIL_LENGTH;
+        for (int i = 0; i < drops.length; i++) {
+            if (drops[i] * FONT_SIZE > height && random.nextFloat() > 0.975) {
+                drops[i] = 0;
+            }
+            drops[i]++;
+            rows[base + i * TRAIL_LENGTH + head] = drops[i];
+            glyphs[base + i * TRAIL_LENGTH + head] = random.nextInt(CHARS.length());
+        }
+        trailHead = head;
+        steps++;
+    }
+
+    @Override
+    public boolean needsFrame() {
+        return steps != capturedSteps; // a chuva anda em células inteiras
+    }
+
+    @Override
+    public Frame createFrame() {
+        return new RainFrame();
+    }
+
+    @Override
+    public void capture(Frame frame, float alpha) {
+        RainFrame f = (RainFrame) frame;
+        int cells = trail.getCount();
+        if (f.rows.length != cells) {
+            f.rows = new int[cells];
+            f.glyphs = new int[cells];
+        }
+        ParticlePool pool = trail.getPool();
+        float[] rows = pool.getY();
+        int base = trail.getStart();
+        for (int i = 0; i < cells; i++) {
+            f.rows[i] = (int) rows[base + i];
+        }
+        System.arraycopy(pool.getValues(), base, f.glyphs, 0, cells);
+        f.columns = drops.length;
+        f.trailHead = trailHead;
+        capturedSteps = steps;
+    }
+
+    // Desenha cada coluna com o rastro se apagando; só cópias de células do atlas
+    @Override
+    public void render(Graphics2D g, Frame frame, Color color, boolean antialias) {
+        RainFrame f = (RainFrame) frame;
+        int[] rows = f.rows;
+        int[] glyphs = f.glyphs;
+        GlyphAtlas atlas = glyphAtlas(g, color, antialias);
+        for (int age = TRAIL_LENGTH - 1; age >= 0; age--) {
+            int slot = (f.trailHead - age + TRAIL_LENGTH) % TRAIL_LENGTH;
+            for (int i = 0; i < f.columns; i++) {
+                int row = rows[i * TRAIL_LENGTH + slot];
+                if (row >= 0) {
+                    atlas.draw(g, glyphs[i * TRAIL_LENGTH + slot], age, i * FONT_SIZE, row * FONT_SIZE);
+                }
+            }
+        }
+    }
+
+    // Caracteres já desenhados na cor atual; refeito só quando a cor ou a suavização muda
+    private GlyphAtlas glyphAtlas(Graphics2D g, Color color, boolean antialias) {
+        if (glyphAtlas == null || !glyphAtlas.matches(font, color, TRAIL_LENGTH, antialias)) {
+            glyphAtlas = GlyphAtlas.build(g.getDeviceConfiguration(), CHARS, font, color, TRAIL_LENGTH, antialias);
+        }
+        return glyphAtlas;
+    }
+}
@@ -0,0 +1,137 @@
+package com.javanotepad;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Partículas de todos os padrões de fundo, em arrays separados por atributo
+ * (posição x, y e z e um valor inteiro livre) preparados uma única vez.
+ * <p>
+ * Cada padrão pede um {@link Block} quando é dimensionado e fica com ele
+ * enquanto o tamanho não muda, mesmo quando outro padrão está na tela: voltar a
+ * um padrão encontra as partículas onde estavam. Um bloco devolvido deixa um
+ * espaço que o próximo pedido que couber ali reaproveita. Os arrays só crescem
+ * quando nenhum espaço livre comporta o pedido e nunca encolhem, por isso quem
+ * usa um bloco pega os arrays do pool a cada passo em vez de guardá-los.
+ * Usado só pela thread do relógio.
+ */
+public final class ParticlePool {
+
+    public static final int DEFAULT_CAPACITY = 16_384;
+
+    private float[] x;
+    private float[] y;
+    private float[] z;
+    private int[] values;
+    private final List<Block> blocks = new ArrayList<>(); // em uso, em ordem de início
+
+    public ParticlePool(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    public float[] getX() {
+        return x;
+    }
+
+    public float[] getY() {
+        return y;
+    }
+
+    public float[] getZ() {
+        return z;
+    }
+
+    public int[] getValues() {
+        return values;
+    }
+
+    public int getCapacity() {
+        return x.length;
+    }
+
+    // Partículas em blocos ainda não devolvidos
+    public int getUsed() {
+        int used = 0;
+        for (Block block : blocks) {
+            used += block.count;
+        }
+        return used;
+    }
+
+    // Reserva count partículas seguidas; o conteúdo é o que sobrou de quem as usou antes
+    public Block acquire(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count < 0: " + count);
+        }
+        // Primeiro espaço livre em que o bloco cabe
+        int start = 0;
+        int index = 0;
+        while (index < blocks.size() && blocks.get(index).start - start < count) {
+            Block block = blocks.get(index++);
+            start = block.start + block.count;
+        }
+        if (start + count > x.length) {
+            grow(start + count);
+        }
+        Block block = new Block(this, start, count);
+        blocks.add(index, block);
+        return block;
+    }
+
+    // Devolve o bloco ao pool; devolver de novo não faz nada
+    public void release(Block block) {
+        if (block.pool != this) {
+            throw new IllegalArgumentException("Bloco de outro pool");
+        }
+        blocks.remove(block);
+    }
+
+    private void grow(int minCapacity) {
+        float[] oldX = x;
+        float[] oldY = y;
+        float[] oldZ = z;
+        int[] oldValues = values;
+        allocate(Math.max(minCapacity, oldX.length + oldX.length / 2));
+        System.arraycopy(oldX, 0, x, 0, oldX.length);
+        System.arraycopy(oldY, 0, y, 0, oldY.length);
+        System.arraycopy(oldZ, 0, z, 0, oldZ.length);
+        System.arraycopy(oldValues, 0, values, 0, oldValues.length);
+    }
+
+    private void allocate(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        z = new float[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * Faixa de partículas reservada por um padrão: os índices de
+     * {@link #getStart()} até {@code getStart() + getCount() - 1} nos arrays do
+     * pool.
+     */
+    public static final class Block {
+
+        private final ParticlePool pool;
+        private final int start;
+        private final int count;
+
+        private Block(ParticlePool pool, int start, int count) {
+            this.pool = pool;
+            this.start = start;
+            this.count = count;
+        }
+
+        public ParticlePool getPool() {
+            return pool;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
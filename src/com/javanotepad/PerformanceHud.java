@@ -0,0 +1,91 @@
+package com.javanotepad;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+
+/**
+ * Quadro com as medições do {@link PerformanceMonitor}, desenhado sobre a
+ * janela (usado como glass pane). Enquanto está oculto nada é atualizado; os
+ * valores só são lidos e formatados quando ele está visível.
+ */
+class PerformanceHud extends JComponent {
+
+    private static final int REFRESH_MS = 250;
+    private static final int MARGIN = 12;
+    private static final int PADDING = 8;
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+
+    private final PerformanceMonitor monitor;
+    private final Timer refresh;
+    private final Font font = new Font("Monospaced", Font.PLAIN, 12);
+
+    public PerformanceHud(PerformanceMonitor monitor) {
+        this.monitor = monitor;
+        this.refresh = new Timer(REFRESH_MS, e -> repaint());
+        setOpaque(false);
+        setVisible(false);
+    }
+
+    @Override
+    public void setVisible(boolean visible) {
+        super.setVisible(visible);
+        if (refresh == null) {
+            return; // chamado pelo construtor da superclasse
+        }
+        if (visible) {
+            refresh.start();
+        } else {
+            refresh.stop();
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        String[] lines = {
+            String.format("FPS        %5.1f / %d  (perdidos %d)",
+                    monitor.getAchievedFps(), monitor.getTargetFps(), monitor.getSkippedFrames()),
+            String.format("Simulação  p50 %6.2f  p99 %6.2f ms",
+                    monitor.getUpdateTimeP50(), monitor.getUpdateTimeP99()),
+            String.format("Pintura    p50 %6.2f  p99 %6.2f ms",
+                    monitor.getPaintTimeP50(), monitor.getPaintTimeP99()),
+            String.format("EDT        p50 %6.2f  p99 %6.2f  máx %.1f ms",
+                    monitor.getEdtLatencyP50(), monitor.getEdtLatencyP99(), monitor.getEdtLatencyMax()),
+            String.format("Tecla      p50 %6.2f  p99 %6.2f ms",
+                    monitor.getKeystrokeLatencyP50(), monitor.getKeystrokeLatencyP99()),
+            String.format("Status     p99 %6.2f ms", monitor.getStatusUpdateTimeP99()),
+            String.format("Abertura   última %.0f ms  (%d arquivos)",
+                    monitor.getLastLoadMillis(), monitor.getLoadCount()),
+            String.format("Partida    %d ms até a primeira pintura", monitor.getStartupMillis()),
+            String.format("Qualidade  %s, orçamento %d ms",
+                    monitor.getQualityLevel(), monitor.getLatencyBudgetMillis())
+        };
+
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setFont(font);
+        FontMetrics metrics = g2d.getFontMetrics();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, metrics.stringWidth(line));
+        }
+        int boxWidth = width + 2 * PADDING;
+        int boxHeight = lines.length * metrics.getHeight() + 2 * PADDING;
+        int x = getWidth() - boxWidth - MARGIN;
+        int y = MARGIN;
+
+        g2d.setColor(BACKGROUND);
+        g2d.fillRoundRect(x, y, boxWidth, boxHeight, 8, 8);
+        g2d.setColor(Color.WHITE);
+        int baseline = y + PADDING + metrics.getAscent();
+        for (String line : lines) {
+            g2d.drawString(line, x + PADDING, baseline);
+            baseline += metrics.getHeight();
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.javanotepad;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.swing.SwingUtilities;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Medições de desempenho da aplicação, sempre ligadas.
+ * <p>
+ * Registrar uma amostra custa duas leituras de {@link System#nanoTime()} e um
+ * incremento no {@link LatencyHistogram}; nada é formatado nem desenhado até
+ * alguém consultar, seja o {@link PerformanceHud} ou o MBean
+ * {@code com.javanotepad:type=Performance}. A latência da EDT é medida por um
+ * evento de sonda postado a cada {@value #PROBE_INTERVAL_MS} ms.
+ */
+public class PerformanceMonitor implements PerformanceMonitorMBean {
+
+    public static final String OBJECT_NAME = "com.javanotepad:type=Performance";
+
+    private static final long PROBE_INTERVAL_MS = 250;
+    private static final int FPS_WINDOW = 64; // quadros usados no cálculo de FPS
+
+    private final LatencyHistogram updateTime = new LatencyHistogram();
+    private final LatencyHistogram paintTime = new LatencyHistogram();
+    private final LatencyHistogram edtLatency = new LatencyHistogram();
+    private final LatencyHistogram keystrokeLatency = new LatencyHistogram();
+    private final LatencyHistogram statusUpdateTime = new LatencyHistogram();
+    private final LatencyHistogram loadTime = new LatencyHistogram();
+
+    // Instantes dos últimos quadros desenhados, escritos só pela EDT
+    private final long[] frameTimes = new long[FPS_WINDOW];
+    private volatile int frameCount;
+
+    private volatile FrameScheduler scheduler;
+    private volatile QualityGovernor governor;
+    private volatile long lastLoadNanos;
+    private volatile long startupMillis = -1; // do início do processo até a primeira pintura
+    private boolean registered; // guardado por this
+    private long keyTypedAt; // só na EDT; 0 sem tecla pendente
+    private ScheduledExecutorService prober;
+
+    // Começa a sondar a EDT e registra o MBean na thread da sonda: criar o
+    // servidor de MBeans leva mais de 100 ms e não deve atrasar a janela
+    public synchronized void start() {
+        if (prober != null) {
+            return;
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "PerformanceMonitor-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.execute(this::register);
+        prober.scheduleAtFixedRate(() -> {
+            long posted = System.nanoTime();
+            SwingUtilities.invokeLater(() -> edtLatency.record(System.nanoTime() - posted));
+        }, PROBE_INTERVAL_MS, PROBE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (prober == null) {
+            return;
+        }
+        prober.shutdownNow();
+        prober = null;
+        if (registered) {
+            registered = false;
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                // já removido
+            }
+        }
+    }
+
+    private synchronized void register() {
+        if (prober == null) {
+            return; // parado antes de registrar
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+            registered = true;
+        } catch (JMException e) {
+            System.err.println("monitor de desempenho nao registrado no JMX: " + e.getMessage());
+        }
+    }
+
+    // Relógio cujas metas e quadros perdidos são informados
+    public void setScheduler(FrameScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    // Governador que recebe as amostras de pintura e de digitação
+    public void setGovernor(QualityGovernor governor) {
+        this.governor = governor;
+    }
+
+    // --- REGISTRO ---
+
+    // Tempo de simulação gasto para produzir um quadro (passos e projeção)
+    public void recordUpdate(long nanos) {
+        updateTime.record(nanos);
+    }
+
+    // Pintura do fundo; chamado na EDT
+    public void recordPaint(long nanos) {
+        paintTime.record(nanos);
+        QualityGovernor g = governor;
+        if (g != null) {
+            g.framePainted(nanos);
+        }
+    }
+
+    // Um quadro novo chegou à tela; chamado na EDT
+    public void framePainted() {
+        int n = frameCount;
+        frameTimes[n % FPS_WINDOW] = System.nanoTime();
+        frameCount = n + 1;
+    }
+
+    // Tecla digitada no editor; a latência fecha no próximo textPainted()
+    public void keyTyped() {
+        if (keyTypedAt == 0) {
+            keyTypedAt = System.nanoTime();
+        }
+        QualityGovernor g = governor;
+        if (g != null) {
+            g.keyTyped();
+        }
+    }
+
+    public void textPainted() {
+        if (keyTypedAt != 0) {
+            long latency = System.nanoTime() - keyTypedAt;
+            keystrokeLatency.record(latency);
+            keyTypedAt = 0;
+            QualityGovernor g = governor;
+            if (g != null) {
+                g.keystrokePainted(latency);
+            }
+        }
+    }
+
+    public void recordStatusUpdate(long nanos) {
+        statusUpdateTime.record(nanos);
+    }
+
+    // Abertura de arquivo, da escolha até o texto estar no editor
+    public void recordLoad(long nanos) {
+        loadTime.record(nanos);
+        lastLoadNanos = nanos;
+    }
+
+    // A janela foi pintada pela primeira vez; conta desde o início do processo, com a subida da JVM
+    public void recordFirstPaint() {
+        if (startupMillis < 0) {
+            startupMillis = ProcessHandle.current().info().startInstant()
+                    .map(started -> Duration.between(started, Instant.now()).toMillis())
+                    .orElse(0L);
+        }
+    }
+
+    // --- CONSULTA ---
+
+    @Override
+    public int getTargetFps() {
+        FrameScheduler s = scheduler;
+        return s == null ? 0 : s.getTargetFps();
+    }
+
+    @Override
+    public double getAchievedFps() {
+        int n = frameCount;
+        int samples = Math.min(n, FPS_WINDOW);
+        if (samples < 2) {
+            return 0;
+        }
+        long newest = frameTimes[(n - 1) % FPS_WINDOW];
+        long oldest = frameTimes[(n - samples) % FPS_WINDOW];
+        if (System.nanoTime() - newest > 1_000_000_000L || newest <= oldest) {
+            return 0; // animação parada
+        }
+        return (samples - 1) * 1e9 / (newest - oldest);
+    }
+
+    @Override
+    public long getSkippedFrames() {
+        FrameScheduler s = scheduler;
+        return s == null ? 0 : s.getSkippedFrames();
+    }
+
+    @Override
+    public double getUpdateTimeP50() {
+        return updateTime.getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getUpdateTimeP99() {
+        return updateTime.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getPaintTimeP50() {
+        return paintTime.getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getPaintTimeP99() {
+        return paintTime.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getEdtLatencyP50() {
+        return edtLatency.getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getEdtLatencyP99() {
+        return edtLatency.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getEdtLatencyMax() {
+        return edtLatency.getMaxNanos() / 1e6;
+    }
+
+    @Override
+    public double getKeystrokeLatencyP50() {
+        return keystrokeLatency.getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getKeystrokeLatencyP99() {
+        return keystrokeLatency.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getStatusUpdateTimeP99() {
+        return statusUpdateTime.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public long getLoadCount() {
+        return loadTime.getCount();
+    }
+
+    @Override
+    public double getLastLoadMillis() {
+        return lastLoadNanos / 1e6;
+    }
+
+    @Override
+    public double getLoadTimeP50() {
+        return loadTime.getPercentileMillis(0.5);
+    }
+
+    @Override
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    @Override
+    public double getLoadTimeMax() {
+        return loadTime.getMaxNanos() / 1e6;
+    }
+
+    @Override
+    public String getQualityLevel() {
+        QualityGovernor g = governor;
+        if (g == null) {
+            return "";
+        }
+        return g.getLevel().getLabel() + (g.isAutomatic() ? " (automática)" : "");
+    }
+
+    @Override
+    public int getLatencyBudgetMillis() {
+        QualityGovernor g = governor;
+        return g == null ? 0 : g.getBudgetMillis();
+    }
+
+    @Override
+    public void setLatencyBudgetMillis(int millis) {
+        QualityGovernor g = governor;
+        if (g != null) {
+            g.setBudgetMillis(millis);
+        }
+    }
+
+    @Override
+    public void reset() {
+        updateTime.reset();
+        paintTime.reset();
+        edtLatency.reset();
+        keystrokeLatency.reset();
+        statusUpdateTime.reset();
+        loadTime.reset();
+    }
+}
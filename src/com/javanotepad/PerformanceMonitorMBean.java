@@ -0,0 +1,54 @@
+package com.javanotepad;
+
+/**
+ * Medições de desempenho publicadas via JMX como
+ * {@code com.javanotepad:type=Performance}. Tempos em milissegundos.
+ */
+public interface PerformanceMonitorMBean {
+
+    int getTargetFps();
+
+    double getAchievedFps();
+
+    long getSkippedFrames();
+
+    double getUpdateTimeP50();
+
+    double getUpdateTimeP99();
+
+    double getPaintTimeP50();
+
+    double getPaintTimeP99();
+
+    double getEdtLatencyP50();
+
+    double getEdtLatencyP99();
+
+    double getEdtLatencyMax();
+
+    double getKeystrokeLatencyP50();
+
+    double getKeystrokeLatencyP99();
+
+    double getStatusUpdateTimeP99();
+
+    long getLoadCount();
+
+    double getLastLoadMillis();
+
+    double getLoadTimeP50();
+
+    double getLoadTimeMax();
+
+    // Do início do processo até a primeira pintura da janela; -1 antes dela
+    long getStartupMillis();
+
+    String getQualityLevel();
+
+    // Latência de digitação que o governador de qualidade tenta respeitar
+    int getLatencyBudgetMillis();
+
+    void setLatencyBudgetMillis(int millis);
+
+    void reset();
+}
@@ -0,0 +1,836 @@
+package com.javanotepad;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Conteúdo de documento baseado em uma tabela de trechos (piece table).
+ * <p>
+ * O texto original fica em um buffer somente leitura (de preferência os bytes
+ * de um arquivo ASCII, um por caractere) e tudo que é digitado vai para um buffer de acréscimos que
+ * nunca é alterado. O documento é a sequência de trechos que apontam para esses
+ * buffers, guardada em uma treap ordenada por posição: inserir, remover e
+ * localizar uma posição custam O(log n) no número de trechos.
+ * <p>
+ * As posições ({@link Position}) seguem a mesma técnica do {@code GapContent}:
+ * as marcas antes do ponto da última edição guardam o deslocamento absoluto e
+ * as marcas depois dele guardam a distância até o fim, de modo que uma edição
+ * só precisa ajustar as marcas entre ela e a edição anterior.
+ * <p>
+ * Desfazer também não copia texto: o intervalo removido sai da árvore como uma
+ * subárvore de trechos, que continuam apontando para o arquivo original ou
+ * para os blocos de acréscimos. Quando os acréscimos de um intervalo guardado
+ * para desfazer passam de {@value #BLOCK_SIZE} caracteres, uma thread de fundo
+ * os comprime e os trechos soltam os blocos. {@link #undoBytes()} estima o que
+ * as edições de desfazer vivas seguram, para o {@link EditHistory} limitar.
+ */
+class PieceTableContent implements AbstractDocument.Content {
+
+    private static final int BLOCK_SIZE = 64 * 1024; // caracteres por bloco de acréscimos
+    private static final char[] NEWLINE = {'\n'};
+    private static final char[] EMPTY = new char[0];
+    private static final int PIECE_BYTES = 48; // cabeçalho e campos de um Piece numa JVM de 64 bits
+    private static final int MARK_BYTES = 80; // marca, posição e metade de um elemento de linha (ver EditorTab)
+    private static final int EDIT_BYTES = 280; // InsertEdit/RemoveEdit, o evento de documento e o grupo que os contém (medido)
+    private static final char[] COMPRESSED = new char[0]; // no lugar do bloco de um trecho comprimido
+
+    // Uma thread para todos os documentos
+    private static final ExecutorService COMPRESSOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "PieceTableContent-compressor");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // Um trecho de um dos buffers e, ao mesmo tempo, um nó da treap
+    private static final class Piece {
+        char[] array;       // null quando o trecho está no texto original; COMPRESSED enquanto guardado comprimido
+        int start;
+        int length;
+        int size;           // caracteres na subárvore
+        int pieces;         // trechos na subárvore
+        final int priority = ThreadLocalRandom.current().nextInt();
+        Piece left;
+        Piece right;
+
+        Piece(char[] array, int start, int length) {
+            this.array = array;
+            this.start = start;
+            this.length = length;
+            this.size = length;
+            this.pieces = 1;
+        }
+    }
+
+    private final AsciiText original;
+    private Piece root;
+
+    // Bloco atual do buffer de acréscimos; os blocos cheios ficam só nos trechos
+    private char[] block = EMPTY;
+    private int blockUsed;
+    private long blockChars; // soma dos blocos já alocados
+
+    // Resultado de split()
+    private Piece splitLeft;
+    private Piece splitRight;
+
+    // Marcas das posições, ordenadas por deslocamento, com um vão no ponto da última edição
+    private Mark[] marks = new Mark[16];
+    private int gapStart;
+    private int gapEnd = marks.length;
+    private final ReferenceQueue<StickyPosition> queue = new ReferenceQueue<>();
+    private int clearedMarks;
+
+    private long undoBytes; // protegido por this: a thread de compressão também o altera
+    private RemovalListener[] removalListeners = new RemovalListener[0];
+
+    // Avisado antes de um intervalo sair do texto, enquanto ele ainda pode ser lido: numa
+    // remoção, ao desfazer uma inserção e ao refazer uma remoção
+    interface RemovalListener {
+        void beforeRemove(int offset, int length);
+    }
+
+    public PieceTableContent() {
+        this(null);
+    }
+
+    // O documento começa com o texto original; o '\n' final é exigido por AbstractDocument
+    public PieceTableContent(AsciiText original) {
+        this.original = original;
+        root = new Piece(NEWLINE, 0, 1);
+        if (original != null && original.length() > 0) {
+            root = merge(new Piece(null, 0, original.length()), root);
+        }
+    }
+
+    public void addRemovalListener(RemovalListener listener) {
+        removalListeners = Arrays.copyOf(removalListeners, removalListeners.length + 1);
+        removalListeners[removalListeners.length - 1] = listener;
+    }
+
+    public void removeRemovalListener(RemovalListener listener) {
+        removalListeners = Arrays.stream(removalListeners).filter(l -> l != listener).toArray(RemovalListener[]::new);
+    }
+
+    @Override
+    public int length() {
+        return root.size;
+    }
+
+    // Número de trechos, útil para estimar o custo de memória da estrutura
+    public int pieceCount() {
+        return root.pieces;
+    }
+
+    // Estimativa do que a estrutura ocupa no heap, com o texto original
+    public long heapBytes() {
+        return blockChars * 2 + (long) root.pieces * PIECE_BYTES + (original != null ? original.heapBytes() : 0);
+    }
+
+    // Estimativa do heap seguro só pelas edições de desfazer ainda vivas (que não receberam die())
+    public synchronized long undoBytes() {
+        return undoBytes;
+    }
+
+    // Texto atual, sem o '\n' final, para ser lido fora da EDT; copia só a lista de trechos
+    public TextSnapshot snapshot() {
+        int n = root.pieces;
+        char[][] arrays = new char[n][];
+        int[] starts = new int[n];
+        int[] offsets = new int[n + 1];
+        Piece[] stack = new Piece[64];
+        int depth = 0;
+        int i = 0;
+        Piece t = root;
+        while (t != null || depth > 0) {
+            while (t != null) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = t;
+                t = t.left;
+            }
+            t = stack[--depth];
+            arrays[i] = t.array;
+            starts[i] = t.start;
+            offsets[i + 1] = offsets[i] + t.length;
+            i++;
+            t = t.right;
+        }
+        offsets[n]--; // o último trecho termina no '\n' exigido por AbstractDocument
+        return new TextSnapshot(original, arrays, starts, offsets);
+    }
+
+    @Override
+    public UndoableEdit insertString(int where, String str) throws BadLocationException {
+        if (where < 0 || where >= length()) {
+            throw new BadLocationException("Invalid insert", where);
+        }
+        int length = str.length();
+        if (length == 0) {
+            return null;
+        }
+
+        split(root, where);
+        Piece left = splitLeft;
+        Piece right = splitRight;
+        Piece last = rightmost(left);
+        if (last != null && last.array == block && last.start + last.length == blockUsed
+                && blockUsed + length <= block.length) {
+            // Continua o último trecho digitado, sem criar um novo
+            str.getChars(0, length, block, blockUsed);
+            blockUsed += length;
+            last.length += length;
+            for (Piece p = left; p != null; p = p.right) {
+                p.size += length;
+            }
+            root = merge(left, right);
+            shiftMarksForInsert(where, length);
+        } else if (length > BLOCK_SIZE) {
+            // Texto grande (colar, Substituir Tudo) ganha um array só dele, que não vira o bloco
+            // atual: quando sai do texto, só o desfazer o segura, e a compressão pode soltá-lo
+            char[] own = new char[length];
+            str.getChars(0, length, own, 0);
+            blockChars += length;
+            root = merge(merge(left, new Piece(own, 0, length)), right);
+            shiftMarksForInsert(where, length);
+        } else {
+            if (blockUsed + length > block.length) {
+                block = new char[BLOCK_SIZE];
+                blockUsed = 0;
+                blockChars += block.length;
+            }
+            str.getChars(0, length, block, blockUsed);
+            Piece piece = new Piece(block, blockUsed, length);
+            blockUsed += length;
+            root = merge(merge(left, piece), right);
+            shiftMarksForInsert(where, length);
+        }
+        return new InsertEdit(where, length);
+    }
+
+    @Override
+    public UndoableEdit remove(int where, int nitems) throws BadLocationException {
+        if (where < 0 || nitems < 0 || where + nitems >= length()) {
+            throw new BadLocationException("Invalid remove", where + nitems);
+        }
+        if (nitems == 0) {
+            return null;
+        }
+        return new RemoveEdit(where, hold(detach(where, nitems)));
+    }
+
+    @Override
+    public Position createPosition(int offset) throws BadLocationException {
+        purgeClearedMarks();
+        StickyPosition position = new StickyPosition();
+        Mark mark = new Mark(position, queue);
+        position.mark = mark;
+
+        moveGap(lowerBound(offset, length()), length());
+        if (gapStart == gapEnd) {
+            growMarks();
+        }
+        mark.value = offset;
+        marks[gapStart++] = mark;
+        return position;
+    }
+
+    @Override
+    public String getString(int where, int len) throws BadLocationException {
+        checkRange(where, len);
+        char[] chars = new char[len];
+        copy(root, where, where + len, chars, 0);
+        return new String(chars);
+    }
+
+    @Override
+    public void getChars(int where, int len, Segment chars) throws BadLocationException {
+        checkRange(where, len);
+        if (len == 0) {
+            chars.array = EMPTY;
+            chars.offset = 0;
+            chars.count = 0;
+            return;
+        }
+
+        // Um trecho só: devolve o próprio buffer, sem copiar
+        Piece t = root;
+        int offset = where;
+        while (true) {
+            int leftSize = size(t.left);
+            if (offset < leftSize) {
+                t = t.left;
+            } else if (offset < leftSize + t.length) {
+                offset -= leftSize;
+                break;
+            } else {
+                offset -= leftSize + t.length;
+                t = t.right;
+            }
+        }
+        int available = t.length - offset;
+        if (t.array != null && (len <= available || chars.isPartialReturn())) {
+            chars.array = t.array;
+            chars.offset = t.start + offset;
+            chars.count = Math.min(len, available);
+            return;
+        }
+
+        int count = chars.isPartialReturn() ? Math.min(len, available) : len;
+        char[] copy = new char[count];
+        copy(root, where, where + count, copy, 0);
+        chars.array = copy;
+        chars.offset = 0;
+        chars.count = count;
+    }
+
+    private void checkRange(int where, int len) throws BadLocationException {
+        if (where < 0 || len < 0 || where + len > length()) {
+            throw new BadLocationException("Invalid range", where + len);
+        }
+    }
+
+    // --- TRECHOS ---
+
+    // Retira [where, where + nitems) da árvore, guardando as marcas do intervalo
+    private Detached detach(int where, int nitems) {
+        for (RemovalListener listener : removalListeners) {
+            listener.beforeRemove(where, nitems);
+        }
+        Detached detached = new Detached();
+        detached.marks = marksInRange(where, where + nitems);
+        detached.offsets = new int[detached.marks.length];
+        for (int i = 0; i < detached.marks.length; i++) {
+            detached.offsets[i] = offsetOf(detached.marks[i]) - where;
+        }
+
+        split(root, where);
+        Piece left = splitLeft;
+        split(splitRight, nitems);
+        detached.pieces = splitLeft;
+        root = merge(left, splitRight);
+        shiftMarksForRemove(where, nitems);
+        return detached;
+    }
+
+    // Devolve à árvore um intervalo retirado por detach(), restaurando suas marcas
+    private void attach(int where, Detached detached) {
+        release(detached);
+        if (detached.compressed != null) {
+            inflate(detached);
+        }
+        int length = detached.pieces.size;
+        split(root, where);
+        root = merge(merge(splitLeft, detached.pieces), splitRight);
+        shiftMarksForInsert(where, length);
+        restoreMarks(where, length, detached);
+    }
+
+    // Divide t em [0, offset) e [offset, fim), deixando o resultado em splitLeft/splitRight
+    private void split(Piece t, int offset) {
+        if (t == null) {
+            splitLeft = null;
+            splitRight = null;
+            return;
+        }
+        int leftSize = size(t.left);
+        if (offset <= leftSize) {
+            split(t.left, offset);
+            t.left = splitRight;
+            update(t);
+            splitRight = t;
+        } else if (offset >= leftSize + t.length) {
+            split(t.right, offset - leftSize - t.length);
+            t.right = splitLeft;
+            update(t);
+            splitLeft = t;
+        } else {
+            // O corte cai no meio do trecho
+            int k = offset - leftSize;
+            Piece tail = new Piece(t.array, t.start + k, t.length - k);
+            Piece right = t.right;
+            t.length = k;
+            t.right = null;
+            update(t);
+            splitLeft = t;
+            splitRight = merge(tail, right);
+        }
+    }
+
+    private static Piece merge(Piece a, Piece b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private static Piece rightmost(Piece t) {
+        if (t != null) {
+            while (t.right != null) {
+                t = t.right;
+            }
+        }
+        return t;
+    }
+
+    private static void update(Piece t) {
+        t.size = size(t.left) + t.length + size(t.right);
+        t.pieces = pieces(t.left) + 1 + pieces(t.right);
+    }
+
+    private static int size(Piece t) {
+        return t == null ? 0 : t.size;
+    }
+
+    private static int pieces(Piece t) {
+        return t == null ? 0 : t.pieces;
+    }
+
+    // Copia [from, to) da subárvore t para dst, a partir de dstPos
+    private void copy(Piece t, int from, int to, char[] dst, int dstPos) {
+        while (t != null && from < to) {
+            int leftSize = size(t.left);
+            if (from < leftSize) {
+                int end = Math.min(to, leftSize);
+                copy(t.left, from, end, dst, dstPos);
+                dstPos += end - from;
+                from = end;
+            }
+            int pieceEnd = leftSize + t.length;
+            if (from < to && from < pieceEnd) {
+                int end = Math.min(to, pieceEnd);
+                int offset = from - leftSize;
+                if (t.array != null) {
+                    System.arraycopy(t.array, t.start + offset, dst, dstPos, end - from);
+                } else {
+                    original.getChars(t.start + offset, end - from, dst, dstPos);
+                }
+                dstPos += end - from;
+                from = end;
+            }
+            from -= pieceEnd;
+            to -= pieceEnd;
+            t = t.right;
+        }
+    }
+
+    // --- MARCAS ---
+
+    private static final class Mark extends WeakReference<StickyPosition> {
+        int value;       // deslocamento, ou distância até o fim se fromEnd
+        boolean fromEnd;
+
+        Mark(StickyPosition position, ReferenceQueue<StickyPosition> queue) {
+            super(position, queue);
+        }
+    }
+
+    private final class StickyPosition implements Position {
+        Mark mark;
+
+        @Override
+        public int getOffset() {
+            return offsetOf(mark);
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(getOffset());
+        }
+    }
+
+    private int offsetOf(Mark mark) {
+        return mark.fromEnd ? length() - mark.value : mark.value;
+    }
+
+    private int markCount() {
+        return marks.length - (gapEnd - gapStart);
+    }
+
+    private Mark markAt(int index) {
+        return marks[index < gapStart ? index : index + (gapEnd - gapStart)];
+    }
+
+    // Primeiro índice cuja marca está em offset ou depois, num conteúdo de tamanho length
+    private int lowerBound(int offset, int length) {
+        int lo = 0;
+        int hi = markCount();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            Mark mark = markAt(mid);
+            if ((mark.fromEnd ? length - mark.value : mark.value) < offset) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Leva o vão para o índice, trocando a representação das marcas que ele atravessa
+    private void moveGap(int index, int length) {
+        while (gapStart > index) {
+            Mark mark = marks[--gapStart];
+            marks[gapStart] = null;
+            marks[--gapEnd] = mark;
+            mark.value = length - mark.value;
+            mark.fromEnd = true;
+        }
+        while (gapStart < index) {
+            Mark mark = marks[gapEnd];
+            marks[gapEnd++] = null;
+            marks[gapStart++] = mark;
+            mark.value = length - mark.value;
+            mark.fromEnd = false;
+        }
+    }
+
+    private void growMarks() {
+        Mark[] grown = new Mark[marks.length * 2];
+        int tail = marks.length - gapEnd;
+        System.arraycopy(marks, 0, grown, 0, gapStart);
+        System.arraycopy(marks, gapEnd, grown, grown.length - tail, tail);
+        gapEnd = grown.length - tail;
+        marks = grown;
+    }
+
+    // Chamado depois da inserção: as marcas a partir de where (exceto as que
+    // estão em 0) passam para depois do vão e acompanham o fim do texto
+    private void shiftMarksForInsert(int where, int length) {
+        int oldLength = length() - length;
+        moveGap(lowerBound(Math.max(1, where), oldLength), oldLength);
+    }
+
+    // Chamado depois da remoção: as marcas do intervalo removido vão para where
+    private void shiftMarksForRemove(int where, int nitems) {
+        int oldLength = length() + nitems;
+        moveGap(lowerBound(where + nitems, oldLength), oldLength);
+        for (int i = gapStart - 1; i >= 0 && marks[i].value > where; i--) {
+            marks[i].value = where;
+        }
+    }
+
+    private Mark[] marksInRange(int from, int to) {
+        int lo = lowerBound(from, length());
+        int hi = lowerBound(to + 1, length());
+        Mark[] result = new Mark[hi - lo];
+        for (int i = lo; i < hi; i++) {
+            result[i - lo] = markAt(i);
+        }
+        return result;
+    }
+
+    // Recoloca as marcas de um intervalo restaurado nas posições que tinham antes
+    private void restoreMarks(int where, int length, Detached detached) {
+        if (detached.marks.length == 0) {
+            return;
+        }
+        moveGap(lowerBound(where + length + 1, length()), length());
+        int lo = lowerBound(where, length());
+        for (int i = 0; i < detached.marks.length; i++) {
+            Mark mark = detached.marks[i];
+            if (!mark.fromEnd) {
+                mark.value = where + detached.offsets[i];
+            }
+        }
+        Arrays.sort(marks, lo, gapStart, Comparator.comparingInt(m -> m.value));
+    }
+
+    // Remove as marcas cujas posições já foram coletadas
+    private void purgeClearedMarks() {
+        while (queue.poll() != null) {
+            clearedMarks++;
+        }
+        if (clearedMarks < Math.max(64, markCount() / 2)) {
+            return;
+        }
+        // clearedMarks pode contar marcas já retiradas numa limpeza anterior
+        // (coletadas antes de entrar na fila), então as vivas são contadas antes
+        int alive = 0;
+        for (int i = 0; i < markCount(); i++) {
+            if (markAt(i).get() != null) {
+                alive++;
+            }
+        }
+        int length = length();
+        Mark[] live = new Mark[Math.max(16, alive + 16)];
+        int count = 0;
+        for (int i = 0; i < markCount(); i++) {
+            Mark mark = markAt(i);
+            if (mark.get() != null) {
+                if (mark.fromEnd) {
+                    mark.value = length - mark.value;
+                    mark.fromEnd = false;
+                }
+                live[count++] = mark;
+            }
+        }
+        marks = live;
+        gapStart = count;
+        gapEnd = live.length;
+        clearedMarks = 0;
+    }
+
+    // --- DESFAZER ---
+
+    // Intervalo retirado da árvore, com as marcas que estavam dentro dele
+    private static final class Detached {
+        Piece pieces;
+        Mark[] marks;
+        int[] offsets;
+        int appended;      // caracteres dos trechos que estão em blocos de acréscimos
+        byte[] compressed; // esses caracteres comprimidos, depois que os trechos soltaram os blocos
+        long bytes;        // o que conta em undoBytes enquanto guardado
+        boolean released;  // voltou à árvore ou a edição morreu; protegido pelo conteúdo
+    }
+
+    // Passa a guardar o intervalo para desfazer; acréscimos grandes vão para a compressão
+    private Detached hold(Detached detached) {
+        // A compressão lê uma cópia da lista de trechos: a subárvore muda se voltar ao texto antes do fim
+        Piece[] pieces = inOrder(detached.pieces);
+        char[][] arrays = new char[pieces.length][];
+        int[] starts = new int[pieces.length];
+        int[] lengths = new int[pieces.length];
+        int n = 0;
+        for (Piece t : pieces) {
+            if (t.array != null) {
+                arrays[n] = t.array;
+                starts[n] = t.start;
+                lengths[n++] = t.length;
+                detached.appended += t.length;
+            }
+        }
+        synchronized (this) {
+            detached.bytes = (long) pieces.length * PIECE_BYTES + (long) detached.marks.length * MARK_BYTES
+                    + detached.appended * 2L;
+            undoBytes += detached.bytes;
+        }
+        if (detached.appended >= BLOCK_SIZE) {
+            int count = n;
+            COMPRESSOR.execute(() -> compress(detached, arrays, starts, lengths, count));
+        }
+        return detached;
+    }
+
+    // O intervalo deixou de ser guardado; chamado uma vez só por intervalo
+    private synchronized void release(Detached detached) {
+        detached.released = true;
+        undoBytes -= detached.bytes;
+    }
+
+    // Na thread de compressão: os trechos [0, count) são os acréscimos do intervalo, em ordem
+    private void compress(Detached detached, char[][] arrays, int[] starts, int[] lengths, int count) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] buffer = new byte[2 * BLOCK_SIZE];
+        ByteBuffer bytes = ByteBuffer.wrap(buffer); // UTF-16 big-endian, como o char
+        try (DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, buffer.length)) {
+            for (int i = 0; i < count; i++) {
+                for (int done = 0; done < lengths[i]; done += BLOCK_SIZE) {
+                    synchronized (this) {
+                        if (detached.released) {
+                            return; // voltou ao texto antes de terminar
+                        }
+                    }
+                    int chunk = Math.min(BLOCK_SIZE, lengths[i] - done);
+                    bytes.clear();
+                    bytes.asCharBuffer().put(arrays[i], starts[i] + done, chunk);
+                    deflated.write(buffer, 0, chunk * 2);
+                }
+            }
+        } catch (IOException ex) {
+            return; // não acontece com ByteArrayOutputStream; os trechos ficam como estão
+        } finally {
+            deflater.end();
+        }
+        byte[] compressed = out.toByteArray();
+        synchronized (this) {
+            if (detached.released || compressed.length >= detached.appended * 2L) {
+                return;
+            }
+            for (Piece t : inOrder(detached.pieces)) {
+                if (t.array != null) {
+                    t.array = COMPRESSED; // solta o bloco
+                }
+            }
+            detached.compressed = compressed;
+            undoBytes -= detached.bytes;
+            detached.bytes += compressed.length - detached.appended * 2L;
+            undoBytes += detached.bytes;
+        }
+    }
+
+    // Descomprime os acréscimos de um intervalo num array só, para onde os trechos passam a apontar
+    private void inflate(Detached detached) {
+        char[] chars = new char[detached.appended];
+        Inflater inflater = new Inflater();
+        inflater.setInput(detached.compressed);
+        byte[] buffer = new byte[2 * BLOCK_SIZE];
+        int filled = 0;
+        int pos = 0;
+        try {
+            while (pos < chars.length) {
+                int n = inflater.inflate(buffer, filled, buffer.length - filled);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Texto comprimido incompleto");
+                }
+                filled += n;
+                int pairs = filled / 2;
+                ByteBuffer.wrap(buffer, 0, pairs * 2).asCharBuffer().get(chars, pos, pairs);
+                pos += pairs;
+                if (filled % 2 != 0) {
+                    buffer[0] = buffer[filled - 1]; // metade de um caractere: fica para a próxima vez
+                }
+                filled %= 2;
+            }
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            inflater.end();
+        }
+        pos = 0;
+        for (Piece t : inOrder(detached.pieces)) {
+            if (t.array == COMPRESSED) {
+                t.array = chars;
+                t.start = pos;
+                pos += t.length;
+            }
+        }
+        detached.compressed = null;
+        blockChars += chars.length;
+    }
+
+    // Trechos da subárvore, da esquerda para a direita
+    private static Piece[] inOrder(Piece root) {
+        Piece[] result = new Piece[root.pieces];
+        Piece[] stack = new Piece[64];
+        int depth = 0;
+        int n = 0;
+        Piece t = root;
+        while (t != null || depth > 0) {
+            while (t != null) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = t;
+                t = t.left;
+            }
+            t = stack[--depth];
+            result[n++] = t;
+            t = t.right;
+        }
+        return result;
+    }
+
+    private synchronized void countEdit(int sign) {
+        undoBytes += sign * EDIT_BYTES;
+    }
+
+    private final class InsertEdit extends AbstractUndoableEdit {
+        private final int offset;
+        private final int length;
+        private Detached removed;
+
+        InsertEdit(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+            countEdit(1);
+        }
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            removed = hold(detach(offset, length));
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            attach(offset, removed);
+            removed = null;
+        }
+
+        @Override
+        public void die() {
+            boolean alive = canUndo() || canRedo();
+            super.die();
+            if (removed != null) {
+                release(removed);
+                removed = null;
+            }
+            if (alive) {
+                countEdit(-1);
+            }
+        }
+    }
+
+    private final class RemoveEdit extends AbstractUndoableEdit {
+        private final int offset;
+        private final int length;
+        private Detached removed;
+
+        RemoveEdit(int offset, Detached removed) {
+            this.offset = offset;
+            this.length = removed.pieces.size;
+            this.removed = removed;
+            countEdit(1);
+        }
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            attach(offset, removed);
+            removed = null;
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            removed = hold(detach(offset, length));
+        }
+
+        @Override
+        public void die() {
+            boolean alive = canUndo() || canRedo();
+            super.die();
+            if (removed != null) {
+                release(removed);
+                removed = null;
+            }
+            if (alive) {
+                countEdit(-1);
+            }
+        }
+    }
+}
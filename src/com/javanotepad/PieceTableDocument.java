@@ -0,0 +1,137 @@
+package com.javanotepad;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.PlainDocument;
+import javax.swing.undo.CompoundEdit;
+
+/**
+ * Documento de texto simples guardado em uma {@link PieceTableContent}.
+ * <p>
+ * Mantém a estrutura de linhas do {@link PlainDocument}, que é o que o
+ * {@code JTextArea} espera; só a forma de guardar o texto muda. Também mantém
+ * um {@link LineIndex}, atualizado antes de qualquer ouvinte ser avisado da
+ * edição (inclusive ao desfazer).
+ */
+class PieceTableDocument extends PlainDocument {
+
+    private final LineIndex lineIndex = new LineIndex();
+    private CompoundEdit compound; // edições sendo agrupadas por replaceAsOneEdit
+
+    public PieceTableDocument() {
+        super(new PieceTableContent());
+    }
+
+    // Documento sobre um texto já existente (por exemplo, um arquivo ASCII lido inteiro).
+    // Pode ser criado fora da EDT, desde que ninguém o use antes de terminar.
+    public PieceTableDocument(PieceTableContent content) {
+        super(content);
+        if (content.length() > 1) {
+            indexLines();
+        }
+    }
+
+    // Arquivo ASCII cujas linhas já se conhecem (sessão anterior); se elas não
+    // baterem com o texto, as linhas são procuradas de novo
+    public PieceTableDocument(AsciiText text, int[] lineStarts) {
+        super(new PieceTableContent(text));
+        if (text.length() > 0 && lineIndex.load(lineStarts, text.length(), text)) {
+            createLines();
+        } else if (text.length() > 0) {
+            indexLines();
+        }
+    }
+
+    public PieceTableContent getPieceTable() {
+        return (PieceTableContent) getContent();
+    }
+
+    // Índice de linhas; só na EDT
+    public LineIndex getLineIndex() {
+        return lineIndex;
+    }
+
+    // Texto atual para leitura fora da EDT; chamado na EDT
+    public TextSnapshot snapshot() {
+        readLock();
+        try {
+            return getPieceTable().snapshot();
+        } finally {
+            readUnlock();
+        }
+    }
+
+    // Como replace(), mas quem desfaz recebe a remoção e a inserção como uma edição só
+    public void replaceAsOneEdit(int offset, int length, String text) throws BadLocationException {
+        compound = new CompoundEdit();
+        try {
+            replace(offset, length, text, null);
+        } finally {
+            CompoundEdit edit = compound;
+            compound = null;
+            edit.end();
+            if (edit.canUndo()) {
+                publish(new UndoableEditEvent(this, edit));
+            }
+        }
+    }
+
+    @Override
+    protected void fireUndoableEditUpdate(UndoableEditEvent e) {
+        if (compound != null) {
+            compound.addEdit(e.getEdit());
+        } else {
+            publish(e);
+        }
+    }
+
+    // Sem histórico ouvindo, ninguém vai desfazer a edição: die() solta o que ela segurava
+    private void publish(UndoableEditEvent e) {
+        if (getUndoableEditListeners().length == 0) {
+            e.getEdit().die();
+        } else {
+            super.fireUndoableEditUpdate(e);
+        }
+    }
+
+    // O índice acompanha toda mudança do texto, venha ela de uma edição ou de desfazer
+    @Override
+    protected void fireInsertUpdate(DocumentEvent e) {
+        try {
+            lineIndex.insert(e.getOffset(), e.getLength(), getContent());
+        } catch (BadLocationException ex) {
+            throw new IllegalStateException(ex);
+        }
+        super.fireInsertUpdate(e);
+    }
+
+    @Override
+    protected void fireRemoveUpdate(DocumentEvent e) {
+        lineIndex.remove(e.getOffset(), e.getLength());
+        super.fireRemoveUpdate(e);
+    }
+
+    // Monta o índice lendo o texto em blocos, sem copiá-lo inteiro, e cria os elementos de linha a partir dele
+    private void indexLines() {
+        try {
+            lineIndex.insert(0, getContent().length() - 1, getContent()); // sem a quebra final que todo PlainDocument tem
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+        createLines();
+    }
+
+    private void createLines() {
+        BranchElement root = (BranchElement) getDefaultRootElement();
+        int length = getContent().length();
+        int count = lineIndex.getLineCount();
+        Element[] lines = new Element[count];
+        for (int i = 0; i < count; i++) {
+            int end = i + 1 < count ? lineIndex.getLineStart(i + 1) : length;
+            lines[i] = createLeafElement(root, null, lineIndex.getLineStart(i), end);
+        }
+        root.replace(0, root.getElementCount(), lines);
+    }
+}
@@ -0,0 +1,192 @@
+package com.javanotepad;
+
+import javax.swing.Timer;
+import java.util.function.IntSupplier;
+
+/**
+ * Ajusta a qualidade do fundo animado para proteger a latência de digitação.
+ * <p>
+ * Enquanto o usuário digita, a qualidade cai para um teto (mais baixo se o
+ * documento for grande) e, se a latência das teclas ou o custo de pintar um
+ * quadro passar do orçamento, desce mais um nível a cada
+ * {@value #EVALUATE_MS} ms. Ela só volta a subir depois de alguns intervalos
+ * seguidos dentro do orçamento, e volta à máxima quando a digitação para.
+ * Tudo aqui roda na EDT.
+ */
+final class QualityGovernor {
+
+    // Do mais caro ao mais barato
+    enum Level {
+        HIGH("Alta", 100, true, Integer.MAX_VALUE),
+        MEDIUM("Média", 50, true, 30),
+        LOW("Baixa", 25, false, 20),
+        MINIMUM("Mínima", 10, false, 10);
+
+        private final String label;
+        private final int starPercent;
+        private final boolean antialias;
+        private final int maxFps;
+
+        Level(String label, int starPercent, boolean antialias, int maxFps) {
+            this.label = label;
+            this.starPercent = starPercent;
+            this.antialias = antialias;
+            this.maxFps = maxFps;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        // Parte das estrelas que continua ativa, em porcentagem
+        public int getStarPercent() {
+            return starPercent;
+        }
+
+        public boolean isAntialiased() {
+            return antialias;
+        }
+
+        // Limite para o alvo de FPS do relógio
+        public int getMaxFps() {
+            return maxFps;
+        }
+
+        Level lower() {
+            return this == MINIMUM ? MINIMUM : values()[ordinal() + 1];
+        }
+
+        Level higher() {
+            return this == HIGH ? HIGH : values()[ordinal() - 1];
+        }
+    }
+
+    public static final int DEFAULT_BUDGET_MS = Integer.getInteger("javanotepad.latencyBudgetMs", 16);
+
+    private static final int EVALUATE_MS = 250;
+    private static final long TYPING_NANOS = 1_500_000_000L; // sem tecla por mais que isso é ocioso
+    private static final int RECOVER_WINDOWS = 4; // intervalos bons seguidos antes de subir um nível
+    private static final int LARGE_DOCUMENT_CHARS = 1_000_000;
+
+    private final AnimatedBackgroundPanel panel;
+    private final IntSupplier documentLength;
+    private final Timer timer;
+
+    // Amostras do intervalo atual
+    private final LatencyHistogram paintTime = new LatencyHistogram();
+    private long keystrokeMaxNanos;
+
+    private volatile Level level = Level.HIGH;
+    private volatile Level fixedLevel; // null: automático
+    private volatile int budgetMillis = Math.max(1, DEFAULT_BUDGET_MS);
+    private long lastKeyAt;
+    private int goodWindows;
+
+    public QualityGovernor(AnimatedBackgroundPanel panel, IntSupplier documentLength) {
+        this.panel = panel;
+        this.documentLength = documentLength;
+        this.timer = new Timer(EVALUATE_MS, e -> evaluate());
+        panel.setQuality(level);
+    }
+
+    public void start() {
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public boolean isAutomatic() {
+        return fixedLevel == null;
+    }
+
+    // Fixa um nível; null devolve o controle ao governador
+    public void setFixedLevel(Level fixed) {
+        fixedLevel = fixed;
+        goodWindows = 0;
+        apply(fixed != null ? fixed : ceiling());
+    }
+
+    // Latência máxima de uma tecla até ela aparecer na tela
+    public void setBudgetMillis(int millis) {
+        budgetMillis = Math.max(1, millis);
+    }
+
+    public int getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    // --- AMOSTRAS (repassadas pelo PerformanceMonitor) ---
+
+    // Ao começar a digitar a qualidade cai para o teto na hora, sem esperar a próxima avaliação
+    public void keyTyped() {
+        lastKeyAt = System.nanoTime();
+        if (fixedLevel == null) {
+            Level ceiling = ceiling();
+            if (level.ordinal() < ceiling.ordinal()) {
+                apply(ceiling);
+            }
+        }
+    }
+
+    public void keystrokePainted(long nanos) {
+        keystrokeMaxNanos = Math.max(keystrokeMaxNanos, nanos);
+    }
+
+    public void framePainted(long nanos) {
+        paintTime.record(nanos);
+    }
+
+    private boolean isTyping() {
+        return lastKeyAt != 0 && System.nanoTime() - lastKeyAt < TYPING_NANOS;
+    }
+
+    // Qualidade mais alta permitida agora
+    private Level ceiling() {
+        if (!isTyping()) {
+            return Level.HIGH;
+        }
+        return documentLength.getAsInt() > LARGE_DOCUMENT_CHARS ? Level.LOW : Level.MEDIUM;
+    }
+
+    private void evaluate() {
+        long budgetNanos = budgetMillis * 1_000_000L;
+        // Uma tecla que chega durante a pintura espera por ela: o quadro fica com metade do orçamento
+        boolean overBudget = keystrokeMaxNanos > budgetNanos
+                || paintTime.getPercentileMillis(0.9) * 1_000_000 > budgetNanos / 2;
+        keystrokeMaxNanos = 0;
+        paintTime.reset();
+        if (fixedLevel != null) {
+            return;
+        }
+
+        Level ceiling = ceiling();
+        Level next = level;
+        if (ceiling == Level.HIGH) {
+            next = Level.HIGH; // ocioso: nada a proteger
+            goodWindows = 0;
+        } else if (overBudget) {
+            next = level.lower();
+            goodWindows = 0;
+        } else if (++goodWindows >= RECOVER_WINDOWS) {
+            next = level.higher();
+            goodWindows = 0;
+        }
+        if (next.ordinal() < ceiling.ordinal()) {
+            next = ceiling;
+        }
+        apply(next);
+    }
+
+    private void apply(Level next) {
+        if (next != level) {
+            level = next;
+            panel.setQuality(next);
+        }
+    }
+}
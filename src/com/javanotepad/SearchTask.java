@@ -0,0 +1,258 @@
+package com.javanotepad;
+
+import javax.swing.SwingWorker;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Busca (e opcionalmente substitui) um padrão num {@link TextSnapshot} fora
+ * da EDT.
+ * <p>
+ * O texto é dividido em blocos de cerca de {@value #CHUNK_SIZE} caracteres,
+ * cortados em fins de linha quando possível, que são procurados em paralelo
+ * por um pool de threads compartilhado. Cada bloco fica com as ocorrências que
+ * começam nele, mas o matcher enxerga até {@value #CONTEXT} caracteres de cada
+ * lado: {@code ^}, {@code $}, {@code \b} e lookarounds valem no corte como no
+ * texto inteiro, inclusive numa linha longa demais que teve de ser cortada no
+ * meio. Os resultados voltam na ordem do documento: na busca, cada bloco
+ * publica as suas ocorrências como pares {@code [início, fim, ...]}; na
+ * substituição, o texto novo de todo o intervalo entre a primeira e a última
+ * ocorrência é montado para ser aplicado numa única edição.
+ * <p>
+ * Uma ocorrência que, com o texto que o padrão consulta, vá além de
+ * {@value #CONTEXT} caracteres depois do fim do bloco pode não ser achada.
+ * Ocorrências vazias são ignoradas.
+ */
+class SearchTask extends SwingWorker<Integer, int[]> {
+
+    static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int MAX_LINE_EXTENSION = 64 * 1024; // além disso o bloco é cortado no meio da linha
+    private static final int CONTEXT = 64 * 1024; // texto vizinho visível ao matcher de cada lado do bloco
+    private static final int WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int MAX_IN_FLIGHT = WORKERS * 2; // blocos prontos à espera da ordem
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(WORKERS, r -> {
+        Thread thread = new Thread(r, "SearchTask-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Ocorrências de um bloco
+    private static final class Chunk {
+        int to; // fim do bloco
+        int[] hits = new int[16];
+        int count;
+        String replaced; // texto de hits[0] até o fim da última ocorrência, já substituído
+    }
+
+    private final TextSnapshot text;
+    private final Pattern pattern;
+    private final String replacement; // null: só busca
+    private final Consumer<int[]> onHits;
+    private final Consumer<SearchTask> onFinished;
+
+    // Resultado da substituição
+    private int replaceStart;
+    private int replaceEnd;
+    private String replaced;
+
+    // Busca; onHits recebe as ocorrências na EDT, na ordem do documento, enquanto a busca anda
+    public SearchTask(TextSnapshot text, Pattern pattern, Consumer<int[]> onHits, Consumer<SearchTask> onFinished) {
+        this(text, pattern, null, onHits, onFinished);
+    }
+
+    // Substituição; replacement segue a sintaxe de Matcher.appendReplacement
+    public SearchTask(TextSnapshot text, Pattern pattern, String replacement, Consumer<SearchTask> onFinished) {
+        this(text, pattern, replacement, hits -> { }, onFinished);
+    }
+
+    private SearchTask(TextSnapshot text, Pattern pattern, String replacement,
+                       Consumer<int[]> onHits, Consumer<SearchTask> onFinished) {
+        this.text = text;
+        this.pattern = pattern;
+        this.replacement = replacement;
+        this.onHits = onHits;
+        this.onFinished = onFinished;
+    }
+
+    public TextSnapshot getText() {
+        return text;
+    }
+
+    public boolean isReplacing() {
+        return replacement != null;
+    }
+
+    // Intervalo a substituir por getReplaced(); vazio se não houve ocorrências
+    public int getReplaceStart() {
+        return replaceStart;
+    }
+
+    public int getReplaceEnd() {
+        return replaceEnd;
+    }
+
+    public String getReplaced() {
+        return replaced;
+    }
+
+    @Override
+    protected Integer doInBackground() throws Exception {
+        int length = text.length();
+        int chunks = Math.max(1, (length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        StringBuilder out = replacement != null ? new StringBuilder() : null;
+        int next = 0;
+        int total = 0;
+        int lastEnd = 0; // fim da última ocorrência aceita
+        try {
+            while (next < chunks && inFlight.size() < MAX_IN_FLIGHT) {
+                inFlight.add(submit(next++));
+            }
+            for (int done = 0; !inFlight.isEmpty() && !isCancelled(); done++) {
+                Chunk chunk = inFlight.poll().get();
+                if (next < chunks) {
+                    inFlight.add(submit(next++));
+                }
+                if (chunk.count > 0 && chunk.hits[0] < lastEnd) {
+                    // A última ocorrência do bloco anterior passou do corte: a busca continua de onde ela acaba
+                    chunk = search(lastEnd, Math.max(lastEnd, chunk.to));
+                }
+                if (chunk.count > 0) {
+                    lastEnd = chunk.hits[chunk.count * 2 - 1];
+                    total += chunk.count;
+                    if (out == null) {
+                        publish(Arrays.copyOf(chunk.hits, chunk.count * 2));
+                    } else {
+                        // O texto entre blocos não muda e vem do instantâneo
+                        if (total == chunk.count) {
+                            replaceStart = chunk.hits[0];
+                        } else {
+                            out.append(text.getString(replaceEnd, chunk.hits[0]));
+                        }
+                        out.append(chunk.replaced);
+                        replaceEnd = chunk.hits[chunk.count * 2 - 1];
+                    }
+                }
+                setProgress((done + 1) * 100 / chunks);
+            }
+        } finally {
+            for (Future<Chunk> pending : inFlight) {
+                pending.cancel(true);
+            }
+        }
+        if (out != null) {
+            replaced = out.toString();
+        }
+        return total;
+    }
+
+    private Future<Chunk> submit(int index) {
+        int length = text.length();
+        int from = boundary((long) index * CHUNK_SIZE);
+        int to = boundary(Math.min(length, ((long) index + 1) * CHUNK_SIZE));
+        return POOL.submit(() -> search(from, to));
+    }
+
+    // Início da linha seguinte a uma posição nominal de corte, para os blocos
+    // vizinhos concordarem sobre onde um termina e o outro começa
+    private int boundary(long nominal) {
+        int position = (int) nominal;
+        int length = text.length();
+        if (position == 0 || position >= length) {
+            return position;
+        }
+        char[] window = new char[Math.min(4096, MAX_LINE_EXTENSION)];
+        int limit = (int) Math.min(length, (long) position - 1 + MAX_LINE_EXTENSION);
+        for (int from = position - 1; from < limit; from += window.length) {
+            int to = Math.min(limit, from + window.length);
+            text.getChars(from, to, window, 0);
+            for (int i = 0; i < to - from; i++) {
+                if (window[i] == '\n') {
+                    return from + i + 1;
+                }
+            }
+        }
+        return position; // linha longa demais: corta onde estava
+    }
+
+    // Ocorrências que começam em [from, to). Uma ocorrência que leu até o fim da janela
+    // poderia ser outra com mais texto; então a busca é refeita com uma janela maior
+    private Chunk search(int from, int to) {
+        int length = text.length();
+        for (long after = CONTEXT; ; after *= 4) {
+            int windowStart = Math.max(0, from - CONTEXT);
+            int windowEnd = (int) Math.min(length, to + after);
+            Chunk chunk = search(from, to, windowStart, windowEnd);
+            if (chunk != null) {
+                return chunk;
+            }
+        }
+    }
+
+    // null se a janela não terminou no fim do texto e alguma ocorrência chegou até ela
+    private Chunk search(int from, int to, int windowStart, int windowEnd) {
+        Chunk chunk = new Chunk();
+        chunk.to = to;
+        if (from >= to || isCancelled()) {
+            return chunk;
+        }
+        char[] chars = new char[windowEnd - windowStart];
+        text.getChars(windowStart, windowEnd, chars, 0);
+        // Limites transparentes e não âncoras: o texto em volta do bloco conta como no documento
+        Matcher matcher = pattern.matcher(CharBuffer.wrap(chars))
+                .region(from - windowStart, chars.length)
+                .useTransparentBounds(true)
+                .useAnchoringBounds(false);
+        boolean truncated = windowEnd < text.length();
+        StringBuilder out = replacement != null ? new StringBuilder() : null;
+        int firstStart = -1;
+        while (matcher.find() && !isCancelled()) {
+            if (windowStart + matcher.start() >= to) {
+                break; // do bloco seguinte
+            }
+            if (truncated && matcher.hitEnd()) {
+                return null;
+            }
+            if (matcher.end() == matcher.start()) {
+                continue;
+            }
+            if (chunk.count * 2 == chunk.hits.length) {
+                chunk.hits = Arrays.copyOf(chunk.hits, chunk.hits.length * 2);
+            }
+            chunk.hits[chunk.count * 2] = windowStart + matcher.start();
+            chunk.hits[chunk.count * 2 + 1] = windowStart + matcher.end();
+            chunk.count++;
+            if (out != null) {
+                if (firstStart < 0) {
+                    firstStart = matcher.start();
+                }
+                matcher.appendReplacement(out, replacement);
+            }
+        }
+        if (out != null && firstStart >= 0) {
+            chunk.replaced = out.substring(firstStart);
+        }
+        return chunk;
+    }
+
+    @Override
+    protected void process(List<int[]> batches) {
+        if (!isCancelled()) {
+            batches.forEach(onHits);
+        }
+    }
+
+    @Override
+    protected void done() {
+        onFinished.accept(this);
+    }
+}
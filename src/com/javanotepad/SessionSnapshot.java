@@ -0,0 +1,220 @@
+package com.javanotepad;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32C;
+
+/**
+ * Estado da janela ao sair (abas, posições e animação do fundo), guardado num
+ * arquivo binário curto em {@code ~/.javanotepad/session} para a próxima
+ * execução recomeçar de onde esta parou.
+ * <p>
+ * Para cada arquivo ASCII sem alterações também ficam o tamanho e a data de
+ * modificação lidos ao abri-lo, as contagens de {@link TextStatistics} e, para
+ * arquivos grandes, o início de cada linha (em diferenças codificadas em
+ * tamanho variável). Se o arquivo ainda tiver o mesmo tamanho e a mesma data,
+ * o {@link FileLoader} só confere os bytes contra as contagens numa passada
+ * rápida e reaproveita o resto.
+ * <p>
+ * {@link #preload()} começa a leitura fora da EDT assim que o programa inicia;
+ * {@link #get()} espera por ela. Um arquivo ilegível, truncado ou de outra
+ * versão é ignorado.
+ */
+final class SessionSnapshot {
+
+    static final Path FILE = Paths.get(System.getProperty("user.home"), ".javanotepad", "session");
+    private static final int MAGIC = 0x4A4E5331; // "JNS1"
+    // Abaixo disto achar as linhas de novo é mais rápido do que ler e conferir o que foi guardado
+    static final long MIN_INDEXED_SIZE = 1024 * 1024;
+
+    private static CompletableFuture<SessionSnapshot> loading;
+
+    // Como um arquivo ASCII foi lido; vale enquanto o tamanho e a data não mudarem
+    static final class FileInfo {
+        final long size;
+        final long modified;
+        final String charset;
+        final int separators;
+        final int wordStarts;
+        int[] lineStarts; // null se não foram guardados
+
+        FileInfo(long size, long modified, String charset, int separators, int wordStarts) {
+            this.size = size;
+            this.modified = modified;
+            this.charset = charset;
+            this.separators = separators;
+            this.wordStarts = wordStarts;
+        }
+    }
+
+    static final class Tab {
+        final Path path;
+        final int caret;
+        final int viewX;
+        final int viewY;
+        final FileInfo info; // null se não há o que reaproveitar
+
+        Tab(Path path, int caret, int viewX, int viewY, FileInfo info) {
+            this.path = path;
+            this.caret = caret;
+            this.viewX = viewX;
+            this.viewY = viewY;
+            this.info = info;
+        }
+    }
+
+    String pattern; // nome do padrão do fundo; null para nenhum
+    Color color; // escolhida pelo usuário; null para a cor de cada padrão
+    int speed = 1; // 0 lenta, 1 normal, 2 rápida
+    int starCount;
+    int activeTab;
+    final List<Tab> tabs = new ArrayList<>();
+
+    // Começa a ler a sessão anterior em segundo plano
+    static synchronized void preload() {
+        if (loading == null) {
+            loading = CompletableFuture.supplyAsync(SessionSnapshot::read);
+        }
+    }
+
+    // Sessão anterior, ou null se não há nenhuma que possa ser usada
+    static SessionSnapshot get() {
+        preload();
+        return loading.join();
+    }
+
+    private static SessionSnapshot read() {
+        try {
+            byte[] data = Files.readAllBytes(FILE);
+            CRC32C crc = new CRC32C();
+            crc.update(data, 0, Math.max(0, data.length - 4));
+            if (data.length < 8 || (int) crc.getValue() != ByteBuffer.wrap(data, data.length - 4, 4).getInt()) {
+                System.err.println("Sessão anterior ignorada: arquivo incompleto");
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 4));
+            if (in.readInt() != MAGIC) {
+                System.err.println("Sessão anterior ignorada: formato desconhecido");
+                return null;
+            }
+            SessionSnapshot session = new SessionSnapshot();
+            String pattern = in.readUTF();
+            session.pattern = pattern.isEmpty() ? null : pattern;
+            if (in.readBoolean()) {
+                session.color = new Color(in.readInt());
+            }
+            session.speed = in.readByte();
+            session.starCount = in.readInt();
+            session.activeTab = in.readInt();
+            for (int count = in.readInt(); count > 0; count--) {
+                Path path = Paths.get(in.readUTF());
+                int caret = in.readInt();
+                int viewX = in.readInt();
+                int viewY = in.readInt();
+                FileInfo info = null;
+                if (in.readBoolean()) {
+                    info = new FileInfo(in.readLong(), in.readLong(), in.readUTF(), in.readInt(), in.readInt());
+                    int lines = in.readInt();
+                    if (lines > 0) {
+                        info.lineStarts = new int[lines];
+                        for (int i = 1; i < lines; i++) {
+                            info.lineStarts[i] = info.lineStarts[i - 1] + readVarInt(in);
+                        }
+                    }
+                }
+                session.tabs.add(new Tab(path, caret, viewX, viewY, info));
+            }
+            return session;
+        } catch (NoSuchFileException e) {
+            return null; // primeira execução
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Sessão anterior ignorada: " + e);
+            return null;
+        }
+    }
+
+    // Grava num arquivo temporário e o troca pelo anterior, para nunca deixar uma sessão pela metade
+    void save() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeUTF(pattern != null ? pattern : "");
+        out.writeBoolean(color != null);
+        if (color != null) {
+            out.writeInt(color.getRGB());
+        }
+        out.writeByte(speed);
+        out.writeInt(starCount);
+        out.writeInt(activeTab);
+        out.writeInt(tabs.size());
+        for (Tab tab : tabs) {
+            out.writeUTF(tab.path.toAbsolutePath().toString());
+            out.writeInt(tab.caret);
+            out.writeInt(tab.viewX);
+            out.writeInt(tab.viewY);
+            out.writeBoolean(tab.info != null);
+            if (tab.info != null) {
+                FileInfo info = tab.info;
+                out.writeLong(info.size);
+                out.writeLong(info.modified);
+                out.writeUTF(info.charset);
+                out.writeInt(info.separators);
+                out.writeInt(info.wordStarts);
+                int[] starts = info.lineStarts;
+                out.writeInt(starts != null ? starts.length : 0);
+                if (starts != null) {
+                    for (int i = 1; i < starts.length; i++) {
+                        writeVarInt(out, starts[i] - starts[i - 1]);
+                    }
+                }
+            }
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        Files.createDirectories(FILE.getParent());
+        Path temp = FILE.resolveSibling(FILE.getFileName() + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        try {
+            Files.move(temp, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, FILE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // 7 bits por byte; o bit alto indica que há mais bytes (linhas curtas ocupam um byte)
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Número malformado");
+    }
+}
@@ -0,0 +1,220 @@
+package com.javanotepad;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Partículas do Starfield num bloco do {@link ParticlePool}, com as
+ * coordenadas em arrays de float separados.
+ * <p>
+ * As estrelas são divididas em blocos de {@value #CHUNK_SIZE}; cada bloco tem
+ * o seu {@link SplittableRandom} e a sua tarefa, criadas uma vez e reiniciadas
+ * a cada passada, e os blocos são processados em paralelo no pool comum do
+ * fork/join sem alocar nada. A projeção na tela e o descarte das estrelas fora
+ * dela também acontecem aqui, então quem desenha só percorre as visíveis.
+ */
+final class StarfieldEngine {
+
+    public static final int CHUNK_SIZE = 4096;
+
+    // Passadas feitas pelas tarefas dos blocos
+    private static final int SPAWN = 0;
+    private static final int STEP = 1;
+    private static final int PROJECT = 2;
+
+    private final ParticlePool.Block block;
+    private final int count;
+    private final int width;
+    private final int height;
+    private final SplittableRandom[] randoms; // um por bloco; nunca usado por duas threads ao mesmo tempo
+    private final ChunkTask[] tasks;
+    private int active; // só as primeiras estrelas andam e são projetadas
+
+    // Parâmetros da passada em andamento, lidos pelos blocos
+    private int pass;
+    private float distance;
+    private int[] outX;
+    private int[] outY;
+    private byte[] outSize;
+    private int[] outCounts;
+    private float advance;
+    private int maxSize;
+
+    // Sorteia as estrelas em todo o bloco, para uma tela de width x height
+    public StarfieldEngine(ParticlePool.Block block, int width, int height, long seed) {
+        this.block = block;
+        this.count = block.getCount();
+        this.width = Math.max(1, width);
+        this.height = Math.max(1, height);
+        this.active = count;
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        randoms = new SplittableRandom[chunks];
+        tasks = new ChunkTask[chunks];
+        SplittableRandom root = new SplittableRandom(seed);
+        for (int c = 0; c < chunks; c++) {
+            randoms[c] = root.split();
+            tasks[c] = new ChunkTask(c);
+        }
+        forEachChunk(SPAWN);
+    }
+
+    public ParticlePool.Block getBlock() {
+        return block;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    // Estrelas ativas; as demais ficam paradas até voltarem a ser ativadas.
+    // Como as posições são sorteadas, as primeiras são uma amostra uniforme do céu
+    public void setActiveCount(int active) {
+        this.active = Math.max(0, Math.min(active, count));
+    }
+
+    public int getActiveCount() {
+        return active;
+    }
+
+    // Blocos com estrelas ativas
+    public int chunkCount() {
+        return (active + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    // Aproxima as estrelas ativas; as que passam da tela renascem no fundo
+    public void step(float distance) {
+        this.distance = distance;
+        forEachChunk(STEP);
+    }
+
+    // Projeta na tela as estrelas ativas avançadas de advance, guardando só as visíveis.
+    // O bloco c grava a partir de c * CHUNK_SIZE e deixa em counts[c] quantas gravou;
+    // size recebe o diâmetro da estrela menos um (0 a maxSize - 1)
+    public void project(float advance, int maxSize, int[] x, int[] y, byte[] size, int[] counts) {
+        this.advance = advance;
+        this.maxSize = maxSize;
+        outX = x;
+        outY = y;
+        outSize = size;
+        outCounts = counts;
+        forEachChunk(PROJECT);
+        outX = null;
+        outY = null;
+        outSize = null;
+        outCounts = null;
+    }
+
+    // O primeiro bloco roda nesta thread enquanto o pool cuida dos outros
+    private void forEachChunk(int pass) {
+        this.pass = pass;
+        int chunks = pass == SPAWN ? tasks.length : chunkCount();
+        if (chunks == 0) {
+            return;
+        }
+        for (int c = 1; c < chunks; c++) {
+            tasks[c].reinitialize();
+            tasks[c].fork();
+        }
+        runChunk(0);
+        // Na ordem inversa: o que nenhuma thread do pool pegou ainda é retirado da fila e roda aqui
+        for (int c = chunks - 1; c > 0; c--) {
+            tasks[c].join();
+        }
+    }
+
+    private void runChunk(int c) {
+        if (pass == SPAWN) {
+            spawnChunk(c);
+        } else if (pass == STEP) {
+            stepChunk(c);
+        } else {
+            projectChunk(c);
+        }
+    }
+
+    // Tarefa reaproveitada de um bloco de estrelas
+    private final class ChunkTask extends RecursiveAction {
+
+        private final int chunk;
+
+        ChunkTask(int chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            runChunk(chunk);
+        }
+    }
+
+    private void spawnChunk(int c) {
+        SplittableRandom random = randoms[c];
+        ParticlePool pool = block.getPool();
+        float[] x = pool.getX();
+        float[] y = pool.getY();
+        float[] z = pool.getZ();
+        int base = block.getStart();
+        int end = base + Math.min(count, (c + 1) * CHUNK_SIZE);
+        for (int i = base + c * CHUNK_SIZE; i < end; i++) {
+            x[i] = random.nextInt(width * 2) - width;
+            y[i] = random.nextInt(height * 2) - height;
+            z[i] = random.nextInt(width) + 1; // evita divisão por zero
+        }
+    }
+
+    private void stepChunk(int c) {
+        SplittableRandom random = randoms[c];
+        float d = distance;
+        int w = width;
+        int h = height;
+        ParticlePool pool = block.getPool();
+        float[] x = pool.getX();
+        float[] y = pool.getY();
+        float[] z = pool.getZ();
+        int base = block.getStart();
+        int end = base + Math.min(active, (c + 1) * CHUNK_SIZE);
+        for (int i = base + c * CHUNK_SIZE; i < end; i++) {
+            float nz = z[i] - d;
+            if (nz <= 0) {
+                nz = w;
+                x[i] = random.nextInt(w * 2) - w;
+                y[i] = random.nextInt(h * 2) - h;
+            }
+            z[i] = nz;
+        }
+    }
+
+    private void projectChunk(int c) {
+        int w = width;
+        int h = height;
+        int cx = w / 2;
+        int cy = h / 2;
+        float a = advance;
+        float scale = (float) maxSize / w;
+        int start = c * CHUNK_SIZE;
+        int end = Math.min(active, start + CHUNK_SIZE);
+        ParticlePool pool = block.getPool();
+        float[] x = pool.getX();
+        float[] y = pool.getY();
+        float[] z = pool.getZ();
+        int base = block.getStart();
+        int[] px = outX;
+        int[] py = outY;
+        byte[] ps = outSize;
+        int n = start;
+        for (int i = base + start; i < base + end; i++) {
+            float depth = Math.max(1, z[i] - a);
+            float inverse = 1 / depth; // uma divisão por estrela
+            int sx = cx + (int) (x[i] * inverse * w);
+            int sy = cy + (int) (y[i] * inverse * h);
+            int size = (int) ((w - depth) * scale);
+            // Grava sempre e só avança se a estrela estiver na tela: sem desvio
+            // imprevisível no laço, já que a maioria das estrelas fica de fora
+            px[n] = sx;
+            py[n] = sy;
+            ps[n] = (byte) Math.max(0, Math.min(size, maxSize) - 1);
+            n += ((sx + maxSize) | (sy + maxSize) | (w - sx) | (h - sy)) >>> 31 ^ 1;
+        }
+        outCounts[c] = n - start;
+    }
+}
@@ -0,0 +1,147 @@
+package com.javanotepad;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+
+/**
+ * Estrelas vindo do fundo da tela em direção ao usuário.
+ * <p>
+ * A simulação fica no {@link StarfieldEngine}; aqui ficam o bloco de
+ * partículas, a projeção para o quadro e o desenho com sprites prontos.
+ */
+public final class StarfieldPattern implements BackgroundPattern {
+
+    private static final int STAR_STEP = 5; // quanto cada estrela se aproxima por passo
+    private static final int MAX_STAR_SIZE = 6; // diâmetro da estrela mais próxima
+    private static final int SPRITE_PAD = 1; // margem para a borda suavizada
+
+    // Só na thread do relógio
+    private final SplittableRandom random = new SplittableRandom();
+    private StarfieldEngine stars;
+    private int width;
+    private int height;
+
+    // Só na EDT
+    private BufferedImage[] sprites; // um por diâmetro, de 1 a MAX_STAR_SIZE
+    private Color spriteColor;
+    private boolean spriteAntialias;
+
+    // Estrelas visíveis já projetadas: o bloco c ocupa a partir de c * CHUNK_SIZE
+    private static final class StarFrame implements Frame {
+        int chunks;
+        int[] counts = new int[0];
+        int[] x = new int[0];
+        int[] y = new int[0];
+        byte[] size = new byte[0];
+    }
+
+    public StarfieldPattern() {
+    }
+
+    @Override
+    public String getName() {
+        return "Starfield";
+    }
+
+    @Override
+    public void resize(Context context, int width, int height) {
+        this.width = width;
+        this.height = height;
+        respawn(context, stars != null ? stars.getBlock() : null, context.getParticleCount());
+    }
+
+    @Override
+    public void update(Context context) {
+        int count = context.getParticleCount();
+        if (stars.getCount() != count) {
+            respawn(context, stars.getBlock(), count);
+        }
+        stars.setActiveCount(Math.max(1, (int) ((long) count * context.getActivePercent() / 100)));
+        stars.step(STAR_STEP);
+    }
+
+    // Sorteia as estrelas de novo, trocando de bloco só se a quantidade mudou
+    private void respawn(Context context, ParticlePool.Block block, int count) {
+        ParticlePool pool = context.getPool();
+        if (block == null || block.getCount() != count) {
+            if (block != null) {
+                pool.release(block);
+            }
+            block = pool.acquire(count);
+        }
+        stars = new StarfieldEngine(block, width, height, random.nextLong());
+    }
+
+    @Override
+    public boolean needsFrame() {
+        return true; // as estrelas são interpoladas entre os passos
+    }
+
+    @Override
+    public Frame createFrame() {
+        return new StarFrame();
+    }
+
+    @Override
+    public void capture(Frame frame, float alpha) {
+        StarFrame f = (StarFrame) frame;
+        int count = stars.getCount();
+        if (f.x.length != count) {
+            f.x = new int[count];
+            f.y = new int[count];
+            f.size = new byte[count];
+        }
+        f.chunks = stars.chunkCount();
+        if (f.counts.length < f.chunks) {
+            f.counts = new int[f.chunks];
+        }
+        // Posição entre o último passo e o próximo
+        stars.project(alpha * STAR_STEP, MAX_STAR_SIZE, f.x, f.y, f.size, f.counts);
+    }
+
+    // Só as estrelas visíveis chegam aqui, já projetadas pelo relógio
+    @Override
+    public void render(Graphics2D g, Frame frame, Color color, boolean antialias) {
+        StarFrame f = (StarFrame) frame;
+        BufferedImage[] sprites = sprites(g.getDeviceConfiguration(), color, antialias);
+        for (int c = 0; c < f.chunks; c++) {
+            int start = c * StarfieldEngine.CHUNK_SIZE;
+            int end = start + f.counts[c];
+            for (int i = start; i < end; i++) {
+                g.drawImage(sprites[f.size[i]], f.x[i] - SPRITE_PAD, f.y[i] - SPRITE_PAD, null);
+            }
+        }
+    }
+
+    // Estrelas desenhadas uma vez por cor; cada quadro só copia as imagens.
+    // Sem suavização os sprites não têm transparência parcial e a cópia dispensa a mistura
+    private BufferedImage[] sprites(GraphicsConfiguration gc, Color color, boolean antialias) {
+        if (sprites != null && color.equals(spriteColor) && antialias == spriteAntialias) {
+            return sprites;
+        }
+        int transparency = antialias ? Transparency.TRANSLUCENT : Transparency.BITMASK;
+        BufferedImage[] created = new BufferedImage[MAX_STAR_SIZE];
+        for (int d = 1; d <= MAX_STAR_SIZE; d++) {
+            int side = d + 2 * SPRITE_PAD;
+            BufferedImage sprite = gc != null
+                    ? gc.createCompatibleImage(side, side, transparency)
+                    : new BufferedImage(side, side, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = sprite.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialias
+                    ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+            g.setColor(color);
+            g.fillOval(SPRITE_PAD, SPRITE_PAD, d, d);
+            g.dispose();
+            created[d - 1] = sprite;
+        }
+        sprites = created;
+        spriteColor = color;
+        spriteAntialias = antialias;
+        return created;
+    }
+}
@@ -0,0 +1,409 @@
+package com.javanotepad;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.EventListenerList;
+import javax.swing.text.Element;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Realce de sintaxe de um {@link PieceTableDocument}: guarda o estado do
+ * {@link SyntaxLexer} no começo de cada linha.
+ * <p>
+ * Os tokens não são guardados: a {@link SyntaxView} classifica só as linhas
+ * que pinta, partindo do estado da linha. Uma edição na EDT só marca as linhas
+ * afetadas (e desloca o array quando linhas entram ou saem); uma thread de
+ * fundo relê o texto a partir da primeira delas, num {@link TextSnapshot}, até
+ * o estado no começo de uma linha depois da área alterada voltar a ser o que
+ * era. Digitar dentro de uma linha costuma parar já na seguinte; abrir um
+ * comentário de bloco relê até onde ele fecha.
+ * <p>
+ * Linhas com mais de {@value #MAX_LINE} caracteres não são classificadas:
+ * ficam sem cor e não mudam o estado. Elas também não são guardadas; o fim
+ * delas é procurado numa janela fixa, e uma edição no meio da procura faz a
+ * releitura desistir.
+ */
+final class SyntaxHighlighter implements DocumentListener {
+
+    static final int MAX_LINE = 10_000;
+
+    private static final int BATCH_LINES = 2048; // linhas relidas entre duas conferências de versão
+    private static final int CHUNK = 16 * 1024;
+    private static final int CLEAN = Integer.MAX_VALUE;
+
+    // Uma thread para todos os documentos
+    private static final ExecutorService LEXER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "SyntaxHighlighter");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final PieceTableDocument document;
+    private final SyntaxLexer lexer;
+    private final EventListenerList listeners = new EventListenerList();
+
+    // Protegidos por this: a EDT altera nas edições e a thread de fundo ao reler
+    private int[] states; // estado no começo de cada linha
+    private int lineCount;
+    private int dirtyFrom = CLEAN; // primeira linha a reler
+    private int dirtyTo = -1;      // antes desta linha um estado igual ao guardado não basta para parar
+    private long version;          // muda a cada edição
+
+    // Só na EDT
+    private boolean scheduled;
+    private boolean running;
+    private boolean installed = true;
+
+    private SyntaxHighlighter(PieceTableDocument document, SyntaxLexer lexer) {
+        this.document = document;
+        this.lexer = lexer;
+        lineCount = document.getDefaultRootElement().getElementCount();
+        states = new int[Math.max(16, lineCount)];
+        markDirty(0, lineCount);
+    }
+
+    // Realce do documento, ou null se ele não tiver
+    public static SyntaxHighlighter of(javax.swing.text.Document document) {
+        Object highlighter = document.getProperty(SyntaxHighlighter.class);
+        return highlighter instanceof SyntaxHighlighter ? (SyntaxHighlighter) highlighter : null;
+    }
+
+    // Passa a realçar o documento com lexer (null tira o realce); chamado na EDT
+    public static void install(PieceTableDocument document, SyntaxLexer lexer) {
+        SyntaxHighlighter old = of(document);
+        if (old != null && old.lexer == lexer) {
+            return;
+        }
+        if (old != null) {
+            old.uninstall();
+        }
+        if (lexer != null) {
+            SyntaxHighlighter highlighter = new SyntaxHighlighter(document, lexer);
+            document.addDocumentListener(highlighter);
+            document.putProperty(SyntaxHighlighter.class, highlighter);
+            highlighter.schedule();
+        }
+        if (old != null) {
+            old.fireStateChanged(); // as views pintam de novo com o lexer novo (ou sem nenhum)
+        }
+    }
+
+    private void uninstall() {
+        installed = false;
+        document.removeDocumentListener(this);
+        document.putProperty(SyntaxHighlighter.class, null);
+        synchronized (this) {
+            version++; // a releitura em andamento desiste
+        }
+    }
+
+    public SyntaxLexer getLexer() {
+        return lexer;
+    }
+
+    // Estado no começo da linha; pode estar desatualizado enquanto a releitura não passa por ela
+    public synchronized int stateAt(int line) {
+        return line < lineCount ? states[line] : SyntaxLexer.NORMAL;
+    }
+
+    // Avisado na EDT quando estados de linhas mudam depois de uma releitura
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(ChangeListener.class, listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(ChangeListener.class, listener);
+    }
+
+    private void fireStateChanged() {
+        ChangeEvent event = new ChangeEvent(this);
+        for (ChangeListener listener : listeners.getListeners(ChangeListener.class)) {
+            listener.stateChanged(event);
+        }
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        edited(e);
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        edited(e);
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+    }
+
+    // As linhas já foram atualizadas pelo documento; aqui só o array acompanha
+    private void edited(DocumentEvent e) {
+        Element root = document.getDefaultRootElement();
+        DocumentEvent.ElementChange change = e.getChange(root);
+        synchronized (this) {
+            if (change != null) {
+                replaceLines(change.getIndex(), change.getChildrenRemoved().length, change.getChildrenAdded().length);
+            } else {
+                int line = root.getElementIndex(e.getOffset());
+                markDirty(line, line + 1);
+            }
+            version++;
+        }
+        schedule();
+    }
+
+    // As linhas [index, index + removed) viraram [index, index + added)
+    private void replaceLines(int index, int removed, int added) {
+        int delta = added - removed;
+        if (lineCount + delta > states.length) {
+            states = Arrays.copyOf(states, Math.max(lineCount + delta, states.length + states.length / 2));
+        }
+        System.arraycopy(states, index + removed, states, index + added, lineCount - index - removed);
+        // As linhas novas começam com o estado da primeira até serem relidas
+        if (added > 1) {
+            Arrays.fill(states, index + 1, index + added, states[index]);
+        }
+        lineCount += delta;
+        if (dirtyFrom != CLEAN) {
+            dirtyFrom = shift(dirtyFrom, index, removed, added);
+            dirtyTo = shift(dirtyTo, index, removed, added);
+        }
+        markDirty(index, index + added);
+    }
+
+    private static int shift(int line, int index, int removed, int added) {
+        if (line >= index + removed) {
+            return line + added - removed;
+        }
+        return Math.min(line, index + added);
+    }
+
+    private void markDirty(int from, int to) {
+        dirtyFrom = Math.min(dirtyFrom, from);
+        dirtyTo = Math.max(dirtyTo, to);
+        if (dirtyFrom >= lineCount) {
+            dirtyFrom = CLEAN;
+            dirtyTo = -1;
+        }
+    }
+
+    // Junta as edições de um mesmo evento numa releitura só
+    private void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            SwingUtilities.invokeLater(this::start);
+        }
+    }
+
+    // Começa a releitura na primeira linha marcada; uma por vez por documento
+    private void start() {
+        scheduled = false;
+        if (running || !installed) {
+            return; // quem está rodando chama de novo ao terminar
+        }
+        int from;
+        int state;
+        long startVersion;
+        synchronized (this) {
+            if (dirtyFrom == CLEAN) {
+                return;
+            }
+            from = dirtyFrom;
+            state = states[from];
+            startVersion = version;
+        }
+        int offset = document.getDefaultRootElement().getElement(from).getStartOffset();
+        TextSnapshot text = document.snapshot();
+        running = true;
+        LEXER.execute(() -> {
+            try {
+                relex(text, from, offset, state, startVersion);
+            } finally {
+                SwingUtilities.invokeLater(() -> {
+                    running = false;
+                    start();
+                });
+            }
+        });
+    }
+
+    // Na thread de fundo: relê a partir da linha line até os estados convergirem
+    private void relex(TextSnapshot text, int line, int offset, int state, long startVersion) {
+        LineReader reader = new LineReader(text, offset, () -> isStale(startVersion));
+        SyntaxTokens tokens = new SyntaxTokens();
+        int[] batch = new int[BATCH_LINES]; // estado no começo das linhas line + 1, line + 2...
+        boolean more = true;
+        while (more) {
+            int count = 0;
+            while (count < BATCH_LINES && more) {
+                more = reader.next();
+                if (reader.isAbandoned()) {
+                    return; // o texto mudou no meio de uma linha longa
+                }
+                if (reader.length() <= MAX_LINE) {
+                    state = lexer.lex(reader.chars(), reader.start(), reader.start() + reader.length(), state, tokens);
+                }
+                batch[count++] = state;
+            }
+            boolean changed = false;
+            boolean done = false;
+            synchronized (this) {
+                if (version != startVersion) {
+                    return; // o texto mudou; a edição já pediu outra releitura
+                }
+                for (int k = 0; k < count && !done; k++) {
+                    int next = line + k + 1;
+                    if (next >= lineCount || (next >= dirtyTo && states[next] == batch[k])) {
+                        done = true; // fim do documento, ou dali em diante nada muda
+                    } else if (states[next] != batch[k]) {
+                        states[next] = batch[k];
+                        changed = true;
+                    }
+                }
+                if (done || !more) {
+                    dirtyFrom = CLEAN;
+                    dirtyTo = -1;
+                } else {
+                    dirtyFrom = line + count;
+                }
+            }
+            if (changed) {
+                SwingUtilities.invokeLater(this::fireStateChanged);
+            }
+            if (done) {
+                return;
+            }
+            line += count;
+        }
+    }
+
+    // Lê o instantâneo linha a linha, em blocos; uma linha sempre fica inteira no buffer
+    private synchronized boolean isStale(long startVersion) {
+        return version != startVersion;
+    }
+
+    private static final class LineReader {
+
+        private final TextSnapshot text;
+        private final BooleanSupplier stale; // consultado a cada bloco lido
+        private boolean abandoned;
+        private char[] buffer = new char[CHUNK];
+        private int bufferOffset; // posição no texto de buffer[0]
+        private int bufferLength;
+        private int position;     // começo da próxima linha, no texto
+        private int lineStart;    // linha atual, no buffer
+        private int lineLength;
+
+        LineReader(TextSnapshot text, int offset, BooleanSupplier stale) {
+            this.text = text;
+            this.stale = stale;
+            this.position = offset;
+            this.bufferOffset = offset;
+        }
+
+        // Avança para a próxima linha; false se ela for a última do texto ou se a leitura
+        // foi abandonada. Uma linha com mais de MAX_LINE caracteres tem só o tamanho certo
+        boolean next() {
+            int length = text.length();
+            int scan = position - bufferOffset;
+            while (true) {
+                int end = bufferLength;
+                for (int i = scan; i < end; i++) {
+                    if (buffer[i] == '\n') {
+                        lineStart = position - bufferOffset;
+                        lineLength = i - lineStart;
+                        position = bufferOffset + i + 1;
+                        return true;
+                    }
+                }
+                if (bufferOffset + bufferLength >= length) {
+                    lineStart = position - bufferOffset;
+                    lineLength = bufferLength - lineStart;
+                    position = length;
+                    return false;
+                }
+                if (stale.getAsBoolean()) {
+                    abandoned = true;
+                    return false;
+                }
+                if (bufferOffset + bufferLength - position > MAX_LINE) {
+                    return skipLine();
+                }
+                scan = fill();
+            }
+        }
+
+        // Procura o fim de uma linha longa demais para ser classificada sem guardá-la: cada bloco
+        // é lido por cima do anterior. O buffer volta ao tamanho normal
+        private boolean skipLine() {
+            int length = text.length();
+            int begin = position;
+            int from = bufferOffset + bufferLength; // até aqui já não havia quebra
+            if (buffer.length > CHUNK) {
+                buffer = new char[CHUNK];
+            }
+            lineStart = 0;
+            while (from < length) {
+                if (stale.getAsBoolean()) {
+                    abandoned = true;
+                    return false;
+                }
+                int read = Math.min(buffer.length, length - from);
+                text.getChars(from, from + read, buffer, 0);
+                bufferOffset = from;
+                bufferLength = read;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        lineLength = from + i - begin;
+                        position = from + i + 1;
+                        return true;
+                    }
+                }
+                from += read;
+            }
+            lineLength = length - begin;
+            position = length;
+            return false;
+        }
+
+        // O texto mudou durante a leitura; a releitura deve parar
+        boolean isAbandoned() {
+            return abandoned;
+        }
+
+        // Descarta o que já foi lido, mantém a linha incompleta e lê mais; devolve onde continuar a busca
+        private int fill() {
+            int keep = bufferOffset + bufferLength - position;
+            int start = position - bufferOffset;
+            if (keep + CHUNK > buffer.length) {
+                // Linha maior que o buffer (até MAX_LINE; as maiores são puladas sem guardar)
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, keep + CHUNK));
+            }
+            System.arraycopy(buffer, start, buffer, 0, keep);
+            bufferOffset = position;
+            int read = Math.min(buffer.length - keep, text.length() - (bufferOffset + keep));
+            text.getChars(bufferOffset + keep, bufferOffset + keep + read, buffer, keep);
+            bufferLength = keep + read;
+            return keep;
+        }
+
+        char[] chars() {
+            return buffer;
+        }
+
+        int start() {
+            return lineStart;
+        }
+
+        int length() {
+            return lineLength;
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.javanotepad;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import static com.javanotepad.SyntaxTokens.ANNOTATION;
+import static com.javanotepad.SyntaxTokens.ATTRIBUTE;
+import static com.javanotepad.SyntaxTokens.COMMENT;
+import static com.javanotepad.SyntaxTokens.KEYWORD;
+import static com.javanotepad.SyntaxTokens.LOG_DEBUG;
+import static com.javanotepad.SyntaxTokens.LOG_ERROR;
+import static com.javanotepad.SyntaxTokens.LOG_INFO;
+import static com.javanotepad.SyntaxTokens.LOG_WARNING;
+import static com.javanotepad.SyntaxTokens.NUMBER;
+import static com.javanotepad.SyntaxTokens.PLAIN;
+import static com.javanotepad.SyntaxTokens.STRING;
+import static com.javanotepad.SyntaxTokens.TAG;
+
+/**
+ * Lexers de linha para o realce de sintaxe.
+ * <p>
+ * Cada linha é classificada sozinha, a partir do estado em que a anterior
+ * terminou (dentro de um comentário de bloco, de uma tag...), e devolve o
+ * estado em que ela mesma termina. É isso que deixa o {@link SyntaxHighlighter}
+ * reler só a partir da linha alterada. Nenhum método aloca.
+ */
+enum SyntaxLexer {
+
+    JAVA("Java") {
+        private static final int BLOCK_COMMENT = 1;
+        private static final int TEXT_BLOCK = 2;
+
+        @Override
+        int lex(char[] t, int start, int end, int state, SyntaxTokens out) {
+            out.reset(start);
+            int i = start;
+            if (state == BLOCK_COMMENT || state == TEXT_BLOCK) {
+                int close = state == BLOCK_COMMENT ? indexOf(t, i, end, "*/") : textBlockEnd(t, i, end);
+                if (close < 0) {
+                    out.add(end, state == BLOCK_COMMENT ? COMMENT : STRING);
+                    return state;
+                }
+                i = state == BLOCK_COMMENT ? close + 2 : close;
+                out.add(i, state == BLOCK_COMMENT ? COMMENT : STRING);
+            }
+            while (i < end) {
+                char c = t[i];
+                char next = i + 1 < end ? t[i + 1] : 0;
+                if (c == '/' && next == '/') {
+                    out.add(end, COMMENT);
+                    return NORMAL;
+                } else if (c == '/' && next == '*') {
+                    int close = indexOf(t, i + 2, end, "*/");
+                    if (close < 0) {
+                        out.add(end, COMMENT);
+                        return BLOCK_COMMENT;
+                    }
+                    i = close + 2;
+                    out.add(i, COMMENT);
+                } else if (c == '"' && next == '"' && i + 2 < end && t[i + 2] == '"') {
+                    int close = textBlockEnd(t, i + 3, end);
+                    if (close < 0) {
+                        out.add(end, STRING);
+                        return TEXT_BLOCK;
+                    }
+                    i = close;
+                    out.add(i, STRING);
+                } else if (c == '"' || c == '\'') {
+                    i = quoteEnd(t, i + 1, end, c);
+                    out.add(i, STRING);
+                } else if (c == '@' && Character.isJavaIdentifierStart(next)) {
+                    i = identifierEnd(t, i + 1, end);
+                    out.add(i, ANNOTATION);
+                } else if (isDigit(c) || (c == '.' && isDigit(next))) {
+                    i = numberEnd(t, i + 1, end);
+                    out.add(i, NUMBER);
+                } else if (Character.isJavaIdentifierStart(c)) {
+                    int e = identifierEnd(t, i + 1, end);
+                    out.add(e, isKeyword(JAVA_KEYWORDS, t, i, e) ? KEYWORD : PLAIN);
+                    i = e;
+                } else {
+                    out.add(++i, PLAIN);
+                }
+            }
+            return NORMAL;
+        }
+    },
+
+    JSON("JSON") {
+        @Override
+        int lex(char[] t, int start, int end, int state, SyntaxTokens out) {
+            out.reset(start);
+            int i = start;
+            while (i < end) {
+                char c = t[i];
+                if (c == '"') {
+                    int e = quoteEnd(t, i + 1, end, '"');
+                    int after = e;
+                    while (after < end && Character.isWhitespace(t[after])) {
+                        after++;
+                    }
+                    out.add(e, after < end && t[after] == ':' ? ATTRIBUTE : STRING); // chave ou valor
+                    i = e;
+                } else if (isDigit(c) || c == '-') {
+                    i = numberEnd(t, i + 1, end);
+                    out.add(i, NUMBER);
+                } else if (Character.isLetter(c)) {
+                    int e = identifierEnd(t, i + 1, end);
+                    out.add(e, isKeyword(JSON_KEYWORDS, t, i, e) ? KEYWORD : PLAIN);
+                    i = e;
+                } else {
+                    out.add(++i, PLAIN);
+                }
+            }
+            return NORMAL;
+        }
+    },
+
+    XML("XML") {
+        private static final int COMMENT_STATE = 1;
+        private static final int CDATA = 2;
+        private static final int IN_TAG = 3;
+        private static final int DOUBLE_QUOTED = 4; // valor de atributo entre aspas que continua na próxima linha
+        private static final int SINGLE_QUOTED = 5;
+
+        @Override
+        int lex(char[] t, int start, int end, int state, SyntaxTokens out) {
+            out.reset(start);
+            int i = start;
+            while (i < end) {
+                if (state == COMMENT_STATE || state == CDATA) {
+                    int close = state == COMMENT_STATE ? indexOf(t, i, end, "-->") : indexOf(t, i, end, "]]>");
+                    int type = state == COMMENT_STATE ? COMMENT : STRING;
+                    if (close < 0) {
+                        out.add(end, type);
+                        return state;
+                    }
+                    i = close + 3;
+                    out.add(i, type);
+                    state = NORMAL;
+                } else if (state == DOUBLE_QUOTED || state == SINGLE_QUOTED) {
+                    int close = indexOf(t, i, end, state == DOUBLE_QUOTED ? "\"" : "'");
+                    if (close < 0) {
+                        out.add(end, STRING);
+                        return state;
+                    }
+                    i = close + 1;
+                    out.add(i, STRING);
+                    state = IN_TAG;
+                } else if (state == IN_TAG) {
+                    char c = t[i];
+                    if (c == '>') {
+                        out.add(++i, TAG);
+                        state = NORMAL;
+                    } else if ((c == '/' || c == '?') && i + 1 < end && t[i + 1] == '>') {
+                        i += 2;
+                        out.add(i, TAG);
+                        state = NORMAL;
+                    } else if (c == '"' || c == '\'') {
+                        out.add(++i, STRING);
+                        state = c == '"' ? DOUBLE_QUOTED : SINGLE_QUOTED;
+                    } else if (isNameChar(c)) {
+                        i = nameEnd(t, i + 1, end);
+                        out.add(i, ATTRIBUTE);
+                    } else {
+                        out.add(++i, PLAIN);
+                    }
+                } else if (startsWith(t, i, end, "<!--")) {
+                    i += 4;
+                    out.add(i, COMMENT);
+                    state = COMMENT_STATE;
+                } else if (startsWith(t, i, end, "<![CDATA[")) {
+                    i += 9;
+                    out.add(i, STRING);
+                    state = CDATA;
+                } else if (t[i] == '<') {
+                    int e = i + 1;
+                    if (e < end && (t[e] == '/' || t[e] == '?' || t[e] == '!')) {
+                        e++;
+                    }
+                    i = nameEnd(t, e, end);
+                    out.add(i, TAG);
+                    state = IN_TAG;
+                } else if (t[i] == '&') {
+                    int semicolon = indexOf(t, i + 1, Math.min(end, i + 12), ";");
+                    i = semicolon < 0 ? i + 1 : semicolon + 1;
+                    out.add(i, semicolon < 0 ? PLAIN : KEYWORD);
+                } else {
+                    while (++i < end && t[i] != '<' && t[i] != '&') {
+                        // texto até a próxima marcação
+                    }
+                    out.add(i, PLAIN);
+                }
+            }
+            return state;
+        }
+    },
+
+    LOG("Log") {
+        @Override
+        int lex(char[] t, int start, int end, int state, SyntaxTokens out) {
+            out.reset(start);
+            int i = start;
+            while (i < end && (t[i] == ' ' || t[i] == '\t')) {
+                i++;
+            }
+            // Pilha de exceção em cor apagada
+            if ((i > start && startsWith(t, i, end, "at ")) || startsWith(t, i, end, "Caused by:")
+                    || startsWith(t, i, end, "... ")) {
+                out.add(end, COMMENT);
+                return NORMAL;
+            }
+            // Data e hora no começo da linha
+            int digits = 0;
+            int e = start;
+            while (e < end && isTimestampChar(t[e])) {
+                digits += isDigit(t[e]) ? 1 : 0;
+                e++;
+            }
+            while (e > start && t[e - 1] == ' ') {
+                e--;
+            }
+            if (digits >= 6) {
+                out.add(e, NUMBER);
+                i = e;
+            }
+            // Primeira palavra que é um nível
+            while (i < end) {
+                if (!Character.isLetter(t[i])) {
+                    i++;
+                    continue;
+                }
+                int wordEnd = identifierEnd(t, i + 1, end);
+                int level = level(t, i, wordEnd);
+                if (level != PLAIN) {
+                    out.add(i, PLAIN);
+                    out.add(wordEnd, level);
+                    break;
+                }
+                i = wordEnd;
+            }
+            out.add(end, PLAIN);
+            return NORMAL;
+        }
+    };
+
+    static final int NORMAL = 0; // estado inicial de todo documento
+
+    private static final char[][] JAVA_KEYWORDS = keywords(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+            "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+            "volatile", "while", "true", "false", "null", "var", "record", "yield", "sealed", "permits");
+    private static final char[][] JSON_KEYWORDS = keywords("true", "false", "null");
+    private static final char[][] ERROR_LEVELS = keywords("ERROR", "SEVERE", "FATAL", "CRITICAL");
+    private static final char[][] WARNING_LEVELS = keywords("WARN", "WARNING");
+    private static final char[][] INFO_LEVELS = keywords("INFO", "CONFIG", "NOTICE");
+    private static final char[][] DEBUG_LEVELS = keywords("DEBUG", "TRACE", "FINE", "FINER", "FINEST");
+
+    private final String label;
+
+    SyntaxLexer(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    // Classifica t[start, end), uma linha sem a quebra, começando em state;
+    // devolve o estado no fim da linha
+    abstract int lex(char[] t, int start, int end, int state, SyntaxTokens out);
+
+    // Lexer para o nome do arquivo, ou null se não houver realce para ele
+    public static SyntaxLexer forFileName(String name) {
+        if (name == null) {
+            return null;
+        }
+        String lower = name.toLowerCase(Locale.ROOT);
+        int dot = lower.lastIndexOf('.');
+        switch (dot < 0 ? "" : lower.substring(dot + 1)) {
+            case "java":
+                return JAVA;
+            case "json":
+            case "jsonl":
+                return JSON;
+            case "xml":
+            case "xsd":
+            case "xsl":
+            case "xslt":
+            case "svg":
+            case "pom":
+            case "html":
+            case "htm":
+            case "fxml":
+                return XML;
+            case "log":
+                return LOG;
+            default:
+                return null;
+        }
+    }
+
+    private static char[][] keywords(String... words) {
+        char[][] chars = new char[words.length][];
+        for (int i = 0; i < words.length; i++) {
+            chars[i] = words[i].toCharArray();
+        }
+        return chars;
+    }
+
+    private static boolean isKeyword(char[][] keywords, char[] t, int from, int to) {
+        for (char[] keyword : keywords) {
+            if (keyword.length == to - from && Arrays.equals(t, from, to, keyword, 0, keyword.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int level(char[] t, int from, int to) {
+        if (isKeyword(ERROR_LEVELS, t, from, to)) {
+            return LOG_ERROR;
+        } else if (isKeyword(WARNING_LEVELS, t, from, to)) {
+            return LOG_WARNING;
+        } else if (isKeyword(INFO_LEVELS, t, from, to)) {
+            return LOG_INFO;
+        } else if (isKeyword(DEBUG_LEVELS, t, from, to)) {
+            return LOG_DEBUG;
+        }
+        return PLAIN;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isTimestampChar(char c) {
+        return isDigit(c) || c == '-' || c == ':' || c == '.' || c == ',' || c == '/' || c == 'T' || c == ' '
+                || c == '[' || c == ']';
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == ':' || c == '.';
+    }
+
+    private static int nameEnd(char[] t, int i, int end) {
+        while (i < end && isNameChar(t[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int identifierEnd(char[] t, int i, int end) {
+        while (i < end && Character.isJavaIdentifierPart(t[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    // Dígitos, letras (hexadecimal, sufixos, expoente), '_' e '.'; o sinal só depois de um expoente
+    private static int numberEnd(char[] t, int i, int end) {
+        while (i < end) {
+            char c = t[i];
+            char previous = t[i - 1];
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '.'
+                    || (c == '+' || c == '-') && (previous == 'e' || previous == 'E')) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    // Depois da aspa que fecha a que abriu antes de i, ou end se ela não fecha na linha
+    private static int quoteEnd(char[] t, int i, int end, char quote) {
+        while (i < end) {
+            char c = t[i++];
+            if (c == '\\') {
+                i++;
+            } else if (c == quote) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    // Depois das três aspas que fecham um bloco de texto, ou -1
+    private static int textBlockEnd(char[] t, int i, int end) {
+        while (i + 2 < end) {
+            if (t[i] == '\\') {
+                i += 2;
+            } else if (t[i] == '"' && t[i + 1] == '"' && t[i + 2] == '"') {
+                return i + 3;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(char[] t, int i, int end, String prefix) {
+        if (end - i < prefix.length()) {
+            return false;
+        }
+        for (int k = 0; k < prefix.length(); k++) {
+            if (t[i + k] != prefix.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Posição em [from, end) onde a sequência começa, ou -1
+    private static int indexOf(char[] t, int from, int end, String sequence) {
+        for (int i = from; i + sequence.length() <= end; i++) {
+            if (startsWith(t, i, end, sequence)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
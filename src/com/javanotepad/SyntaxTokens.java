@@ -0,0 +1,68 @@
+package com.javanotepad;
+
+import java.util.Arrays;
+
+/**
+ * Tokens de uma linha, em ordem e sem buracos: cada um vai do fim do anterior
+ * até o seu fim. Reaproveitado de linha em linha, sem alocar.
+ */
+final class SyntaxTokens {
+
+    // Tipos de token; as cores ficam na SyntaxView
+    public static final int PLAIN = 0;
+    public static final int KEYWORD = 1;
+    public static final int STRING = 2;
+    public static final int NUMBER = 3;
+    public static final int COMMENT = 4;
+    public static final int ANNOTATION = 5;
+    public static final int TAG = 6;
+    public static final int ATTRIBUTE = 7;
+    public static final int LOG_ERROR = 8;
+    public static final int LOG_WARNING = 9;
+    public static final int LOG_INFO = 10;
+    public static final int LOG_DEBUG = 11;
+    public static final int TYPES = 12;
+
+    private int[] ends = new int[64]; // relativos ao começo da linha
+    private byte[] types = new byte[64];
+    private int count;
+    private int lineStart;
+
+    // Começa uma linha que ocupa o array do lexer a partir de lineStart
+    public void reset(int lineStart) {
+        this.lineStart = lineStart;
+        count = 0;
+    }
+
+    // Token do fim do anterior até end (posição no array do lexer); junta com o anterior se o tipo for o mesmo
+    public void add(int end, int type) {
+        int relative = end - lineStart;
+        if (relative <= (count > 0 ? ends[count - 1] : 0)) {
+            return; // vazio
+        }
+        if (count > 0 && types[count - 1] == type) {
+            ends[count - 1] = relative;
+            return;
+        }
+        if (count == ends.length) {
+            ends = Arrays.copyOf(ends, count * 2);
+            types = Arrays.copyOf(types, count * 2);
+        }
+        ends[count] = relative;
+        types[count] = (byte) type;
+        count++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    // Fim do token i, relativo ao começo da linha
+    public int getEnd(int i) {
+        return ends[i];
+    }
+
+    public int getType(int i) {
+        return types[i];
+    }
+}
@@ -0,0 +1,153 @@
+package com.javanotepad;
+
+import javax.swing.JTextArea;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.PlainView;
+import javax.swing.text.Segment;
+import javax.swing.text.Utilities;
+import javax.swing.text.View;
+import javax.swing.text.ViewFactory;
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+
+/**
+ * {@link PlainView} que pinta o texto com as cores do {@link SyntaxHighlighter}
+ * do documento.
+ * <p>
+ * Só as linhas pintadas são classificadas, partindo do estado guardado para
+ * cada uma; o custo de pintar não depende do tamanho do arquivo. Sem realce
+ * instalado, pinta como a {@link PlainView}.
+ */
+class SyntaxView extends PlainView {
+
+    private static final Color[] COLORS = new Color[SyntaxTokens.TYPES];
+
+    static {
+        COLORS[SyntaxTokens.KEYWORD] = new Color(0x569CD6);
+        COLORS[SyntaxTokens.STRING] = new Color(0xCE9178);
+        COLORS[SyntaxTokens.NUMBER] = new Color(0xB5CEA8);
+        COLORS[SyntaxTokens.COMMENT] = new Color(0x6A9955);
+        COLORS[SyntaxTokens.ANNOTATION] = new Color(0xDCDCAA);
+        COLORS[SyntaxTokens.TAG] = new Color(0x569CD6);
+        COLORS[SyntaxTokens.ATTRIBUTE] = new Color(0x9CDCFE);
+        COLORS[SyntaxTokens.LOG_ERROR] = new Color(0xF44747);
+        COLORS[SyntaxTokens.LOG_WARNING] = new Color(0xE5C07B);
+        COLORS[SyntaxTokens.LOG_INFO] = new Color(0x4FC1FF);
+        COLORS[SyntaxTokens.LOG_DEBUG] = Color.GRAY;
+    }
+
+    private final SyntaxTokens tokens = new SyntaxTokens();
+    private final Segment text = new Segment();
+    private final ChangeListener repainter = e -> repaintVisible();
+    private SyntaxHighlighter highlighter; // de quem recebe avisos; pode mudar num Salvar Como
+    private int tokensLine = -1; // linha classificada em tokens
+    private int tokensState;
+
+    SyntaxView(Element elem) {
+        super(elem);
+    }
+
+    // View da área de texto, ou null quando a UI deve usar a padrão (quebra de linha, texto bidirecional)
+    public static View create(JTextComponent c, Element elem) {
+        if (c instanceof JTextArea && ((JTextArea) c).getLineWrap()) {
+            return null;
+        }
+        if (Boolean.TRUE.equals(elem.getDocument().getProperty("i18n"))) {
+            return null;
+        }
+        return new SyntaxView(elem);
+    }
+
+    @Override
+    public void setParent(View parent) {
+        super.setParent(parent);
+        if (parent == null) {
+            listen(null);
+        }
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent changes, Shape a, ViewFactory f) {
+        tokensLine = -1;
+        super.insertUpdate(changes, a, f);
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent changes, Shape a, ViewFactory f) {
+        tokensLine = -1;
+        super.removeUpdate(changes, a, f);
+    }
+
+    @Override
+    protected float drawUnselectedText(Graphics2D g, float x, float y, int p0, int p1) throws BadLocationException {
+        SyntaxHighlighter current = SyntaxHighlighter.of(getDocument());
+        listen(current);
+        Container host = getContainer();
+        if (current == null || host == null || !host.isEnabled()) {
+            return super.drawUnselectedText(g, x, y, p0, p1);
+        }
+        Element root = getElement();
+        int line = root.getElementIndex(p0);
+        Element lineElement = root.getElement(line);
+        int lineStart = lineElement.getStartOffset();
+        int lineEnd = Math.min(lineElement.getEndOffset() - 1, getDocument().getLength()); // sem a quebra
+        if (lineEnd - lineStart > SyntaxHighlighter.MAX_LINE) {
+            return super.drawUnselectedText(g, x, y, p0, p1);
+        }
+        int state = current.stateAt(line);
+        if (line != tokensLine || state != tokensState) {
+            getDocument().getText(lineStart, lineEnd - lineStart, text);
+            current.getLexer().lex(text.array, text.offset, text.offset + text.count, state, tokens);
+            tokensLine = line;
+            tokensState = state;
+        }
+        Color plain = host.getForeground();
+        int from = lineStart;
+        for (int i = 0; i < tokens.getCount() && from < p1; i++) {
+            int to = lineStart + tokens.getEnd(i);
+            Color color = COLORS[tokens.getType(i)];
+            x = drawPiece(g, x, y, Math.max(from, p0), Math.min(to, p1), color != null ? color : plain);
+            from = to;
+        }
+        return drawPiece(g, x, y, Math.max(from, p0), p1, plain); // quebra de linha ou resto não classificado
+    }
+
+    private float drawPiece(Graphics2D g, float x, float y, int p0, int p1, Color color) throws BadLocationException {
+        if (p0 >= p1) {
+            return x;
+        }
+        g.setColor(color);
+        getDocument().getText(p0, p1 - p0, text);
+        return Utilities.drawTabbedText(text, x, y, g, this, p0);
+    }
+
+    // Passa a receber os avisos do realce atual do documento
+    private void listen(SyntaxHighlighter current) {
+        if (current == highlighter) {
+            return;
+        }
+        if (highlighter != null) {
+            highlighter.removeChangeListener(repainter);
+        }
+        highlighter = current;
+        tokensLine = -1;
+        if (current != null) {
+            current.addChangeListener(repainter);
+        }
+    }
+
+    // Estados de linhas mudaram: o que está à vista pode ter mudado de cor
+    private void repaintVisible() {
+        tokensLine = -1;
+        Container host = getContainer();
+        if (host instanceof JTextComponent) {
+            ((JTextComponent) host).repaint(((JTextComponent) host).getVisibleRect());
+        }
+    }
+}
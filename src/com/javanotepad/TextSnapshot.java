@@ -0,0 +1,73 @@
+package com.javanotepad;
+
+import java.util.Arrays;
+
+/**
+ * Texto de um documento congelado num instante, legível de qualquer thread.
+ * <p>
+ * Criado pela {@link PieceTableContent} com uma cópia da lista de trechos: os
+ * buffers para onde eles apontam nunca são reescritos, então o instantâneo
+ * continua válido enquanto o documento segue sendo editado na EDT. Custa um
+ * registro por trecho, não uma cópia do texto.
+ */
+final class TextSnapshot {
+
+    private final AsciiText original;
+    private final char[][] arrays; // null: trecho do texto original
+    private final int[] starts;
+    private final int[] offsets;   // posição no texto onde cada trecho começa, mais o total no fim
+
+    TextSnapshot(AsciiText original, char[][] arrays, int[] starts, int[] offsets) {
+        this.original = original;
+        this.arrays = arrays;
+        this.starts = starts;
+        this.offsets = offsets;
+    }
+
+    // Instantâneo de um texto avulso (documentos que não são PieceTableDocument)
+    public static TextSnapshot of(char[] text) {
+        return new TextSnapshot(null, new char[][]{text}, new int[]{0}, new int[]{0, text.length});
+    }
+
+    public int length() {
+        return offsets[offsets.length - 1];
+    }
+
+    // Copia [from, to) para dst a partir de dstPos
+    public void getChars(int from, int to, char[] dst, int dstPos) {
+        if (from < 0 || to > length() || from > to) {
+            throw new IndexOutOfBoundsException("from " + from + ", to " + to + ", length " + length());
+        }
+        int piece = pieceAt(from);
+        while (from < to) {
+            int offset = from - offsets[piece];
+            int count = Math.min(to, offsets[piece + 1]) - from;
+            if (arrays[piece] != null) {
+                System.arraycopy(arrays[piece], starts[piece] + offset, dst, dstPos, count);
+            } else {
+                original.getChars(starts[piece] + offset, count, dst, dstPos);
+            }
+            from += count;
+            dstPos += count;
+            piece++;
+        }
+    }
+
+    public String getString(int from, int to) {
+        char[] chars = new char[to - from];
+        getChars(from, to, chars, 0);
+        return new String(chars);
+    }
+
+    // Trecho que contém a posição (o último não vazio, se ela for o fim)
+    private int pieceAt(int position) {
+        int i = Arrays.binarySearch(offsets, 0, offsets.length - 1, position);
+        if (i < 0) {
+            return Math.max(0, -i - 2);
+        }
+        while (i + 1 < offsets.length - 1 && offsets[i + 1] == position) {
+            i++; // pula trechos vazios
+        }
+        return i;
+    }
+}
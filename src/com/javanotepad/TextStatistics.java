@@ -0,0 +1,358 @@
+package com.javanotepad;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.DocumentFilter;
+import javax.swing.text.Segment;
+
+/**
+ * Contagem incremental de linhas e palavras de um {@link Document}.
+ * <p>
+ * Os valores são os mesmos de {@code content.split("\r\n|\r|\n").length} e
+ * {@code content.trim().split("\\s+").length}, mas cada edição relê apenas o
+ * trecho alterado e os caracteres vizinhos, sem copiar o documento inteiro.
+ * <p>
+ * O trecho removido é medido antes de sair do texto. Num
+ * {@link PieceTableDocument} a tabela de trechos avisa antes de toda remoção,
+ * inclusive as de desfazer e refazer; nos outros documentos um
+ * {@link DocumentFilter}, encadeado ao que já existia, mede as remoções
+ * editadas, e as demais (desfazer) levam a uma recontagem.
+ */
+class TextStatistics implements DocumentListener {
+
+    private static final int CHUNK = 4096;
+
+    private final Runnable onChange;
+    private final Segment segment = new Segment();
+    private final PieceTableContent.RemovalListener removalListener = this::beforeRemove;
+    private Document document;
+    private RemovalFilter filter; // instalado em documentos que não são PieceTableDocument
+
+    // Totais do documento inteiro
+    private int separators; // quebras de linha ("\r\n" conta uma vez)
+    private int wordStarts; // inícios de sequências sem espaço em branco (\s)
+
+    // Resultado da última varredura parcial
+    private int scanSeparators;
+    private int scanWordStarts;
+
+    // Contribuição do trecho removido, medida antes da remoção pelo filtro
+    private int pendingOffset = -1;
+    private int pendingLength;
+    private int pendingSeparators;
+    private int pendingWordStarts;
+
+    public TextStatistics(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    // Conta um documento que ainda não está em uso; pode rodar fora da EDT
+    public static TextStatistics countOf(Document doc) {
+        TextStatistics counted = new TextStatistics(() -> {
+        });
+        counted.document = doc;
+        counted.recount();
+        return counted;
+    }
+
+    // Contagens de um documento que ainda não está em uso, já conhecidas de antes (sessão anterior)
+    public static TextStatistics of(Document doc, int separators, int wordStarts) {
+        TextStatistics known = new TextStatistics(() -> {
+        });
+        known.document = doc;
+        known.separators = separators;
+        known.wordStarts = wordStarts;
+        return known;
+    }
+
+    // Totais brutos, para serem guardados e passados a of() depois
+    public int getSeparatorCount() {
+        return separators;
+    }
+
+    public int getWordStartCount() {
+        return wordStarts;
+    }
+
+    // Passa a acompanhar o documento
+    public void install(Document doc) {
+        install(doc, null);
+    }
+
+    // Igual a install(doc), mas reaproveita as contagens feitas por countOf(doc)
+    public void install(Document doc, TextStatistics counted) {
+        if (document != null) {
+            uninstall();
+        }
+        document = doc;
+        doc.addDocumentListener(this);
+        if (doc instanceof PieceTableDocument) {
+            ((PieceTableDocument) doc).getPieceTable().addRemovalListener(removalListener);
+        } else if (doc instanceof AbstractDocument) {
+            AbstractDocument filtered = (AbstractDocument) doc;
+            filter = new RemovalFilter(filtered.getDocumentFilter());
+            filtered.setDocumentFilter(filter);
+        }
+        if (counted != null && counted.document == doc) {
+            separators = counted.separators;
+            wordStarts = counted.wordStarts;
+        } else {
+            recount();
+        }
+    }
+
+    // Deixa de acompanhar o documento, devolvendo o filtro que ele tinha antes
+    private void uninstall() {
+        document.removeDocumentListener(this);
+        if (document instanceof PieceTableDocument) {
+            ((PieceTableDocument) document).getPieceTable().removeRemovalListener(removalListener);
+        } else if (filter != null) {
+            AbstractDocument filtered = (AbstractDocument) document;
+            if (filtered.getDocumentFilter() == filter) {
+                filtered.setDocumentFilter(filter.next);
+            }
+            filter = null;
+        }
+    }
+
+    public int getLineCount() {
+        try {
+            int length = document.getLength();
+            if (length == 0) {
+                return 0;
+            }
+            // split() descarta as linhas vazias do final
+            int trailing = length;
+            while (trailing > 0) {
+                char c = charAt(trailing - 1);
+                if (c != '\n' && c != '\r') {
+                    break;
+                }
+                trailing--;
+            }
+            if (trailing == 0) {
+                return 0;
+            }
+            int lines = separators + 1;
+            if (trailing < length) {
+                scan(trailing, length);
+                lines -= scanSeparators;
+            }
+            return lines;
+        } catch (BadLocationException e) {
+            return 0;
+        }
+    }
+
+    public int getWordCount() {
+        try {
+            int length = document.getLength();
+            int first = 0;
+            while (first < length && charAt(first) <= ' ') {
+                first++;
+            }
+            if (first == length) {
+                return 0; // trim() deixaria o texto vazio
+            }
+            int last = length - 1;
+            while (charAt(last) <= ' ') {
+                last--;
+            }
+
+            // trim() remove sequências compostas só de caracteres de controle nas pontas
+            int words = wordStarts;
+            if (first > 0) {
+                scan(0, first);
+                words -= scanWordStarts;
+                if (!isWhitespace(charAt(first - 1))) {
+                    words++; // a sequência continua no primeiro caractere visível
+                }
+            }
+            if (last < length - 1) {
+                scan(last + 1, length);
+                words -= scanWordStarts;
+            }
+            return words;
+        } catch (BadLocationException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        try {
+            int offset = e.getOffset();
+            int length = e.getLength();
+            beforeInsert(offset, length);
+            int oldSeparators = scanSeparators;
+            int oldWordStarts = scanWordStarts;
+            scan(offset - 1, offset + length + 1);
+            separators += scanSeparators - oldSeparators;
+            wordStarts += scanWordStarts - oldWordStarts;
+        } catch (BadLocationException ex) {
+            recount();
+        }
+        onChange.run();
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        if (pendingOffset == e.getOffset() && pendingLength == e.getLength()) {
+            try {
+                scan(e.getOffset() - 1, e.getOffset() + 1);
+                separators += scanSeparators - pendingSeparators;
+                wordStarts += scanWordStarts - pendingWordStarts;
+            } catch (BadLocationException ex) {
+                recount();
+            }
+        } else {
+            recount(); // remoção que não foi medida antes (desfazer fora de um PieceTableDocument)
+        }
+        pendingOffset = -1;
+        onChange.run();
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        onChange.run();
+    }
+
+    private void recount() {
+        try {
+            scan(0, document.getLength());
+            separators = scanSeparators;
+            wordStarts = scanWordStarts;
+        } catch (BadLocationException e) {
+            separators = 0;
+            wordStarts = 0;
+        }
+    }
+
+    private void beforeRemove(int offset, int length) {
+        try {
+            scan(offset - 1, offset + length + 1);
+            pendingOffset = offset;
+            pendingLength = length;
+            pendingSeparators = scanSeparators;
+            pendingWordStarts = scanWordStarts;
+        } catch (BadLocationException e) {
+            pendingOffset = -1;
+        }
+    }
+
+    // Reconstrói, a partir do documento já alterado, o que as posições
+    // offset-1 e offset contribuíam antes da inserção
+    private void beforeInsert(int offset, int length) throws BadLocationException {
+        int oldLength = document.getLength() - length;
+        int a = offset >= 2 ? charAt(offset - 2) : -1;
+        int b = offset >= 1 ? charAt(offset - 1) : -1;
+        int d = offset < oldLength ? charAt(offset + length) : -1;
+        int f = offset + 1 < oldLength ? charAt(offset + length + 1) : -1;
+        scanSeparators = separatorAt(b, d) + separatorAt(d, f);
+        scanWordStarts = wordStartAt(a, b) + wordStartAt(b, d);
+    }
+
+    // Conta separadores e inícios de palavra ancorados em [from, to),
+    // lendo um caractere de contexto de cada lado
+    private void scan(int from, int to) throws BadLocationException {
+        scanSeparators = 0;
+        scanWordStarts = 0;
+        int length = document.getLength();
+        from = Math.max(0, from);
+        to = Math.min(length, to);
+        if (from >= to) {
+            return;
+        }
+        int end = Math.min(length, to + 1);
+        int pos = Math.max(0, from - 1);
+        int prev = -1;
+
+        segment.setPartialReturn(true);
+        while (pos < end) {
+            document.getText(pos, Math.min(CHUNK, end - pos), segment);
+            for (int i = 0; i < segment.count; i++, pos++) {
+                char c = segment.array[segment.offset + i];
+                if (pos >= from && pos < to) {
+                    scanWordStarts += wordStartAt(prev, c);
+                    if (c == '\n') {
+                        scanSeparators++;
+                    }
+                }
+                if (prev == '\r' && pos - 1 >= from && pos - 1 < to && c != '\n') {
+                    scanSeparators++;
+                }
+                prev = c;
+            }
+        }
+        segment.array = null; // não segura um array que pode sair do texto
+        if (prev == '\r' && end == length && end - 1 < to) {
+            scanSeparators++; // '\r' no fim do documento
+        }
+    }
+
+    private char charAt(int pos) throws BadLocationException {
+        document.getText(pos, 1, segment);
+        char c = segment.array[segment.offset];
+        segment.array = null;
+        return c;
+    }
+
+    private static int separatorAt(int c, int next) {
+        return c == '\n' || (c == '\r' && next != '\n') ? 1 : 0;
+    }
+
+    private static int wordStartAt(int prev, int c) {
+        return c >= 0 && !isWhitespace(c) && (prev < 0 || isWhitespace(prev)) ? 1 : 0;
+    }
+
+    // Mesmo conjunto da classe \s das expressões regulares
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // Mede o trecho antes que ele seja removido do documento e passa a edição adiante
+    private class RemovalFilter extends DocumentFilter {
+        private final DocumentFilter next; // o filtro que o documento já tinha, ou null
+
+        RemovalFilter(DocumentFilter next) {
+            this.next = next;
+        }
+
+        @Override
+        public void remove(FilterBypass fb, int offset, int length) throws BadLocationException {
+            beforeRemove(offset, length);
+            if (next != null) {
+                next.remove(fb, offset, length);
+            } else {
+                fb.remove(offset, length);
+            }
+        }
+
+        @Override
+        public void insertString(FilterBypass fb, int offset, String text, AttributeSet attrs)
+                throws BadLocationException {
+            if (next != null) {
+                next.insertString(fb, offset, text, attrs);
+            } else {
+                fb.insertString(offset, text, attrs);
+            }
+        }
+
+        @Override
+        public void replace(FilterBypass fb, int offset, int length, String text, AttributeSet attrs)
+                throws BadLocationException {
+            if (length > 0) {
+                beforeRemove(offset, length);
+            }
+            if (next != null) {
+                next.replace(fb, offset, length, text, attrs);
+            } else {
+                fb.replace(offset, length, text, attrs);
+            }
+        }
+    }
+}